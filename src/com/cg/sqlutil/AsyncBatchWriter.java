@@ -0,0 +1,58 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil;
+
+import java.sql.SQLException;
+import java.util.List;
+
+// executes one DML statement as batches in a background thread. add() only puts the row into a
+// bounded queue, a thread with its own SQLUtil (and connection) takes all queued rows (at most
+// BatchOptions.maxRows), executes them with executeDMLBatch and commits. So callers never wait
+// for the database, only for a full queue (WhenFull.BLOCK) or not at all (WhenFull.REJECT).
+// Thread safe, many threads can add rows.
+// A failed batch is rolled back and given to the ErrorHandler, following batches are executed.
+// flush() and close() return when all rows added before are committed, and throw if a batch
+// failed since the last flush()/close().
+//   AsyncBatchWriter w = SQLUtilFactory.createAsyncBatchWriter(ownSql, insert, types,
+//           BatchOptions.rows(1000), 10000, WhenFull.REJECT, null);
+public interface AsyncBatchWriter extends AutoCloseable {
+
+    enum WhenFull {
+        // add() waits until there is space in the queue
+        BLOCK,
+        // add() returns false, the row is dropped
+        REJECT
+    }
+
+    // called in the writer thread, firstRow is the number of the first row of the batch (0..)
+    @FunctionalInterface
+    interface ErrorHandler {
+        void failed(long firstRow, List<Object[]> rows, SQLException error);
+    }
+
+    // values must not be changed after add()
+    boolean add(Object... values) throws InterruptedException;
+
+    void flush() throws SQLException, InterruptedException;
+
+    // rows waiting in the queue
+    int getQueuedRows();
+
+    long getExecutedRows();
+
+    long getFailedRows();
+
+    long getRejectedRows();
+
+    long getBatchCount();
+
+    long getFailedBatchCount();
+
+    // flushes, stops the thread and closes the connection of the writer. Waits for that also if
+    // the calling thread is interrupted, the interrupt flag is restored afterwards.
+    @Override
+    void close() throws SQLException;
+}
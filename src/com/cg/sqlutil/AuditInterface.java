@@ -38,6 +38,13 @@ public abstract interface AuditInterface {
 
     void endAuditRecord();
 
+    // adds a finished record, for executions that are not a single statement of this SQLUtil
+    default void addAuditRecord(AuditRecord record) {
+        if (!isEnabled())
+            return;
+        getAuditRecords().computeIfAbsent(record.getSQL(), sql -> new ArrayList<>()).add(record);
+    }
+
     //
     // store into database and remove audit records from memory
     //
@@ -0,0 +1,120 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil;
+
+/**
+ * How executeDMLBatch splits a large batch: executeBatch() is called every maxRows rows or when
+ * the estimated size of the bound values reaches maxBytes, whatever comes first. So the driver
+ * never buffers more than one sub-batch.
+ * With commitEvery=k the transaction is committed after every k sub-batches and after the last
+ * one (only if autocommit is off). A failing sub-batch leaves the earlier commits in place.
+ *   sql.executeDMLBatch(stmt, values, types, BatchOptions.rows(5000).commitEvery(10));
+ * With ErrorPolicy.ISOLATE a sub-batch that fails with a BatchUpdateException is split in halves
+ * and executed again (recursively), until the failing rows are executed alone. They are reported
+ * in BatchResult.getFailures(), all other rows are executed. If autocommit is off, each attempt
+ * runs in a savepoint (when the database supports them) and a failed attempt is rolled back to
+ * it. Without a savepoint, the update counts of the BatchUpdateException tell which rows are
+ * done. Clean sub-batches cost one savepoint more, nothing else.
+ *   BatchResult r = sql.executeDMLBatch(stmt, values, types,
+ *           BatchOptions.rows(5000).onError(ErrorPolicy.ISOLATE));
+ */
+public final class BatchOptions {
+
+    // called after every sub-batch, e.g. to report progress or stream the affected rows
+    @FunctionalInterface
+    public interface Listener {
+        // firstRow: index of the first row of this sub-batch in the whole batch
+        void executed(int batchNo, int firstRow, int[] affectedRows);
+    }
+
+    public enum ErrorPolicy {
+        // the first failing sub-batch throws
+        FAIL,
+        // failing rows are isolated by bisecting the sub-batch, Statement.EXECUTE_FAILED in
+        // affectedRows
+        ISOLATE
+    }
+
+    private final int maxRows;
+    private final long maxBytes;
+    private final int commitEvery;
+    private final long maxDelayMillis;
+    private final Listener listener;
+    private final ErrorPolicy errorPolicy;
+
+    private BatchOptions(int maxRows, long maxBytes, int commitEvery, long maxDelayMillis,
+            Listener listener, ErrorPolicy errorPolicy) {
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+        this.commitEvery = commitEvery;
+        this.maxDelayMillis = maxDelayMillis;
+        this.listener = listener;
+        this.errorPolicy = errorPolicy;
+    }
+
+    // maxRows<=0: no row limit
+    public static BatchOptions rows(int maxRows) {
+        return new BatchOptions(maxRows, 0, 0, 0, null, ErrorPolicy.FAIL);
+    }
+
+    // maxBytes<=0: no size limit. Only the Object[] variants can estimate sizes.
+    public BatchOptions bytes(long maxBytes) {
+        return new BatchOptions(maxRows, maxBytes, commitEvery, maxDelayMillis, listener,
+                errorPolicy);
+    }
+
+    // k<=0: never commit
+    public BatchOptions commitEvery(int k) {
+        return new BatchOptions(maxRows, maxBytes, k, maxDelayMillis, listener, errorPolicy);
+    }
+
+    // BatchWriter only: flush when the oldest unflushed row is older than millis (checked by
+    // add(), a writer without new rows doesn't flush). millis<=0: no time limit
+    public BatchOptions maxDelay(long millis) {
+        return new BatchOptions(maxRows, maxBytes, commitEvery, millis, listener, errorPolicy);
+    }
+
+    public BatchOptions listener(Listener l) {
+        return new BatchOptions(maxRows, maxBytes, commitEvery, maxDelayMillis, l,
+                errorPolicy);
+    }
+
+    public BatchOptions onError(ErrorPolicy policy) {
+        return new BatchOptions(maxRows, maxBytes, commitEvery, maxDelayMillis, listener,
+                policy);
+    }
+
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public int getCommitEvery() {
+        return commitEvery;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    public Listener getListener() {
+        return listener;
+    }
+
+    public ErrorPolicy getErrorPolicy() {
+        return errorPolicy;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchOptions(rows=" + maxRows + ", bytes=" + maxBytes + ", commitEvery="
+                + commitEvery + ", maxDelay=" + maxDelayMillis + ", onError=" + errorPolicy
+                + ")";
+    }
+}
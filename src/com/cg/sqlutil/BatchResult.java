@@ -0,0 +1,125 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// summary of a batch that was executed in sub-batches. The affected rows per row are not kept
+// (use BatchOptions.Listener for them). Statement.SUCCESS_NO_INFO counts as one affected row.
+public final class BatchResult {
+
+    // a row that failed with BatchOptions.ErrorPolicy.ISOLATE
+    public static final class Failure {
+        private final int index;
+        private final SQLException error;
+
+        public Failure(int index, SQLException error) {
+            this.index = index;
+            this.error = error;
+        }
+
+        // index of the row in the whole batch
+        public int getIndex() {
+            return index;
+        }
+
+        public SQLException getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return "row " + index + ": " + error.getMessage();
+        }
+    }
+
+    private int rowCount;
+    private long affectedRows;
+    private int batchCount;
+    private int commitCount;
+    private int noInfoCount;
+    private long executeNanos;
+    private List<Failure> failures;
+
+    public BatchResult() {
+    }
+
+    // called after each sub-batch
+    public void addBatch(int[] affected, long executeNanos) {
+        this.executeNanos += executeNanos;
+        batchCount++;
+        rowCount += affected.length;
+        for (int a : affected)
+            if (a >= 0)
+                affectedRows += a;
+            else if (a == Statement.SUCCESS_NO_INFO) {
+                affectedRows++;
+                noInfoCount++;
+            }
+    }
+
+    public void addFailure(int index, SQLException error) {
+        if (failures == null)
+            failures = new ArrayList<>();
+        failures.add(new Failure(index, error));
+    }
+
+    public void addCommit() {
+        commitCount++;
+    }
+
+    // rows executed
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    // sum of the affected rows of all rows
+    public long getAffectedRows() {
+        return affectedRows;
+    }
+
+    // number of executeBatch() calls
+    public int getBatchCount() {
+        return batchCount;
+    }
+
+    public int getCommitCount() {
+        return commitCount;
+    }
+
+    // rows the driver reported as SUCCESS_NO_INFO
+    public int getNoInfoCount() {
+        return noInfoCount;
+    }
+
+    // rows that were not executed, in the order they were found (not sorted by index)
+    public List<Failure> getFailures() {
+        return failures == null ? Collections.emptyList()
+                : Collections.unmodifiableList(failures);
+    }
+
+    // time spent in executeBatch(), with retries
+    public long getExecuteMillis() {
+        return executeNanos / 1000000;
+    }
+
+    // rows per second of executeBatch() time
+    public double getRowsPerSecond() {
+        return executeNanos == 0 ? 0 : rowCount * 1e9 / executeNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult(rows=" + rowCount + ", affected=" + affectedRows + ", batches="
+                + batchCount + ", commits=" + commitCount + ", failed="
+                + (failures == null ? 0 : failures.size()) + ", executeMs=" + getExecuteMillis()
+                + ")";
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil;
+
+import java.sql.SQLException;
+
+// executes one DML statement as batches, rows are added one by one. A batch is executed when
+// BatchOptions rows/bytes/maxDelay is reached, with flush() or with close(). Rows are bound
+// directly to the statement, they're not kept (except with BatchOptions.ErrorPolicy.ISOLATE).
+//   try (BatchWriter w = sql.createBatchWriter(insert, types, BatchOptions.rows(1000))) {
+//       for (...) w.add(id, name);
+//   }
+// Not thread safe, like the SQLUtil it belongs to. While rows are pending, the statement is
+// borrowed from the statement cache.
+public interface BatchWriter extends AutoCloseable {
+
+    // binds the values, may execute a batch
+    void add(Object... values) throws SQLException;
+
+    // rows added, but not executed yet
+    int getPendingRows();
+
+    // executes the pending rows, returns their number
+    int flush() throws SQLException;
+
+    // counts and times of all executed batches
+    BatchResult getStats();
+
+    // flushes and commits (if BatchOptions.commitEvery is set). add() is not allowed afterwards.
+    @Override
+    void close() throws SQLException;
+}
@@ -0,0 +1,347 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+import com.cg.sqlutil.impl.BindHelper;
+import com.cg.sqlutil.impl.RecordHelper;
+
+/**
+ * Binds the fields of one object to the ? of a statement, in order, with the typed
+ * PreparedStatement setters. The type of every ? is fixed when the mapping is created, so no
+ * Object[] is built and no value is checked per row.
+ *   BindMapping<Customer> m = BindMapping.of(Customer.class);           // all record components
+ *   BindMapping<Customer> m = BindMapping.of(Customer.class, "name", "id");
+ *   BindMapping<Customer> m = BindMapping.<Customer>builder()
+ *           .setLongValue(Customer::id).setString(Customer::name).build();
+ * A mapping is immutable and can be shared. Records are found by reflection (RecordHelper), so
+ * of() needs java 16 at runtime, the builder works on java 8.
+ */
+public final class BindMapping<T> {
+
+    // binds one ?, pos is 1-based
+    @FunctionalInterface
+    public interface ColumnBinder<T> {
+        void bind(PreparedStatement ps, int pos, T value, Calendar calendar) throws SQLException;
+    }
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final ColumnBinder<T>[] binders;
+    private final int[] sqlTypes;
+
+    @SuppressWarnings("unchecked")
+    private BindMapping(List<ColumnBinder<T>> binders, List<Integer> sqlTypes) {
+        this.binders = (ColumnBinder<T>[]) binders.toArray(new ColumnBinder<?>[0]);
+        this.sqlTypes = new int[sqlTypes.size()];
+        for (int i = 0; i < this.sqlTypes.length; i++)
+            this.sqlTypes[i] = sqlTypes.get(i);
+    }
+
+    // number of bind variables
+    public int size() {
+        return binders.length;
+    }
+
+    // java.sql.Types of the bind variables
+    public int[] getSQLTypes() {
+        return sqlTypes.clone();
+    }
+
+    public void bind(PreparedStatement ps, T value, Calendar calendar) throws SQLException {
+        for (int n = 0; n < binders.length; n++)
+            binders[n].bind(ps, n + 1, value, calendar);
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    // all components of a record, in declaration order
+    public static <T> BindMapping<T> of(Class<T> recordType) {
+        return of(recordType, (String[]) null);
+    }
+
+    // the given record components, in this order (a component can be used more than once)
+    public static <T> BindMapping<T> of(Class<T> recordType, String... components) {
+        RecordHelper.Component[] all = RecordHelper.getComponents(recordType);
+        List<RecordHelper.Component> selected = new ArrayList<>();
+        if (components == null)
+            selected.addAll(Arrays.asList(all));
+        else
+            for (String name : components) {
+                RecordHelper.Component found = null;
+                for (RecordHelper.Component rc : all)
+                    if (rc.getName().equals(name))
+                        found = rc;
+                if (found == null)
+                    throw new IllegalArgumentException(
+                            "no component " + name + " in record " + recordType.getName());
+                selected.add(found);
+            }
+        Builder<T> b = new Builder<>();
+        try {
+            for (RecordHelper.Component rc : selected)
+                b.addComponent(rc, LOOKUP.unreflect(rc.getAccessor()));
+        } catch (IllegalAccessException iae) {
+            throw new IllegalArgumentException("cannot access record " + recordType.getName(),
+                    iae);
+        }
+        return b.build();
+    }
+
+    public static final class Builder<T> {
+
+        private final List<ColumnBinder<T>> binders = new ArrayList<>();
+        private final List<Integer> sqlTypes = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder<T> add(ColumnBinder<T> binder, int sqlType) {
+            binders.add(binder);
+            sqlTypes.add(sqlType);
+            return this;
+        }
+
+        public Builder<T> setString(Function<T, String> getter) {
+            return add((ps, pos, v, c) -> BindHelper.bindString(ps, pos, getter.apply(v)),
+                    Types.VARCHAR);
+        }
+
+        public Builder<T> setLong(Function<T, Long> getter) {
+            return add((ps, pos, v, c) -> BindHelper.bindLong(ps, pos, getter.apply(v)),
+                    Types.BIGINT);
+        }
+
+        public Builder<T> setLongValue(ToLongFunction<T> getter) {
+            return add((ps, pos, v, c) -> ps.setLong(pos, getter.applyAsLong(v)), Types.BIGINT);
+        }
+
+        public Builder<T> setInt(Function<T, Integer> getter) {
+            return add((ps, pos, v, c) -> BindHelper.bindInteger(ps, pos, getter.apply(v)),
+                    Types.INTEGER);
+        }
+
+        public Builder<T> setIntValue(ToIntFunction<T> getter) {
+            return add((ps, pos, v, c) -> ps.setInt(pos, getter.applyAsInt(v)), Types.INTEGER);
+        }
+
+        public Builder<T> setDouble(Function<T, Double> getter) {
+            return add((ps, pos, v, c) -> BindHelper.bindDouble(ps, pos, getter.apply(v)),
+                    Types.DOUBLE);
+        }
+
+        public Builder<T> setDoubleValue(ToDoubleFunction<T> getter) {
+            return add((ps, pos, v, c) -> ps.setDouble(pos, getter.applyAsDouble(v)),
+                    Types.DOUBLE);
+        }
+
+        public Builder<T> setBigDecimal(Function<T, BigDecimal> getter) {
+            return add((ps, pos, v, c) -> BindHelper.bindBigDecimal(ps, pos, getter.apply(v)),
+                    Types.NUMERIC);
+        }
+
+        public Builder<T> setBoolean(Function<T, Boolean> getter) {
+            return add((ps, pos, v, c) -> BindHelper.bindBoolean(ps, pos, getter.apply(v)),
+                    Types.BIT);
+        }
+
+        public Builder<T> setTimestamp(Function<T, Timestamp> getter) {
+            return add((ps, pos, v, c) -> BindHelper.bindSQLTimestamp(ps, pos, getter.apply(v), c),
+                    Types.TIMESTAMP);
+        }
+
+        public Builder<T> setDate(Function<T, java.sql.Date> getter) {
+            return add((ps, pos, v, c) -> BindHelper.bindSQLDate(ps, pos, getter.apply(v), c),
+                    Types.DATE);
+        }
+
+        public Builder<T> setTime(Function<T, Time> getter) {
+            return add((ps, pos, v, c) -> BindHelper.bindSQLTime(ps, pos, getter.apply(v)),
+                    Types.TIME);
+        }
+
+        public Builder<T> setBytes(Function<T, byte[]> getter) {
+            return add((ps, pos, v, c) -> BindHelper.bindByteArray(ps, pos, getter.apply(v)),
+                    Types.VARBINARY);
+        }
+
+        // everything else (java.time, UUID, ...) is given to the driver as it is
+        public Builder<T> setObject(Function<T, Object> getter, int sqlType) {
+            return add((ps, pos, v, c) -> {
+                Object o = getter.apply(v);
+                if (o == null)
+                    ps.setNull(pos, sqlType);
+                else
+                    ps.setObject(pos, o, sqlType);
+            }, sqlType);
+        }
+
+        public BindMapping<T> build() {
+            return new BindMapping<>(binders, sqlTypes);
+        }
+
+        // accessor: (record)componentType. Every primitive type has its own invokeExact, so
+        // primitive components are never boxed.
+        private void addComponent(RecordHelper.Component rc, MethodHandle accessor) {
+            Class<?> type = rc.getType();
+            MethodHandle mh = accessor.asType(MethodType.methodType(
+                    type.isPrimitive() ? type : Object.class, Object.class));
+            if (type == long.class)
+                setLongValue(v -> invokeLong(mh, v, rc));
+            else if (type == int.class)
+                setIntValue(v -> invokeInt(mh, v, rc));
+            else if (type == short.class)
+                setIntValue(v -> invokeShort(mh, v, rc));
+            else if (type == byte.class)
+                setIntValue(v -> invokeByte(mh, v, rc));
+            else if (type == double.class)
+                setDoubleValue(v -> invokeDouble(mh, v, rc));
+            else if (type == float.class)
+                setDoubleValue(v -> invokeFloat(mh, v, rc));
+            else if (type == boolean.class)
+                add((ps, pos, v, c) -> ps.setBoolean(pos, invokeBoolean(mh, v, rc)), Types.BIT);
+            else if (type == Long.class)
+                setLong(v -> (Long) invoke(mh, v, rc));
+            else if (type == Integer.class)
+                setInt(v -> (Integer) invoke(mh, v, rc));
+            else if (type == Short.class || type == Byte.class) {
+                setInt(v -> {
+                    Number n = (Number) invoke(mh, v, rc);
+                    return n == null ? null : n.intValue();
+                });
+            } else if (type == Double.class)
+                setDouble(v -> (Double) invoke(mh, v, rc));
+            else if (type == Float.class) {
+                setDouble(v -> {
+                    Float f = (Float) invoke(mh, v, rc);
+                    return f == null ? null : f.doubleValue();
+                });
+            } else if (type == Boolean.class)
+                setBoolean(v -> (Boolean) invoke(mh, v, rc));
+            else if (type == String.class)
+                setString(v -> (String) invoke(mh, v, rc));
+            else if (type == BigDecimal.class)
+                setBigDecimal(v -> (BigDecimal) invoke(mh, v, rc));
+            else if (type == Timestamp.class)
+                setTimestamp(v -> (Timestamp) invoke(mh, v, rc));
+            else if (type == java.sql.Date.class)
+                setDate(v -> (java.sql.Date) invoke(mh, v, rc));
+            else if (type == Time.class)
+                setTime(v -> (Time) invoke(mh, v, rc));
+            else if (type == java.util.Date.class) {
+                setTimestamp(v -> {
+                    java.util.Date d = (java.util.Date) invoke(mh, v, rc);
+                    return d == null ? null : new Timestamp(d.getTime());
+                });
+            } else if (type == byte[].class)
+                setBytes(v -> (byte[]) invoke(mh, v, rc));
+            else if (type.isEnum()) {
+                setString(v -> {
+                    Enum<?> e = (Enum<?>) invoke(mh, v, rc);
+                    return e == null ? null : e.name();
+                });
+            } else
+                setObject(v -> invoke(mh, v, rc), Types.OTHER);
+        }
+
+        private static long invokeLong(MethodHandle mh, Object record, RecordHelper.Component rc) {
+            try {
+                return (long) mh.invokeExact(record);
+            } catch (Throwable t) {
+                throw cannotRead(t, rc);
+            }
+        }
+
+        private static int invokeInt(MethodHandle mh, Object record, RecordHelper.Component rc) {
+            try {
+                return (int) mh.invokeExact(record);
+            } catch (Throwable t) {
+                throw cannotRead(t, rc);
+            }
+        }
+
+        private static short invokeShort(MethodHandle mh, Object record,
+                RecordHelper.Component rc) {
+            try {
+                return (short) mh.invokeExact(record);
+            } catch (Throwable t) {
+                throw cannotRead(t, rc);
+            }
+        }
+
+        private static byte invokeByte(MethodHandle mh, Object record, RecordHelper.Component rc) {
+            try {
+                return (byte) mh.invokeExact(record);
+            } catch (Throwable t) {
+                throw cannotRead(t, rc);
+            }
+        }
+
+        private static double invokeDouble(MethodHandle mh, Object record,
+                RecordHelper.Component rc) {
+            try {
+                return (double) mh.invokeExact(record);
+            } catch (Throwable t) {
+                throw cannotRead(t, rc);
+            }
+        }
+
+        private static float invokeFloat(MethodHandle mh, Object record,
+                RecordHelper.Component rc) {
+            try {
+                return (float) mh.invokeExact(record);
+            } catch (Throwable t) {
+                throw cannotRead(t, rc);
+            }
+        }
+
+        private static boolean invokeBoolean(MethodHandle mh, Object record,
+                RecordHelper.Component rc) {
+            try {
+                return (boolean) mh.invokeExact(record);
+            } catch (Throwable t) {
+                throw cannotRead(t, rc);
+            }
+        }
+
+        // reference types, the handle is (Object)Object
+        private static Object invoke(MethodHandle mh, Object record, RecordHelper.Component rc) {
+            try {
+                return (Object) mh.invokeExact(record);
+            } catch (Throwable t) {
+                throw cannotRead(t, rc);
+            }
+        }
+
+        private static RuntimeException cannotRead(Throwable t, RecordHelper.Component rc) {
+            if (t instanceof RuntimeException)
+                return (RuntimeException) t;
+            if (t instanceof Error)
+                throw (Error) t;
+            return new IllegalStateException("cannot read " + rc, t);
+        }
+    }
+
+}
@@ -0,0 +1,282 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil;
+
+import java.math.BigDecimal;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A complete ResultSet, stored column by column.
+ * Numeric columns are primitive arrays (INTEGER: int[], LONG: long[], FLOAT/DOUBLE: double[],
+ * BOOLEAN: boolean[]), all other columns are typed arrays (String[], BigDecimal[], ...).
+ * Nulls are marked in a bitmap per column, the value in a primitive array is 0/false then.
+ * Arrays may be longer than getRowCount(), only the first getRowCount() elements are valid.
+ * It's also the input of executeDMLBatch: each row is bound column by column, straight from the
+ * arrays (no Object[] and no boxing per row).
+ *   long[] nulls = ColumnBatch.newNullBitmap(n);
+ *   ColumnBatch.setNull(nulls, 17);
+ *   ColumnBatch batch = ColumnBatch.builder(n).addLongs("id", ids)
+ *           .addDoubles("v", values, nulls).build();
+ *   sql.executeDMLBatch("insert into metric(id,v)values(?,?)", batch);
+ */
+public class ColumnBatch {
+
+    private final int rowCount;
+    private final String[] columnNames;
+    private final ColumnType[] columnTypes;
+    private final Object[] columns;
+    private final long[][] nullBitmaps;
+    private final ColumnIndex columnIndex;
+
+    public ColumnBatch(int rowCount, String[] columnNames, ColumnType[] columnTypes,
+            Object[] columns, long[][] nullBitmaps) {
+        if (columnNames.length != columnTypes.length || columnNames.length != columns.length
+                || columnNames.length != nullBitmaps.length)
+            throw new IllegalArgumentException(
+                    "columnNames, columnTypes, columns and nullBitmaps must have the same .length");
+        this.rowCount = rowCount;
+        this.columnNames = columnNames;
+        this.columnTypes = columnTypes;
+        this.columns = columns;
+        this.nullBitmaps = nullBitmaps;
+        columnIndex = new ColumnIndex(columnNames);
+    }
+
+    public static Builder builder(int rowCount) {
+        return new Builder(rowCount);
+    }
+
+    // a bitmap for rowCount rows without nulls
+    public static long[] newNullBitmap(int rowCount) {
+        return new long[(rowCount + 63) >>> 6];
+    }
+
+    public static void setNull(long[] nullBitmap, int row) {
+        nullBitmap[row >>> 6] |= 1L << row;
+    }
+
+    // columns in bind order. The arrays are not copied. Object arrays (String[], ...) don't need a
+    // null bitmap, a null element is null.
+    public static final class Builder {
+        private final int rowCount;
+        private final List<String> names = new ArrayList<>();
+        private final List<ColumnType> types = new ArrayList<>();
+        private final List<Object> columns = new ArrayList<>();
+        private final List<long[]> nullBitmaps = new ArrayList<>();
+
+        private Builder(int rowCount) {
+            if (rowCount < 0)
+                throw new IllegalArgumentException("rowCount must be >=0");
+            this.rowCount = rowCount;
+        }
+
+        public Builder addInts(String name, int[] values) {
+            return add(name, ColumnType.INTEGER, values, values.length, null);
+        }
+
+        public Builder addInts(String name, int[] values, long[] nullBitmap) {
+            return add(name, ColumnType.INTEGER, values, values.length, nullBitmap);
+        }
+
+        public Builder addLongs(String name, long[] values) {
+            return add(name, ColumnType.LONG, values, values.length, null);
+        }
+
+        public Builder addLongs(String name, long[] values, long[] nullBitmap) {
+            return add(name, ColumnType.LONG, values, values.length, nullBitmap);
+        }
+
+        public Builder addDoubles(String name, double[] values) {
+            return add(name, ColumnType.DOUBLE, values, values.length, null);
+        }
+
+        public Builder addDoubles(String name, double[] values, long[] nullBitmap) {
+            return add(name, ColumnType.DOUBLE, values, values.length, nullBitmap);
+        }
+
+        public Builder addBooleans(String name, boolean[] values) {
+            return add(name, ColumnType.BOOLEAN, values, values.length, null);
+        }
+
+        public Builder addBooleans(String name, boolean[] values, long[] nullBitmap) {
+            return add(name, ColumnType.BOOLEAN, values, values.length, nullBitmap);
+        }
+
+        public Builder addStrings(String name, String[] values) {
+            return add(name, ColumnType.STRING, values, values.length, null);
+        }
+
+        public Builder addBigDecimals(String name, BigDecimal[] values) {
+            return add(name, ColumnType.BIGDECIMAL, values, values.length, null);
+        }
+
+        public Builder addDates(String name, java.sql.Date[] values) {
+            return add(name, ColumnType.DATE, values, values.length, null);
+        }
+
+        public Builder addTimes(String name, Time[] values) {
+            return add(name, ColumnType.TIME, values, values.length, null);
+        }
+
+        public Builder addTimestamps(String name, Timestamp[] values) {
+            return add(name, ColumnType.TIMESTAMP, values, values.length, null);
+        }
+
+        public Builder addRaws(String name, byte[][] values) {
+            return add(name, ColumnType.BYTES, values, values.length, null);
+        }
+
+        private Builder add(String name, ColumnType type, Object values, int length,
+                long[] nullBitmap) {
+            if (length < rowCount)
+                throw new IllegalArgumentException("column " + name + " has " + length
+                        + " values, rowCount is " + rowCount);
+            if (nullBitmap != null && nullBitmap.length < (rowCount + 63) >>> 6)
+                throw new IllegalArgumentException(
+                        "nullBitmap of column " + name + " is too short for " + rowCount + " rows");
+            names.add(name);
+            types.add(type);
+            columns.add(values);
+            nullBitmaps.add(nullBitmap);
+            return this;
+        }
+
+        public ColumnBatch build() {
+            return new ColumnBatch(rowCount, names.toArray(new String[0]),
+                    types.toArray(new ColumnType[0]), columns.toArray(),
+                    nullBitmaps.toArray(new long[0][]));
+        }
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    public String getColumnName(int col) {
+        return columnNames[col];
+    }
+
+    public int getColumnIndex(String column) {
+        return columnIndex.get(column);
+    }
+
+    public int getColumnIndex(ColumnRef column) {
+        return column.resolve(columnIndex);
+    }
+
+    public ColumnType getColumnType(int col) {
+        return columnTypes[col];
+    }
+
+    // bit (row%64) of word (row/64) is set, if the value is null. null means: column has no nulls
+    public long[] getNullBitmap(int col) {
+        return nullBitmaps[col];
+    }
+
+    public boolean isNull(int col, int row) {
+        if (row < 0 || row >= rowCount)
+            throw new IndexOutOfBoundsException("row " + row + ", rowCount " + rowCount);
+        long[] nulls = nullBitmaps[col];
+        return nulls != null && (nulls[row >>> 6] & (1L << row)) != 0;
+    }
+
+    public int[] getInts(int col) {
+        return (int[]) column(col, ColumnType.INTEGER);
+    }
+
+    public long[] getLongs(int col) {
+        return (long[]) column(col, ColumnType.LONG);
+    }
+
+    public double[] getDoubles(int col) {
+        if (columnTypes[col] == ColumnType.FLOAT)
+            return (double[]) columns[col];
+        return (double[]) column(col, ColumnType.DOUBLE);
+    }
+
+    public boolean[] getBooleans(int col) {
+        return (boolean[]) column(col, ColumnType.BOOLEAN);
+    }
+
+    public String[] getStrings(int col) {
+        return (String[]) column(col, ColumnType.STRING);
+    }
+
+    public BigDecimal[] getBigDecimals(int col) {
+        return (BigDecimal[]) column(col, ColumnType.BIGDECIMAL);
+    }
+
+    public java.sql.Date[] getDates(int col) {
+        return (java.sql.Date[]) column(col, ColumnType.DATE);
+    }
+
+    public Time[] getTimes(int col) {
+        return (Time[]) column(col, ColumnType.TIME);
+    }
+
+    public Timestamp[] getTimestamps(int col) {
+        return (Timestamp[]) column(col, ColumnType.TIMESTAMP);
+    }
+
+    public byte[][] getRaws(int col) {
+        return (byte[][]) column(col, ColumnType.BYTES);
+    }
+
+    public int[] getInts(String column) {
+        return getInts(getColumnIndex(column));
+    }
+
+    public long[] getLongs(String column) {
+        return getLongs(getColumnIndex(column));
+    }
+
+    public double[] getDoubles(String column) {
+        return getDoubles(getColumnIndex(column));
+    }
+
+    public boolean[] getBooleans(String column) {
+        return getBooleans(getColumnIndex(column));
+    }
+
+    public String[] getStrings(String column) {
+        return getStrings(getColumnIndex(column));
+    }
+
+    public BigDecimal[] getBigDecimals(String column) {
+        return getBigDecimals(getColumnIndex(column));
+    }
+
+    public java.sql.Date[] getDates(String column) {
+        return getDates(getColumnIndex(column));
+    }
+
+    public Time[] getTimes(String column) {
+        return getTimes(getColumnIndex(column));
+    }
+
+    public Timestamp[] getTimestamps(String column) {
+        return getTimestamps(getColumnIndex(column));
+    }
+
+    public byte[][] getRaws(String column) {
+        return getRaws(getColumnIndex(column));
+    }
+
+    private Object column(int col, ColumnType expected) {
+        if (columnTypes[col] != expected)
+            throw new IllegalArgumentException("column #" + col + " (" + columnNames[col]
+                    + ") is of type " + columnTypes[col] + ", not " + expected);
+        return columns[col];
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil;
+
+/**
+ * Immutable, case insensitive map column name -> 0-based column index, shared by all rows of one
+ * result. Open addressing with precomputed hashes, a lookup doesn't lock and doesn't allocate.
+ * If a name is used more than once (ignoring case), the first column wins (like
+ * ResultSet.findColumn).
+ */
+public final class ColumnIndex {
+
+    private final String[] names;
+    // hash table, slot is empty if positions[slot]<0
+    private final int[] hashes;
+    private final int[] positions;
+    private final int mask;
+
+    public ColumnIndex(String[] names) {
+        this.names = names.clone();
+        int cap = 4;
+        while (cap < names.length * 2)
+            cap <<= 1;
+        mask = cap - 1;
+        hashes = new int[cap];
+        positions = new int[cap];
+        for (int i = 0; i < cap; i++)
+            positions[i] = -1;
+        for (int n = 0; n < names.length; n++) {
+            if (names[n] == null)
+                continue;
+            int h = hash(names[n]);
+            if (find(names[n], h) < 0) {
+                int slot = h & mask;
+                while (positions[slot] >= 0)
+                    slot = (slot + 1) & mask;
+                hashes[slot] = h;
+                positions[slot] = n;
+            }
+        }
+    }
+
+    // case insensitive hash, same folding as String.equalsIgnoreCase
+    static int hash(String name) {
+        int h = 0;
+        for (int i = 0; i < name.length(); i++)
+            h = 31 * h + Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+        return h ^ (h >>> 16);
+    }
+
+    int find(String name, int hash) {
+        int slot = hash & mask;
+        int pos;
+        while ((pos = positions[slot]) >= 0) {
+            if (hashes[slot] == hash && names[pos].equalsIgnoreCase(name))
+                return pos;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String getName(int idx) {
+        return names[idx];
+    }
+
+    // -1 if there is no such column
+    public int indexOf(String name) {
+        return find(name, hash(name));
+    }
+
+    public int get(String name) {
+        int pos = indexOf(name);
+        if (pos < 0)
+            throw new IllegalArgumentException("unknown column: " + name);
+        return pos;
+    }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil;
+
+/**
+ * A column name, resolved once and reused for all rows of a result:
+ *   ColumnRef id = ColumnRef.of("ID");
+ *   for (Row row : rows) sum += row.getLong(id);
+ * The position is remembered per ColumnIndex, so the same ColumnRef can be used for different
+ * results, it's resolved again only if the result changes.
+ */
+public final class ColumnRef {
+
+    private final String name;
+    private final int hash;
+    private Resolved resolved;
+
+    private static final class Resolved {
+        final ColumnIndex index;
+        final int position;
+
+        Resolved(ColumnIndex index, int position) {
+            this.index = index;
+            this.position = position;
+        }
+    }
+
+    private ColumnRef(String name) {
+        this.name = name;
+        this.hash = ColumnIndex.hash(name);
+    }
+
+    public static ColumnRef of(String name) {
+        if (name == null)
+            throw new IllegalArgumentException("name must not be null");
+        return new ColumnRef(name);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int resolve(ColumnIndex index) {
+        Resolved r = resolved;
+        if (r != null && r.index == index)
+            return r.position;
+        int pos = index.find(name, hash);
+        if (pos < 0)
+            throw new IllegalArgumentException("unknown column: " + name);
+        resolved = new Resolved(index, pos);
+        return pos;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
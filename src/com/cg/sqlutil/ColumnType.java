@@ -0,0 +1,12 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil;
+
+// the java representation of a selected column. The mapping from java.sql.Types (and some
+// product specific types) is done once per column, not per value.
+public enum ColumnType {
+    STRING, INTEGER, LONG, BIGDECIMAL, FLOAT, DOUBLE, DATE, TIME, TIMESTAMP, BOOLEAN, BYTES
+}
@@ -0,0 +1,56 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+
+// executes single DML statements of many threads in shared transactions (group commit). submit()
+// only queues the statement, a thread with its own SQLUtil (and connection, autocommit off) takes
+// the queued statements for up to maxDelayMicros after the first one or until maxStatements are
+// collected, executes them (one executeDMLBatch per sql text and bind types) and commits once.
+// So n concurrent writers cost one commit (one fsync of the database) instead of n.
+//   GroupCommitExecutor gc = SQLUtilFactory.createGroupCommitExecutor(ownSql, 200, 100);
+//   int rows = gc.submit("update account set balance=balance+? where id=?", amount, id).get();
+// The future of a statement completes after the commit with its affected rows
+// (Statement.SUCCESS_NO_INFO if the driver doesn't report them), or exceptionally with its own
+// SQLException: a failing statement is isolated (BatchOptions.ErrorPolicy.ISOLATE), the others
+// of the transaction are committed. If the commit fails, all of them fail.
+// Statements of a transaction are not executed in submit order (grouped like
+// UnitOfWork.Ordering.BY_FIRST_USE), a caller that depends on an earlier statement waits for it.
+// Thread safe. Don't call get() in dependent stages: non-async stages run in the executor thread.
+// Each transaction is an AuditRecord (AUDIT_SQL) of dedicatedSql.getAudit(): the duration of
+// execution and commit, the affected rows, and as bind values the number of statements and the
+// longest wait in the queue (µs).
+public interface GroupCommitExecutor extends AutoCloseable {
+
+    String AUDIT_SQL = "-- group commit";
+
+    // values must not be changed after submit()
+    CompletableFuture<Integer> submit(String dmlStmt, Object... bindVariables);
+
+    CompletableFuture<Integer> submit(String dmlStmt, Object[] bindVariables, int[] bindTypes);
+
+    // statements waiting in the queue
+    int getQueuedCount();
+
+    // statements that were committed
+    long getExecutedCount();
+
+    long getFailedCount();
+
+    long getTransactionCount();
+
+    // from submit() until the future completes, of all executed and failed statements
+    long getAvgLatencyMicros();
+
+    long getMaxLatencyMicros();
+
+    // executes the queued statements, stops the thread and closes the connection of the executor.
+    // Waits also if the calling thread is interrupted, the interrupt flag is restored at the end.
+    @Override
+    void close() throws SQLException;
+}
@@ -0,0 +1,363 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads rows with one DML statement over several connections in parallel. The rows are split
+ * into one partition per SQLUtilInterface (round-robin, or by the hash of a column, so equal keys
+ * go to the same connection). Each partition has its own thread, executes the rows with a
+ * BatchWriter and commits once at the end: a partition is loaded completely or not at all, the
+ * other partitions are not affected by its errors.
+ *   ParallelLoader.Result r = new ParallelLoader(sqls, insert, types)
+ *           .partitionByHash(0).load(rows);
+ *   r.throwIfFailed();
+ * The calling thread reads the rows and waits if a partition is behind (bounded queues). If
+ * reading fails (the iterator throws, the thread is interrupted), all partitions roll back and
+ * load() throws: nothing of an incomplete source is committed.
+ */
+public final class ParallelLoader {
+
+    // called from the partition threads after every batch, sums of all partitions
+    @FunctionalInterface
+    public interface Progress {
+        void progress(long executedRows, long failedRows);
+    }
+
+    @FunctionalInterface
+    public interface SQLUtilSupplier {
+        SQLUtilInterface create() throws SQLException;
+    }
+
+    public static final class PartitionError {
+        private final int partition;
+        private final long rows;
+        private final Exception error;
+
+        PartitionError(int partition, long rows, Exception error) {
+            this.partition = partition;
+            this.rows = rows;
+            this.error = error;
+        }
+
+        public int getPartition() {
+            return partition;
+        }
+
+        // rows of the partition, all rolled back
+        public long getRows() {
+            return rows;
+        }
+
+        public Exception getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return "partition " + partition + " (" + rows + " rows): " + error;
+        }
+    }
+
+    public static final class Result {
+        private final long rows, loadedRows, failedRows, elapsedMs;
+        private final List<PartitionError> errors;
+
+        Result(long rows, long loadedRows, long failedRows, long elapsedMs,
+                List<PartitionError> errors) {
+            this.rows = rows;
+            this.loadedRows = loadedRows;
+            this.failedRows = failedRows;
+            this.elapsedMs = elapsedMs;
+            this.errors = Collections.unmodifiableList(errors);
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        // committed rows
+        public long getLoadedRows() {
+            return loadedRows;
+        }
+
+        public long getFailedRows() {
+            return failedRows;
+        }
+
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+
+        public List<PartitionError> getErrors() {
+            return errors;
+        }
+
+        public boolean isSuccess() {
+            return errors.isEmpty();
+        }
+
+        // the first error, the others are suppressed exceptions
+        public void throwIfFailed() throws SQLException {
+            if (errors.isEmpty())
+                return;
+            SQLException sqle = new SQLException(errors.size() + " of the partitions failed, "
+                    + failedRows + " rows not loaded", errors.get(0).getError());
+            for (int i = 1; i < errors.size(); i++)
+                sqle.addSuppressed(errors.get(i).getError());
+            throw sqle;
+        }
+
+        @Override
+        public String toString() {
+            return "ParallelLoader.Result(rows=" + rows + ", loaded=" + loadedRows + ", failed="
+                    + failedRows + ", " + elapsedMs + "ms, errors=" + errors.size() + ")";
+        }
+    }
+
+    private static final Object[] END = new Object[0];
+    // the source was not read completely, the partitions roll back
+    private static final Object[] ABORT = new Object[0];
+
+    private final List<SQLUtilInterface> sqls;
+    private final SQLUtilSupplier factory;
+    private final int partitions;
+    private final String dmlStmt;
+    private final int[] bindTypes;
+    private int hashColumn = -1;
+    private BatchOptions options = BatchOptions.rows(SQLUtilInterface.BULK_BATCH_ROWS);
+    private int queueCapacity = 10000;
+    private Progress progress;
+
+    // one partition per SQLUtilInterface, they must not be used by others while loading
+    public ParallelLoader(List<SQLUtilInterface> sqls, String dmlStmt, int[] bindTypes) {
+        if (sqls.isEmpty())
+            throw new IllegalArgumentException("at least one SQLUtilInterface is needed");
+        this.sqls = new ArrayList<>(sqls);
+        this.factory = null;
+        this.partitions = sqls.size();
+        this.dmlStmt = dmlStmt;
+        this.bindTypes = bindTypes;
+    }
+
+    // partitions SQLUtilInterfaces are created by factory for each load() and closed afterwards
+    public ParallelLoader(int partitions, SQLUtilSupplier factory, String dmlStmt,
+            int[] bindTypes) {
+        if (partitions < 1)
+            throw new IllegalArgumentException("partitions must be >0");
+        this.sqls = null;
+        this.factory = factory;
+        this.partitions = partitions;
+        this.dmlStmt = dmlStmt;
+        this.bindTypes = bindTypes;
+    }
+
+    // rows with equal values in column (0-based) go to the same partition
+    public ParallelLoader partitionByHash(int column) {
+        hashColumn = column;
+        return this;
+    }
+
+    public ParallelLoader partitionRoundRobin() {
+        hashColumn = -1;
+        return this;
+    }
+
+    // batches of each partition (rows, bytes), commitEvery is ignored: one commit at the end
+    public ParallelLoader options(BatchOptions options) {
+        this.options = options.commitEvery(0);
+        return this;
+    }
+
+    // rows waiting per partition
+    public ParallelLoader queueCapacity(int capacity) {
+        this.queueCapacity = capacity;
+        return this;
+    }
+
+    public ParallelLoader progress(Progress progress) {
+        this.progress = progress;
+        return this;
+    }
+
+    public Result load(Iterable<Object[]> rows) throws SQLException, InterruptedException {
+        return load(rows.iterator());
+    }
+
+    public Result load(Iterator<Object[]> rows) throws SQLException, InterruptedException {
+        long t0 = System.currentTimeMillis();
+        List<SQLUtilInterface> targets = sqls != null ? sqls : create();
+        AtomicLong executed = new AtomicLong(), failed = new AtomicLong();
+        List<PartitionError> errors = Collections.synchronizedList(new ArrayList<>());
+        List<Partition> parts = new ArrayList<>(partitions);
+        long count = 0;
+        boolean complete = false;
+        try {
+            for (int p = 0; p < partitions; p++) {
+                Partition part = new Partition(p, targets.get(p), executed, failed, errors);
+                parts.add(part);
+                part.thread.start();
+            }
+            int next = 0;
+            while (rows.hasNext()) {
+                Object[] row = rows.next();
+                int p;
+                if (hashColumn >= 0)
+                    p = Math.floorMod(Objects.hashCode(row[hashColumn]), partitions);
+                else {
+                    p = next;
+                    next = next + 1 == partitions ? 0 : next + 1;
+                }
+                parts.get(p).queue.put(row);
+                count++;
+            }
+            complete = true;
+        } finally {
+            // also when interrupted, the partitions must end (and roll back) before we return
+            boolean interrupted = Thread.interrupted();
+            for (Partition part : parts)
+                while (true)
+                    try {
+                        part.queue.put(complete ? END : ABORT);
+                        break;
+                    } catch (InterruptedException ie) {
+                        interrupted = true;
+                    }
+            for (Partition part : parts)
+                while (true)
+                    try {
+                        part.thread.join();
+                        break;
+                    } catch (InterruptedException ie) {
+                        interrupted = true;
+                    }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+            if (sqls == null)
+                for (SQLUtilInterface sql : targets)
+                    sql.closeConnection();
+        }
+        List<PartitionError> sorted = new ArrayList<>(errors);
+        sorted.sort((a, b) -> Integer.compare(a.partition, b.partition));
+        return new Result(count, executed.get(), failed.get(), System.currentTimeMillis() - t0,
+                sorted);
+    }
+
+    private List<SQLUtilInterface> create() throws SQLException {
+        List<SQLUtilInterface> created = new ArrayList<>(partitions);
+        try {
+            for (int p = 0; p < partitions; p++)
+                created.add(factory.create());
+        } catch (SQLException | RuntimeException e) {
+            for (SQLUtilInterface sql : created)
+                sql.closeConnection();
+            throw e;
+        }
+        return created;
+    }
+
+    private final class Partition {
+        final int no;
+        final SQLUtilInterface sql;
+        final ArrayBlockingQueue<Object[]> queue = new ArrayBlockingQueue<>(queueCapacity);
+        final Thread thread;
+        final AtomicLong executed, failed;
+        final List<PartitionError> errors;
+        // executed in the current transaction
+        long uncommitted;
+        // END or ABORT was taken
+        boolean ended;
+
+        Partition(int no, SQLUtilInterface sql, AtomicLong executed, AtomicLong failed,
+                List<PartitionError> errors) {
+            this.no = no;
+            this.sql = sql;
+            this.executed = executed;
+            this.failed = failed;
+            this.errors = errors;
+            thread = new Thread(this::run, "sqlutil-loader-" + no);
+        }
+
+        private void run() {
+            long rows = 0;
+            boolean ok = false;
+            Exception error = null;
+            Boolean autoCommit = null;
+            try {
+                autoCommit = sql.getConnection().getAutoCommit();
+                sql.getConnection().setAutoCommit(false);
+                BatchOptions.Listener l = options.getListener();
+                BatchOptions opts = options.listener((batchNo, firstRow, affected) -> {
+                    uncommitted += affected.length;
+                    executed.addAndGet(affected.length);
+                    if (l != null)
+                        l.executed(batchNo, firstRow, affected);
+                    if (progress != null)
+                        progress.progress(executed.get(), failed.get());
+                });
+                Object[] row;
+                try (BatchWriter w = sql.createBatchWriter(dmlStmt, bindTypes, opts)) {
+                    for (row = take(); !ended; row = take()) {
+                        rows++;
+                        w.add(row);
+                    }
+                }
+                if (row == ABORT)
+                    throw new SQLException("load aborted, the rows were not read completely");
+                sql.commit();
+                ok = true;
+            } catch (SQLException | RuntimeException | InterruptedException e) {
+                error = e;
+            } finally {
+                if (!ok) {
+                    sql.rollbackSilent();
+                    executed.addAndGet(-uncommitted);
+                    // the rest of the partition is not loaded
+                    rows += drain();
+                    failed.addAndGet(rows);
+                    errors.add(new PartitionError(no, rows, error));
+                    if (progress != null)
+                        progress.progress(executed.get(), failed.get());
+                }
+                if (autoCommit != null)
+                    try {
+                        sql.getConnection().setAutoCommit(autoCommit);
+                    } catch (SQLException ignore) {
+                    }
+            }
+        }
+
+        private Object[] take() throws InterruptedException {
+            Object[] row = queue.take();
+            ended = row == END || row == ABORT;
+            return row;
+        }
+
+        // takes all rows until END or ABORT, the producer must not block on a failed partition
+        private long drain() {
+            long n = 0;
+            try {
+                while (!ended) {
+                    take();
+                    if (!ended)
+                        n++;
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            return n;
+        }
+    }
+
+}
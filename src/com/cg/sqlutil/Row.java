@@ -19,11 +19,43 @@ import com.cg.sqlutil.impl.ConversionHelper;
 public class Row {
 
     private Object[] data;
-    private Hashtable<String, Integer> columnNames;
+    private ColumnIndex columnIndex;
 
+    public Row(Object[] data, final ColumnIndex columnIndex) {
+        this.data = data;
+        this.columnIndex = columnIndex;
+    }
+
+    // for rows that keep their values somewhere else (see RowBlock), get(int) and getData() must be
+    // overridden
+    protected Row(final ColumnIndex columnIndex) {
+        this.columnIndex = columnIndex;
+    }
+
+    // creates a new ColumnIndex for this row, use Row(Object[], ColumnIndex) to share it
     public Row(Object[] data, final Hashtable<String, Integer> columnNames) {
         this.data = data;
-        this.columnNames = columnNames;
+        if (columnNames != null) {
+            String[] names = new String[data.length];
+            columnNames.forEach((name, idx) -> names[idx] = name);
+            this.columnIndex = new ColumnIndex(names);
+        }
+    }
+
+    public ColumnIndex getColumnIndex() {
+        return columnIndex;
+    }
+
+    private int index(String column) {
+        if (columnIndex == null)
+            throw new IllegalStateException("row has no column names, cannot get " + column);
+        return columnIndex.get(column);
+    }
+
+    private int index(ColumnRef column) {
+        if (columnIndex == null)
+            throw new IllegalStateException("row has no column names, cannot get " + column);
+        return column.resolve(columnIndex);
     }
 
     public Object[] getData() {
@@ -35,55 +67,87 @@ public class Row {
     }
 
     public Object get(String column) {
-        return get(columnNames.get(column));
+        return get(index(column));
+    }
+
+    public Object get(ColumnRef column) {
+        return get(index(column));
     }
 
     public Boolean getBoolean(int idx) {
-        return ConversionHelper.toBoolean(data[idx]);
+        return ConversionHelper.toBoolean(get(idx));
     }
 
     public Boolean getBoolean(String column) {
-        return getBoolean(columnNames.get(column));
+        return getBoolean(index(column));
+    }
+
+    public Boolean getBoolean(ColumnRef column) {
+        return getBoolean(index(column));
     }
 
     public Long getLong(int idx) {
-        return ConversionHelper.toLong(data[idx]);
+        return ConversionHelper.toLong(get(idx));
     }
 
     public Long getLong(String column) {
-        return getLong(columnNames.get(column));
+        return getLong(index(column));
+    }
+
+    public Long getLong(ColumnRef column) {
+        return getLong(index(column));
     }
 
     public Timestamp getTimestamp(int idx) {
-        return ConversionHelper.toTimestamp(data[idx]);
+        return ConversionHelper.toTimestamp(get(idx));
     }
 
     public Timestamp getTimestamp(String column) {
-        return getTimestamp(columnNames.get(column));
+        return getTimestamp(index(column));
+    }
+
+    public Timestamp getTimestamp(ColumnRef column) {
+        return getTimestamp(index(column));
     }
 
     public BigDecimal getBigDecimal(int idx) {
-        return ConversionHelper.toBigDecimal(data[idx]);
+        return ConversionHelper.toBigDecimal(get(idx));
     }
 
     public BigDecimal getBigDecimal(String column) {
-        return getBigDecimal(columnNames.get(column));
+        return getBigDecimal(index(column));
+    }
+
+    public BigDecimal getBigDecimal(ColumnRef column) {
+        return getBigDecimal(index(column));
     }
 
     public Double getDouble(int idx) {
-        return ConversionHelper.toDouble(data[idx]);
+        return ConversionHelper.toDouble(get(idx));
     }
 
     public Double geDouble(String column) {
-        return getDouble(columnNames.get(column));
+        return getDouble(index(column));
+    }
+
+    public Double getDouble(String column) {
+        return getDouble(index(column));
+    }
+
+    public Double getDouble(ColumnRef column) {
+        return getDouble(index(column));
     }
 
     public String getString(int idx) {
-        return ConversionHelper.toStr(data[idx]);
+        return ConversionHelper.toStr(get(idx));
     }
 
     public String getString(String column) {
-        return getString(columnNames.get(column));
+        return getString(index(column));
+    }
+
+    public String getString(ColumnRef column) {
+        return getString(index(column));
     }
 
     //public Hashtable<String, String> getI18nStrings(int idx) {
@@ -107,19 +171,23 @@ public class Row {
     //}
 
     public String getRaw(int idx) {
-        return ConversionHelper.toRaw(data[idx]);
+        return ConversionHelper.toRaw(get(idx));
     }
 
     public String getRaw(String column) {
-        return getString(columnNames.get(column));
+        return getString(index(column));
     }
 
     public Integer getInt(int idx) {
-        return ConversionHelper.toInteger(data[idx]);
+        return ConversionHelper.toInteger(get(idx));
     }
 
     public Integer getInt(String column) {
-        return getInt(columnNames.get(column));
+        return getInt(index(column));
+    }
+
+    public Integer getInt(ColumnRef column) {
+        return getInt(index(column));
     }
 
     public JsonObject getJson(int idx) {
@@ -133,7 +201,11 @@ public class Row {
     }
 
     public JsonObject getJson(String column) {
-        return getJson(columnNames.get(column));
+        return getJson(index(column));
+    }
+
+    public JsonObject getJson(ColumnRef column) {
+        return getJson(index(column));
     }
 
 }
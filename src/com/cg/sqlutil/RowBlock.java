@@ -0,0 +1,566 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A complete ResultSet in compact form, for big results that are kept in memory (e.g. reference
+ * tables). Instead of one Row, one Object[] and one wrapper per value, a RowBlock stores:
+ *   INTEGER: int[], LONG/DATE/TIME: long[] (millis), TIMESTAMP: long[] millis + int[] nanos,
+ *   FLOAT/DOUBLE: double[], BOOLEAN: boolean[],
+ *   STRING/BYTES/BIGDECIMAL: int[] offsets into one byte arena shared by all columns.
+ * Nulls are marked in a bitmap per column. getRow(int) returns a light Row view, values are
+ * created when they are read, so read the values you need and don't keep the views.
+ * Values have the same types as in Row[] returned by getRows().
+ */
+public final class RowBlock implements Iterable<Row> {
+
+    private final int rowCount;
+    private final ColumnIndex columnIndex;
+    private final ColumnType[] columnTypes;
+    // int[], long[], double[], boolean[] or int[] offsets into arena
+    private final Object[] columns;
+    // only for TIMESTAMP columns
+    private final int[][] nanos;
+    private final long[][] nullBitmaps;
+    private final byte[] arena;
+
+    private RowBlock(Builder b) {
+        rowCount = b.rowCount;
+        columnIndex = b.columnIndex;
+        columnTypes = b.columnTypes;
+        columns = b.columns;
+        nanos = b.nanos;
+        nullBitmaps = b.nullBitmaps;
+        arena = b.arena;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int size() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columnTypes.length;
+    }
+
+    public ColumnIndex getColumnIndex() {
+        return columnIndex;
+    }
+
+    public String getColumnName(int col) {
+        return columnIndex.getName(col);
+    }
+
+    public ColumnType getColumnType(int col) {
+        return columnTypes[col];
+    }
+
+    // bytes used by values, offsets and bitmaps (without object headers)
+    public long getByteSize() {
+        long bytes = arena.length;
+        for (int n = 0; n < columns.length; n++) {
+            Object c = columns[n];
+            if (c instanceof long[])
+                bytes += 8L * ((long[]) c).length;
+            else if (c instanceof double[])
+                bytes += 8L * ((double[]) c).length;
+            else if (c instanceof int[])
+                bytes += 4L * ((int[]) c).length;
+            else if (c instanceof boolean[])
+                bytes += ((boolean[]) c).length;
+            if (nanos[n] != null)
+                bytes += 4L * nanos[n].length;
+            if (nullBitmaps[n] != null)
+                bytes += 8L * nullBitmaps[n].length;
+        }
+        return bytes;
+    }
+
+    public boolean isNull(int row, int col) {
+        if (row < 0 || row >= rowCount)
+            throw new IndexOutOfBoundsException("row " + row + ", rowCount " + rowCount);
+        long[] nulls = nullBitmaps[col];
+        return nulls != null && (nulls[row >>> 6] & (1L << row)) != 0;
+    }
+
+    public Object get(int row, int col) {
+        if (isNull(row, col))
+            return null;
+        switch (columnTypes[col]) {
+        case INTEGER:
+            return ((int[]) columns[col])[row];
+        case LONG:
+            return ((long[]) columns[col])[row];
+        case FLOAT:
+            return (float) ((double[]) columns[col])[row];
+        case DOUBLE:
+            return ((double[]) columns[col])[row];
+        case BOOLEAN:
+            return ((boolean[]) columns[col])[row];
+        case DATE:
+            return new java.sql.Date(((long[]) columns[col])[row]);
+        case TIME:
+            return new Time(((long[]) columns[col])[row]);
+        case TIMESTAMP:
+            Timestamp ts = new Timestamp(((long[]) columns[col])[row]);
+            ts.setNanos(nanos[col][row]);
+            return ts;
+        case STRING:
+            return readString(((int[]) columns[col])[row]);
+        case BYTES:
+            return readBytes(((int[]) columns[col])[row]);
+        case BIGDECIMAL:
+            return readBigDecimal(((int[]) columns[col])[row]);
+        default:
+            throw new IllegalStateException("unknown columnType " + columnTypes[col]);
+        }
+    }
+
+    public Object get(int row, String column) {
+        return get(row, columnIndex.get(column));
+    }
+
+    public Object get(int row, ColumnRef column) {
+        return get(row, column.resolve(columnIndex));
+    }
+
+    // primitive access without wrapper objects, null values are returned as 0/false (check isNull)
+    public int getIntValue(int row, int col) {
+        check(row);
+        switch (columnTypes[col]) {
+        case INTEGER:
+            return ((int[]) columns[col])[row];
+        case LONG:
+            return (int) ((long[]) columns[col])[row];
+        default:
+            throw wrongType(col, "int");
+        }
+    }
+
+    public long getLongValue(int row, int col) {
+        check(row);
+        switch (columnTypes[col]) {
+        case INTEGER:
+            return ((int[]) columns[col])[row];
+        case LONG:
+            return ((long[]) columns[col])[row];
+        default:
+            throw wrongType(col, "long");
+        }
+    }
+
+    public double getDoubleValue(int row, int col) {
+        check(row);
+        switch (columnTypes[col]) {
+        case INTEGER:
+            return ((int[]) columns[col])[row];
+        case LONG:
+            return ((long[]) columns[col])[row];
+        case FLOAT:
+        case DOUBLE:
+            return ((double[]) columns[col])[row];
+        default:
+            throw wrongType(col, "double");
+        }
+    }
+
+    public boolean getBooleanValue(int row, int col) {
+        check(row);
+        if (columnTypes[col] != ColumnType.BOOLEAN)
+            throw wrongType(col, "boolean");
+        return ((boolean[]) columns[col])[row];
+    }
+
+    public Row getRow(int row) {
+        check(row);
+        return new BlockRow(this, row);
+    }
+
+    @Override
+    public Iterator<Row> iterator() {
+        return new Iterator<Row>() {
+            private int row;
+
+            @Override
+            public boolean hasNext() {
+                return row < rowCount;
+            }
+
+            @Override
+            public Row next() {
+                if (row >= rowCount)
+                    throw new NoSuchElementException();
+                return new BlockRow(RowBlock.this, row++);
+            }
+        };
+    }
+
+    // copies all rows to Row objects, like getRows()
+    public Row[] toRows() {
+        Row[] rows = new Row[rowCount];
+        for (int r = 0; r < rowCount; r++)
+            rows[r] = new Row(rowData(r), columnIndex);
+        return rows;
+    }
+
+    private Object[] rowData(int row) {
+        Object[] data = new Object[columnTypes.length];
+        for (int n = 0; n < data.length; n++)
+            data[n] = get(row, n);
+        return data;
+    }
+
+    private void check(int row) {
+        if (row < 0 || row >= rowCount)
+            throw new IndexOutOfBoundsException("row " + row + ", rowCount " + rowCount);
+    }
+
+    private IllegalArgumentException wrongType(int col, String javaType) {
+        return new IllegalArgumentException("column #" + col + " (" + columnIndex.getName(col)
+                + ") is of type " + columnTypes[col] + ", cannot read as " + javaType);
+    }
+
+    // arena entries: varint length + bytes, BIGDECIMAL: zigzag varint scale + varint length + bytes
+    private int readVarInt(int[] pos) {
+        int p = pos[0], v = 0, shift = 0;
+        byte b;
+        do {
+            b = arena[p++];
+            v |= (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        pos[0] = p;
+        return v;
+    }
+
+    private String readString(int offset) {
+        int[] pos = { offset };
+        int len = readVarInt(pos);
+        return new String(arena, pos[0], len, StandardCharsets.UTF_8);
+    }
+
+    private byte[] readBytes(int offset) {
+        int[] pos = { offset };
+        int len = readVarInt(pos);
+        return Arrays.copyOfRange(arena, pos[0], pos[0] + len);
+    }
+
+    private BigDecimal readBigDecimal(int offset) {
+        int[] pos = { offset };
+        int zz = readVarInt(pos);
+        int scale = (zz >>> 1) ^ -(zz & 1);
+        int len = readVarInt(pos);
+        int p = pos[0];
+        if (len <= 8) {
+            // two's complement, big endian, sign extended
+            long unscaled = arena[p];
+            for (int i = 1; i < len; i++)
+                unscaled = (unscaled << 8) | (arena[p + i] & 0xff);
+            return BigDecimal.valueOf(unscaled, scale);
+        }
+        return new BigDecimal(new BigInteger(Arrays.copyOfRange(arena, p, p + len)), scale);
+    }
+
+    // a row of a RowBlock, values are read from the block on every access
+    private static final class BlockRow extends Row {
+        private final RowBlock block;
+        private final int row;
+
+        BlockRow(RowBlock block, int row) {
+            super(block.columnIndex);
+            this.block = block;
+            this.row = row;
+        }
+
+        @Override
+        public Object get(int idx) {
+            return block.get(row, idx);
+        }
+
+        @Override
+        public Object[] getData() {
+            return block.rowData(row);
+        }
+    }
+
+    /**
+     * Appends rows value by value: set every column of a row (setNull for nulls), then endRow().
+     * Columns that are not set in a row are null.
+     */
+    public static final class Builder {
+
+        private static final int MAX_ARENA = Integer.MAX_VALUE - 8;
+
+        private final ColumnIndex columnIndex;
+        private final ColumnType[] columnTypes;
+        private final Object[] columns;
+        private final int[][] nanos;
+        private final long[][] nullBitmaps;
+        private final boolean[] set;
+        private byte[] arena;
+        private int arenaSize;
+        private int capacity;
+        private int rowCount;
+
+        public Builder(String[] columnNames, ColumnType[] columnTypes, int initialCapacity) {
+            this(new ColumnIndex(columnNames), columnTypes, initialCapacity);
+        }
+
+        public Builder(ColumnIndex columnIndex, ColumnType[] columnTypes, int initialCapacity) {
+            if (columnIndex.size() != columnTypes.length)
+                throw new IllegalArgumentException(
+                        "columnIndex and columnTypes must have the same size");
+            this.columnIndex = columnIndex;
+            this.columnTypes = columnTypes.clone();
+            capacity = Math.max(16, initialCapacity);
+            int colCount = columnTypes.length;
+            columns = new Object[colCount];
+            nanos = new int[colCount][];
+            nullBitmaps = new long[colCount][];
+            set = new boolean[colCount];
+            for (int n = 0; n < colCount; n++) {
+                if (columnTypes[n] == null)
+                    throw new IllegalArgumentException("columnTypes[" + n + "] is null");
+                switch (columnTypes[n]) {
+                case INTEGER:
+                case STRING:
+                case BYTES:
+                case BIGDECIMAL:
+                    columns[n] = new int[capacity];
+                    break;
+                case LONG:
+                case DATE:
+                case TIME:
+                    columns[n] = new long[capacity];
+                    break;
+                case TIMESTAMP:
+                    columns[n] = new long[capacity];
+                    nanos[n] = new int[capacity];
+                    break;
+                case FLOAT:
+                case DOUBLE:
+                    columns[n] = new double[capacity];
+                    break;
+                case BOOLEAN:
+                    columns[n] = new boolean[capacity];
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown columnType " + columnTypes[n]);
+                }
+            }
+            arena = new byte[Math.max(64, capacity * 8)];
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        public Builder setNull(int col) {
+            set[col] = true;
+            long[] nulls = nullBitmaps[col];
+            int word = rowCount >>> 6;
+            if (nulls == null)
+                nulls = nullBitmaps[col] = new long[(capacity + 63) >>> 6];
+            nulls[word] |= 1L << rowCount;
+            return this;
+        }
+
+        public Builder setInt(int col, int v) {
+            if (columnTypes[col] == ColumnType.LONG)
+                return setLong(col, v);
+            expect(col, ColumnType.INTEGER);
+            ((int[]) columns[col])[rowCount] = v;
+            return this;
+        }
+
+        public Builder setLong(int col, long v) {
+            expect(col, ColumnType.LONG);
+            ((long[]) columns[col])[rowCount] = v;
+            return this;
+        }
+
+        public Builder setDouble(int col, double v) {
+            if (columnTypes[col] != ColumnType.FLOAT)
+                expect(col, ColumnType.DOUBLE);
+            set[col] = true;
+            ((double[]) columns[col])[rowCount] = v;
+            return this;
+        }
+
+        public Builder setBoolean(int col, boolean v) {
+            expect(col, ColumnType.BOOLEAN);
+            ((boolean[]) columns[col])[rowCount] = v;
+            return this;
+        }
+
+        public Builder setDate(int col, java.util.Date v) {
+            if (v == null)
+                return setNull(col);
+            if (columnTypes[col] == ColumnType.TIMESTAMP)
+                return setTimestamp(col, new Timestamp(v.getTime()));
+            if (columnTypes[col] != ColumnType.TIME)
+                expect(col, ColumnType.DATE);
+            set[col] = true;
+            ((long[]) columns[col])[rowCount] = v.getTime();
+            return this;
+        }
+
+        public Builder setTimestamp(int col, Timestamp v) {
+            if (v == null)
+                return setNull(col);
+            expect(col, ColumnType.TIMESTAMP);
+            ((long[]) columns[col])[rowCount] = v.getTime();
+            nanos[col][rowCount] = v.getNanos();
+            return this;
+        }
+
+        public Builder setString(int col, String v) {
+            if (v == null)
+                return setNull(col);
+            expect(col, ColumnType.STRING);
+            int len = v.length();
+            ensureArena(5 + 3 * len);
+            ((int[]) columns[col])[rowCount] = arenaSize;
+            // ascii needs no encoder
+            boolean ascii = true;
+            for (int i = 0; i < len && ascii; i++)
+                ascii = v.charAt(i) < 0x80;
+            if (ascii) {
+                writeVarInt(len);
+                for (int i = 0; i < len; i++)
+                    arena[arenaSize++] = (byte) v.charAt(i);
+            } else {
+                byte[] utf8 = v.getBytes(StandardCharsets.UTF_8);
+                writeVarInt(utf8.length);
+                System.arraycopy(utf8, 0, arena, arenaSize, utf8.length);
+                arenaSize += utf8.length;
+            }
+            return this;
+        }
+
+        public Builder setBytes(int col, byte[] v) {
+            if (v == null)
+                return setNull(col);
+            expect(col, ColumnType.BYTES);
+            ensureArena(5 + v.length);
+            ((int[]) columns[col])[rowCount] = arenaSize;
+            writeVarInt(v.length);
+            System.arraycopy(v, 0, arena, arenaSize, v.length);
+            arenaSize += v.length;
+            return this;
+        }
+
+        public Builder setBigDecimal(int col, BigDecimal v) {
+            if (v == null)
+                return setNull(col);
+            expect(col, ColumnType.BIGDECIMAL);
+            int scale = v.scale();
+            BigInteger unscaled = v.unscaledValue();
+            int len = unscaled.bitLength() / 8 + 1;
+            ensureArena(10 + len);
+            ((int[]) columns[col])[rowCount] = arenaSize;
+            writeVarInt((scale << 1) ^ (scale >> 31));
+            writeVarInt(len);
+            if (len <= 8) {
+                long u = unscaled.longValue();
+                for (int i = len - 1; i >= 0; i--)
+                    arena[arenaSize++] = (byte) (u >> (8 * i));
+            } else {
+                byte[] b = unscaled.toByteArray();
+                System.arraycopy(b, 0, arena, arenaSize, b.length);
+                arenaSize += b.length;
+            }
+            return this;
+        }
+
+        public Builder endRow() {
+            for (int n = 0; n < set.length; n++) {
+                if (!set[n])
+                    setNull(n);
+                set[n] = false;
+            }
+            rowCount++;
+            if (rowCount == capacity)
+                grow();
+            return this;
+        }
+
+        // trims all arrays, the builder must not be used afterwards
+        public RowBlock build() {
+            for (int n = 0; n < columns.length; n++) {
+                columns[n] = trim(columns[n], rowCount);
+                if (nanos[n] != null)
+                    nanos[n] = Arrays.copyOf(nanos[n], rowCount);
+                if (nullBitmaps[n] != null)
+                    nullBitmaps[n] = Arrays.copyOf(nullBitmaps[n], (rowCount + 63) >>> 6);
+            }
+            arena = Arrays.copyOf(arena, arenaSize);
+            return new RowBlock(this);
+        }
+
+        private void expect(int col, ColumnType type) {
+            if (columnTypes[col] != type)
+                throw new IllegalArgumentException("column #" + col + " ("
+                        + columnIndex.getName(col) + ") is of type " + columnTypes[col]
+                        + ", not " + type);
+            set[col] = true;
+        }
+
+        private void grow() {
+            int newCapacity = capacity + (capacity >> 1);
+            for (int n = 0; n < columns.length; n++) {
+                columns[n] = trim(columns[n], newCapacity);
+                if (nanos[n] != null)
+                    nanos[n] = Arrays.copyOf(nanos[n], newCapacity);
+                if (nullBitmaps[n] != null)
+                    nullBitmaps[n] = Arrays.copyOf(nullBitmaps[n], (newCapacity + 63) >>> 6);
+            }
+            capacity = newCapacity;
+        }
+
+        private static Object trim(Object values, int length) {
+            if (values instanceof int[])
+                return Arrays.copyOf((int[]) values, length);
+            if (values instanceof long[])
+                return Arrays.copyOf((long[]) values, length);
+            if (values instanceof double[])
+                return Arrays.copyOf((double[]) values, length);
+            return Arrays.copyOf((boolean[]) values, length);
+        }
+
+        private void ensureArena(int bytes) {
+            if (arenaSize + (long) bytes <= arena.length)
+                return;
+            long needed = (long) arenaSize + bytes;
+            if (needed > MAX_ARENA)
+                throw new IllegalStateException("RowBlock arena is full (2GB), use stream() "
+                        + "or getChunks*() for results of this size");
+            long newSize = Math.max(needed, arena.length + (long) (arena.length >> 1));
+            arena = Arrays.copyOf(arena, (int) Math.min(newSize, MAX_ARENA));
+        }
+
+        private void writeVarInt(int v) {
+            while ((v & ~0x7f) != 0) {
+                arena[arenaSize++] = (byte) ((v & 0x7f) | 0x80);
+                v >>>= 7;
+            }
+            arena[arenaSize++] = (byte) v;
+        }
+    }
+
+}
@@ -0,0 +1,16 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil;
+
+import java.sql.SQLException;
+
+// callback for SQLUtilInterface.forEachRow. row is the same object for every call and only valid
+// during the call, use row.toRow() to keep a copy.
+@FunctionalInterface
+public interface RowHandler {
+
+    void handle(RowView row) throws SQLException;
+}
@@ -0,0 +1,17 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil;
+
+import java.util.Iterator;
+
+// an open cursor. Rows are fetched from the ResultSet when next() is called, the underlying
+// Statement/ResultSet are closed when the last row was read or when close() is called.
+// SQLExceptions are thrown as com.cg.sqlutil.exception.UncheckedSQLException.
+public interface RowIterator extends Iterator<Row>, AutoCloseable {
+
+    @Override
+    void close();
+}
@@ -0,0 +1,27 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil;
+
+import java.util.List;
+import java.util.RandomAccess;
+
+// a complete, read-only ResultSet with a heap budget. Rows beyond the budget are written to a
+// temporary file and read back through a memory mapping when get(int) is called.
+// close() deletes the file, get(int) is not allowed afterwards.
+public interface RowList extends List<Row>, RandomAccess, AutoCloseable {
+
+    // true if rows were written to a temporary file
+    boolean isSpilled();
+
+    // number of rows that are kept on the heap, all following rows are on disk
+    int getHeapRowCount();
+
+    // size of the temporary file in bytes, 0 if not spilled
+    long getSpillFileSize();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,95 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * Reusable view on the current row of an open ResultSet. Getters are named like the ones of Row
+ * and use the same 0-based index. The get*Value methods return primitives, so reading numeric
+ * columns doesn't create any object. Check wasNull() after calling one of them.
+ */
+public interface RowView {
+
+    int getColumnCount();
+
+    // 1-based number of the current row
+    int getRowNumber();
+
+    int getColumnIndex(String column);
+
+    int getColumnIndex(ColumnRef column);
+
+    Object get(int idx) throws SQLException;
+
+    Object get(String column) throws SQLException;
+
+    Object get(ColumnRef column) throws SQLException;
+
+    Boolean getBoolean(int idx) throws SQLException;
+
+    Boolean getBoolean(String column) throws SQLException;
+
+    Boolean getBoolean(ColumnRef column) throws SQLException;
+
+    Long getLong(int idx) throws SQLException;
+
+    Long getLong(String column) throws SQLException;
+
+    Long getLong(ColumnRef column) throws SQLException;
+
+    Integer getInt(int idx) throws SQLException;
+
+    Integer getInt(String column) throws SQLException;
+
+    Integer getInt(ColumnRef column) throws SQLException;
+
+    Double getDouble(int idx) throws SQLException;
+
+    Double getDouble(String column) throws SQLException;
+
+    Double getDouble(ColumnRef column) throws SQLException;
+
+    BigDecimal getBigDecimal(int idx) throws SQLException;
+
+    BigDecimal getBigDecimal(String column) throws SQLException;
+
+    BigDecimal getBigDecimal(ColumnRef column) throws SQLException;
+
+    Timestamp getTimestamp(int idx) throws SQLException;
+
+    Timestamp getTimestamp(String column) throws SQLException;
+
+    Timestamp getTimestamp(ColumnRef column) throws SQLException;
+
+    String getString(int idx) throws SQLException;
+
+    String getString(String column) throws SQLException;
+
+    String getString(ColumnRef column) throws SQLException;
+
+    byte[] getRaw(int idx) throws SQLException;
+
+    byte[] getRaw(String column) throws SQLException;
+
+    byte[] getRaw(ColumnRef column) throws SQLException;
+
+    // primitives, no allocation. null is returned as 0/false, use wasNull()
+    long getLongValue(int idx) throws SQLException;
+
+    int getIntValue(int idx) throws SQLException;
+
+    double getDoubleValue(int idx) throws SQLException;
+
+    boolean getBooleanValue(int idx) throws SQLException;
+
+    boolean wasNull() throws SQLException;
+
+    // copies the current row
+    Row toRow() throws SQLException;
+}
@@ -9,6 +9,10 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 
+import com.cg.sqlutil.AsyncBatchWriter.ErrorHandler;
+import com.cg.sqlutil.AsyncBatchWriter.WhenFull;
+import com.cg.sqlutil.impl.AsyncDMLBatchWriter;
+import com.cg.sqlutil.impl.GroupCommitDMLExecutor;
 import com.cg.sqlutil.impl.SQLUtil;
 
 public class SQLUtilFactory {
@@ -55,4 +59,21 @@ public class SQLUtilFactory {
         return sql;
     }
 
+    // dedicatedSql is used by the writer thread only and closed by AsyncBatchWriter.close().
+    // options.maxRows limits the rows per batch (<=0: queueCapacity), onError may be null.
+    public static AsyncBatchWriter createAsyncBatchWriter(SQLUtilInterface dedicatedSql,
+            String dmlStmt, int[] bindTypes, BatchOptions options, int queueCapacity,
+            WhenFull whenFull, ErrorHandler onError) {
+        return new AsyncDMLBatchWriter(dedicatedSql, dmlStmt, bindTypes, options, queueCapacity,
+                whenFull, onError);
+    }
+
+    // dedicatedSql is used by the executor thread only (autocommit off) and closed by
+    // GroupCommitExecutor.close(). A transaction collects statements for up to maxDelayMicros
+    // after the first one, at most maxStatements.
+    public static GroupCommitExecutor createGroupCommitExecutor(SQLUtilInterface dedicatedSql,
+            long maxDelayMicros, int maxStatements) throws SQLException {
+        return new GroupCommitDMLExecutor(dedicatedSql, maxDelayMicros, maxStatements);
+    }
+
 }
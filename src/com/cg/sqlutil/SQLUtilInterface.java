@@ -7,6 +7,7 @@ package com.cg.sqlutil;
 
 import java.io.PrintStream;
 import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
@@ -14,7 +15,9 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.util.Calendar;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Purpose of SQLUtil is to create short, readable and easy to write code that uses JDBC.
@@ -52,7 +55,7 @@ public interface SQLUtilInterface {
     // Connection gives you full access
     Connection getConnection();
 
-    // confirm changes
+    // confirm changes (with an open UnitOfWork: executes its queue first)
     void commit() throws SQLException;
 
     void commitSilent();
@@ -65,6 +68,12 @@ public interface SQLUtilInterface {
 
     void rollbackSilent();
 
+    // queues executeDML calls until commit(), see UnitOfWork. One per SQLUtil at a time.
+    UnitOfWork beginUnitOfWork(UnitOfWork.Ordering ordering) throws SQLException;
+
+    // the open UnitOfWork, or null
+    UnitOfWork getUnitOfWork();
+
     // call prepare, returns false if error occurs
     boolean isPreparable(String sqlStmt);
 
@@ -88,6 +97,18 @@ public interface SQLUtilInterface {
 
     void setPreparedStatementCacheSize(int cacheSize) throws SQLException;
 
+    // bind variables are bound with a plan that is compiled once per statement and bindTypes.
+    // A batch checks the classes of its first row only, in bind debug mode every row is checked.
+    void enableBindDebug(boolean enable);
+
+    boolean isBindDebug();
+
+    // column types, labels and the label->index map of a select are cached per sql anyway. If
+    // enabled, the cached values are only checked against the column count of the ResultSet, so
+    // the ResultSetMetaData is not read column by column for every execution. Don't enable it if
+    // the same sql text can return different columns (e.g. "select *" while the table changes).
+    void enableResultMetaDataCache(boolean enable);
+
     DBProduct getDBProduct();
 
     // log management. Use null to suppress output.
@@ -103,7 +124,8 @@ public interface SQLUtilInterface {
     // like executeDDL, but no exception will be thrown.
     void executeDDLSilent(String ddlStmt);
 
-    // execute dml (update, insert, delete, merge)
+    // execute dml (update, insert, delete, merge). While a UnitOfWork is open, the executeDML
+    // variants are queued and return null.
     Integer executeDML(String dmlStmt) throws SQLException;
 
     // exec once, ? will be replaced with varargs
@@ -116,14 +138,97 @@ public interface SQLUtilInterface {
     Integer executeDML(String dmlStmt, final Object[] bindVariables, final int[] bindTypes)
             throws SQLException;
 
+    // executes dmlStmt once and returns the keys the database generated (serial/identity
+    // columns), one per inserted row. keyColumns: the key columns to return, none:
+    // Statement.RETURN_GENERATED_KEYS, the first column the driver returns is the key (PostgreSQL
+    // returns all columns then, Oracle a ROWID: name the key column for them). The statement is
+    // cached apart from the same sql without keys.
+    long[] executeDMLReturningKeys(String dmlStmt, final Object[] bindVariables,
+            final int[] bindTypes, String... keyColumns) throws SQLException;
+
+    // like executeDMLReturningKeys, all returned columns (composite or non-numeric keys)
+    Row[] executeDMLReturningKeyRows(String dmlStmt, final Object[] bindVariables,
+            final int[] bindTypes, String... keyColumns) throws SQLException;
+
+    // executeDMLBatch with the generated keys of all rows, in the order of batchValues. Drivers
+    // that don't return keys for batches (SQL Server) return fewer keys.
+    long[] executeDMLBatchReturningKeys(String dmlStmt, final List<Object[]> batchValues,
+            final int[] bindTypes, String... keyColumns) throws SQLException;
+
+    Row[] executeDMLBatchReturningKeyRows(String dmlStmt, final List<Object[]> batchValues,
+            final int[] bindTypes, String... keyColumns) throws SQLException;
+
     // executes dmlStmt n times, where n=batchValues.length
     int[] executeDMLBatch(String dmlStmt, final List<Object[]> batchValues,
             final int[] bindTypes) throws SQLException;
 
+    // for drivers that send every row of a batch as an own statement: executeDMLBatch(String,
+    // List<Object[]>, int[]) executes "insert into t(a,b) values(?,?)" as multi-row inserts
+    // (values (?,?),(?,?),...) with at most maxRows rows per statement. Row counts are powers of
+    // 2, so only a few statements are prepared and cached. The affected rows are 1 per row, or
+    // Statement.SUCCESS_NO_INFO if the driver reports less. maxRows<2: off (default)
+    // Ignored on Oracle: its multi-row insert (INSERT ALL) generates identity/sequence keys once
+    // per statement, not per row.
+    void setMultiRowInsert(int maxRows);
+
+    int getMultiRowInsert();
+
     // executes dmlStmt n times, where n=batchValues.length
     int[] executeDMLBatch(String dmlStmt, final Row[] rows, final int[] bindTypes)
             throws SQLException;
 
+    // executes dmlStmt once per entity, mapping binds the fields of an entity directly (no
+    // Object[] per entity, no type checks per value). Create the mapping once and reuse it.
+    // Not an executeDMLBatch overload, executeDMLBatch(sql, rows, null) must stay unambiguous.
+    <T> int[] executeMappedBatch(String dmlStmt, final List<T> entities,
+            final BindMapping<T> mapping) throws SQLException;
+
+    // like executeDMLBatch, but executed in sub-batches (by rows/bytes, see BatchOptions) so
+    // large batches don't have to be buffered by the driver at once. One audit record per
+    // sub-batch.
+    BatchResult executeDMLBatch(String dmlStmt, final List<Object[]> batchValues,
+            final int[] bindTypes, BatchOptions options) throws SQLException;
+
+    // executeMappedBatch in sub-batches. BatchOptions.bytes is ignored, sizes of entities are
+    // not known
+    <T> BatchResult executeMappedBatch(String dmlStmt, final List<T> entities,
+            final BindMapping<T> mapping, BatchOptions options) throws SQLException;
+
+    // executes dmlStmt once per row of columns (see ColumnBatch.builder), column c is bound to
+    // the (c+1)th ?. Primitive columns are bound with setInt/setLong/setDouble/setBoolean,
+    // without an Object[] or boxing per row.
+    int[] executeDMLBatch(String dmlStmt, final ColumnBatch columns) throws SQLException;
+
+    BatchResult executeDMLBatch(String dmlStmt, final ColumnBatch columns, BatchOptions options)
+            throws SQLException;
+
+    // for rows that arrive one by one: executes batches of dmlStmt by options (rows, bytes,
+    // maxDelay), without collecting a List first. Close it to execute the last rows.
+    BatchWriter createBatchWriter(String dmlStmt, final int[] bindTypes, BatchOptions options);
+
+    // loads rows into table(columns). PostgreSQL (if the driver is the PostgreSQL driver): COPY
+    // FROM STDIN in text format, rows are encoded while the driver sends them. Others: insert
+    // batches of BULK_BATCH_ROWS rows. Memory doesn't depend on the number of rows. bindTypes as
+    // in executeDMLBatch, null: derived from the first row. Returns the number of rows.
+    long bulkInsert(String table, String[] columns, final int[] bindTypes, Iterator<Object[]> rows)
+            throws SQLException;
+
+    long bulkInsert(String table, String[] columns, final int[] bindTypes, Iterable<Object[]> rows)
+            throws SQLException;
+
+    int BULK_BATCH_ROWS = 1000;
+
+    // inserts rows into table, or updates valueColumns of the rows whose keyColumns exist. A row
+    // has the values of keyColumns, then of valueColumns. One statement per product (PostgreSQL:
+    // insert .. on conflict, MySQL: insert .. on duplicate key update, others: merge), needs a
+    // primary key or unique constraint on keyColumns (PostgreSQL, MySQL). Executed as batches of
+    // BULK_BATCH_ROWS. Affected rows are as reported by the driver (MySQL: 2 for an update).
+    BatchResult upsertBatch(String table, String[] keyColumns, String[] valueColumns,
+            List<Object[]> rows) throws SQLException;
+
+    BatchResult upsertBatch(String table, String[] keyColumns, String[] valueColumns,
+            List<Object[]> rows, final int[] bindTypes, BatchOptions options) throws SQLException;
+
     // exec Stored Procedure (SP)
     //
     // exec sp
@@ -165,6 +270,78 @@ public interface SQLUtilInterface {
             final Object[] bindVariables, final int[] bindTypes) throws SQLException;
 	*/
 
+    // Complete ResultSets, compact
+    // Same rows as getRows, but stored in primitive arrays and one byte arena. Needs a fraction of
+    // the heap of Row[], use this for big results that are kept in memory.
+    //
+    RowBlock getRowBlock(String selectStmt) throws SQLException;
+
+    RowBlock getRowBlockVarArgs(String selectStmt, Object... bindVariables) throws SQLException;
+
+    RowBlock getRowBlock(String selectStmt, Object[] bindVariables) throws SQLException;
+
+    RowBlock getRowBlock(String selectStmt, final Object[] bindVariables, final int[] bindTypes)
+            throws SQLException;
+
+    // Complete ResultSets with a heap budget
+    // Rows are kept on the heap until the budget (setSpillHeapBudget, default 64MB) is used, all
+    // following rows are written to a temporary file (setSpillDirectory, default java.io.tmpdir)
+    // and read back from a memory mapping. Always close the RowList, it deletes the file.
+    //
+    void setSpillHeapBudget(long heapBytes);
+
+    void setSpillDirectory(Path directory);
+
+    RowList getRowList(String selectStmt) throws SQLException;
+
+    RowList getRowListVarArgs(String selectStmt, Object... bindVariables) throws SQLException;
+
+    RowList getRowList(String selectStmt, Object[] bindVariables) throws SQLException;
+
+    RowList getRowList(String selectStmt, final Object[] bindVariables, final int[] bindTypes)
+            throws SQLException;
+
+    // Complete ResultSets as records or beans
+    // Columns are matched to record components or bean setters by name (ignoring case and '_',
+    // FIRST_NAME -> firstName). Records need a column for each component. The mapping is
+    // compiled once per class and result, no Row is created. Records are found by reflection,
+    // the library itself still runs on java 8.
+    //
+    <T> List<T> getRows(Class<T> type, String selectStmt) throws SQLException;
+
+    <T> List<T> getRowsVarArgs(Class<T> type, String selectStmt, Object... bindVariables)
+            throws SQLException;
+
+    <T> List<T> getRows(Class<T> type, String selectStmt, Object[] bindVariables)
+            throws SQLException;
+
+    <T> List<T> getRows(Class<T> type, String selectStmt, final Object[] bindVariables,
+            final int[] bindTypes) throws SQLException;
+
+    // Read a ResultSet without storing it
+    // handler is called once per row with the same RowView, no Row is created. Returns the rowcount.
+    //
+    int forEachRow(String selectStmt, RowHandler handler) throws SQLException;
+
+    int forEachRow(String selectStmt, Object[] bindVariables, RowHandler handler)
+            throws SQLException;
+
+    int forEachRow(String selectStmt, final Object[] bindVariables, final int[] bindTypes,
+            RowHandler handler) throws SQLException;
+
+    // Complete ResultSets, column by column
+    // Returns one ColumnBatch, numeric columns are stored as primitive arrays plus a null bitmap.
+    // Use this for big analytic results, no object is created per row.
+    //
+    ColumnBatch getColumns(String selectStmt) throws SQLException;
+
+    ColumnBatch getColumnsVarArgs(String selectStmt, Object... bindVariables) throws SQLException;
+
+    ColumnBatch getColumns(String selectStmt, Object[] bindVariables) throws SQLException;
+
+    ColumnBatch getColumns(String selectStmt, final Object[] bindVariables, final int[] bindTypes)
+            throws SQLException;
+
     // Fetch ResultSet in multiple Chunks
     // Returns an array of Row. Order of call: batchPrepare, while ((rows=batchGetRows())!=null), batchClose
     //
@@ -174,6 +351,40 @@ public interface SQLUtilInterface {
 
     void getChunksClose();
 
+    // Stream ResultSet row by row
+    // Rows are read from the ResultSet when the consumer asks for them (fetchSize is used), there is
+    // no limit of open cursors. Always close the Stream/RowIterator (try-with-resources).
+    // Postgres only uses the fetchSize if autoCommit is off.
+    //
+    Stream<Row> stream(String selectStmt) throws SQLException;
+
+    Stream<Row> streamVarArgs(String selectStmt, Object... bindVariables) throws SQLException;
+
+    Stream<Row> stream(String selectStmt, Object[] bindVariables) throws SQLException;
+
+    Stream<Row> stream(String selectStmt, final Object[] bindVariables, final int[] bindTypes)
+            throws SQLException;
+
+    <T> Stream<T> stream(Class<T> type, String selectStmt) throws SQLException;
+
+    <T> Stream<T> streamVarArgs(Class<T> type, String selectStmt, Object... bindVariables)
+            throws SQLException;
+
+    <T> Stream<T> stream(Class<T> type, String selectStmt, Object[] bindVariables)
+            throws SQLException;
+
+    <T> Stream<T> stream(Class<T> type, String selectStmt, final Object[] bindVariables,
+            final int[] bindTypes) throws SQLException;
+
+    RowIterator iterate(String selectStmt) throws SQLException;
+
+    RowIterator iterateVarArgs(String selectStmt, Object... bindVariables) throws SQLException;
+
+    RowIterator iterate(String selectStmt, Object[] bindVariables) throws SQLException;
+
+    RowIterator iterate(String selectStmt, final Object[] bindVariables, final int[] bindTypes)
+            throws SQLException;
+
     // Timestamp: Use this for all Date-alike subtypes
     //
     // execute select, first column must be convertible to Timestamp, only one resultrow allowed
@@ -0,0 +1,59 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil;
+
+import java.sql.SQLException;
+import java.util.Map;
+
+// a transaction whose single DML executions are queued: while it's open, executeDML and
+// executeDMLVarArgs of its SQLUtil return null and only remember the statement. commit() executes
+// the queue as one JDBC batch per statement (sql text and bind types) and commits.
+//   try (UnitOfWork uow = sql.beginUnitOfWork(Ordering.BY_FIRST_USE)) {
+//       for (...) {
+//           sql.executeDMLVarArgs(insertCustomer, id, email);
+//           sql.executeDMLVarArgs(insertAddress, id, addr);
+//       }
+//       Map<String, int[]> counts = uow.commit();
+//   }
+// Any other use of the SQLUtil (queries, batches, calls) flushes the queue first, so they see
+// the queued rows. Autocommit is off while the unit of work is open. sql.commit()/rollback()
+// commit/roll back the unit of work.
+public interface UnitOfWork extends AutoCloseable {
+
+    enum Ordering {
+        // the order of the calls is kept, only consecutive calls of the same statement are
+        // batched together: a, a, b, a -> [a, a], [b], [a]
+        STRICT,
+        // all calls of a statement are one batch, statements in the order of their first call:
+        // a, b, a, b -> [a, a], [b, b]. Right if a row only depends on rows of statements that
+        // were called before (parent before child), not for updates/deletes of the same rows
+        // by different statements.
+        BY_FIRST_USE
+    }
+
+    Ordering getOrdering();
+
+    // queued executions, not executed yet
+    int getQueuedCount();
+
+    // executes the queue without commit, returns the affected rows per statement (sql text) in
+    // the order of the calls
+    Map<String, int[]> flush() throws SQLException;
+
+    // flushes and commits, returns the affected rows per statement (sql text) of all executions
+    // of this unit of work (earlier flushes included). The unit of work is closed afterwards. If
+    // a batch fails the transaction is rolled back and the unit of work is closed.
+    Map<String, int[]> commit() throws SQLException;
+
+    // discards the queue and rolls back
+    void rollback() throws SQLException;
+
+    boolean isOpen();
+
+    // rolls back if not committed
+    @Override
+    void close() throws SQLException;
+}
@@ -0,0 +1,248 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.impl;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.cg.sqlutil.AsyncBatchWriter;
+import com.cg.sqlutil.BatchOptions;
+import com.cg.sqlutil.SQLUtilInterface;
+
+// the queue holds rows (Object[]) and flush markers. The writer thread collects rows until the
+// queue is empty, a marker comes or maxRows is reached, then executes them as one batch. A marker
+// is released after the rows before it are committed, so flush() needs no counters.
+public final class AsyncDMLBatchWriter implements AsyncBatchWriter {
+
+    private static final AtomicLong THREAD_NO = new AtomicLong();
+
+    private static final class Marker {
+        final CountDownLatch done = new CountDownLatch(1);
+        final boolean last;
+        // failed batches since the previous marker
+        SQLException error;
+
+        Marker(boolean last) {
+            this.last = last;
+        }
+    }
+
+    private final SQLUtilInterface sql;
+    private final String dmlStmt;
+    private final int[] bindTypes;
+    private final int maxRows;
+    private final WhenFull whenFull;
+    private final ErrorHandler onError;
+    private final ArrayBlockingQueue<Object> queue;
+    private final Thread thread;
+    private final AtomicLong executedRows = new AtomicLong(), failedRows = new AtomicLong(),
+            rejectedRows = new AtomicLong(), batches = new AtomicLong(),
+            failedBatches = new AtomicLong();
+    // add() and flush() check closed and queue under the read lock: nothing follows the last marker
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private volatile boolean closed;
+    // writer thread only
+    private long rowNo;
+    private SQLException error;
+
+    public AsyncDMLBatchWriter(SQLUtilInterface dedicatedSql, String dmlStmt, int[] bindTypes,
+            BatchOptions options, int queueCapacity, WhenFull whenFull, ErrorHandler onError) {
+        this.sql = dedicatedSql;
+        this.dmlStmt = dmlStmt;
+        this.bindTypes = bindTypes == null ? null : bindTypes.clone();
+        this.maxRows = options.getMaxRows() > 0 ? options.getMaxRows() : queueCapacity;
+        this.whenFull = whenFull;
+        this.onError = onError;
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        thread = new Thread(this::run, "sqlutil-batchwriter-" + THREAD_NO.incrementAndGet());
+        // close() is needed for the last rows anyway, don't keep the jvm running without it
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public boolean add(Object... values) throws InterruptedException {
+        // a blocked put() delays close(), the writer thread still takes rows until the marker
+        closeLock.readLock().lockInterruptibly();
+        try {
+            if (closed)
+                throw new IllegalStateException("AsyncBatchWriter is closed");
+            if (whenFull == WhenFull.BLOCK) {
+                queue.put(values);
+                return true;
+            }
+            if (queue.offer(values))
+                return true;
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        rejectedRows.incrementAndGet();
+        return false;
+    }
+
+    @Override
+    public void flush() throws SQLException, InterruptedException {
+        Marker m = new Marker(false);
+        closeLock.readLock().lockInterruptibly();
+        try {
+            if (closed)
+                return;
+            // a marker waits for space like a row, also with REJECT
+            queue.put(m);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        m.done.await();
+        if (m.error != null)
+            throw m.error;
+    }
+
+    // waits also if the thread is interrupted (the rows must be committed and the connection
+    // closed), the interrupt flag is restored at the end
+    @Override
+    public synchronized void close() throws SQLException {
+        if (closed)
+            return;
+        boolean interrupted = false;
+        Marker m = new Marker(true);
+        try {
+            closeLock.writeLock().lock();
+            try {
+                closed = true;
+            } finally {
+                closeLock.writeLock().unlock();
+            }
+            while (true)
+                try {
+                    queue.put(m);
+                    break;
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                }
+            while (true)
+                try {
+                    m.done.await();
+                    break;
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                }
+            if (m.error != null)
+                throw m.error;
+        } finally {
+            while (thread.isAlive())
+                try {
+                    thread.join();
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                }
+            sql.closeConnection();
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Object[]> batch = new ArrayList<>(Math.min(maxRows, 10000));
+        while (true) {
+            Object o;
+            try {
+                o = queue.take();
+            } catch (InterruptedException ie) {
+                continue; // only close() ends the thread
+            }
+            // everything that's queued now, up to maxRows rows
+            while (o instanceof Object[]) {
+                batch.add((Object[]) o);
+                if (batch.size() >= maxRows)
+                    break;
+                o = queue.poll();
+            }
+            if (!batch.isEmpty())
+                execute(batch);
+            if (o instanceof Marker) {
+                Marker m = (Marker) o;
+                m.error = error;
+                error = null;
+                m.done.countDown();
+                if (m.last)
+                    return;
+            }
+        }
+    }
+
+    private void execute(List<Object[]> batch) {
+        long firstRow = rowNo;
+        rowNo += batch.size();
+        try {
+            sql.executeDMLBatch(dmlStmt, batch, bindTypes);
+            sql.commit();
+            executedRows.addAndGet(batch.size());
+        } catch (Throwable e) {
+            // also Errors: the thread must keep running, or flush()/close() wait forever
+            SQLException sqle = e instanceof SQLException ? (SQLException) e
+                    : new SQLException(e.getMessage(), e);
+            sql.rollbackSilent();
+            failedRows.addAndGet(batch.size());
+            failedBatches.incrementAndGet();
+            if (error == null)
+                error = new SQLException("batch starting at row " + firstRow + " failed", sqle);
+            else
+                error.addSuppressed(sqle);
+            if (onError != null)
+                try {
+                    onError.failed(firstRow, new ArrayList<>(batch), sqle);
+                } catch (Throwable ignore) {
+                    // a broken handler doesn't stop the writer
+                }
+        } finally {
+            batches.incrementAndGet();
+            batch.clear();
+        }
+    }
+
+    @Override
+    public int getQueuedRows() {
+        return queue.size();
+    }
+
+    @Override
+    public long getExecutedRows() {
+        return executedRows.get();
+    }
+
+    @Override
+    public long getFailedRows() {
+        return failedRows.get();
+    }
+
+    @Override
+    public long getRejectedRows() {
+        return rejectedRows.get();
+    }
+
+    @Override
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    @Override
+    public long getFailedBatchCount() {
+        return failedBatches.get();
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncBatchWriter(" + dmlStmt + ", queued=" + getQueuedRows() + ", executed="
+                + getExecutedRows() + ", failed=" + getFailedRows() + ", rejected="
+                + getRejectedRows() + ")";
+    }
+}
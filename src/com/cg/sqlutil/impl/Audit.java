@@ -257,20 +257,25 @@ public class Audit implements AuditInterface {
         addCurrentRecord();
     }
 
-    private void addCurrentRecord() {
+    @Override
+    public void addAuditRecord(AuditRecord record) {
         if (!enabled)
             return;
-        String sql = currentAuditRecord.getSQL();
+        String sql = record.getSQL();
         ArrayList<AuditRecord> recs = getAuditRecords().get(sql);
         if (recs == null) {
             recs = new ArrayList<>();
-            recs.add(currentAuditRecord);
+            recs.add(record);
             getAuditRecords().put(sql, recs);
         } else {
-            recs.add(currentAuditRecord);
+            recs.add(record);
         }
     }
 
+    private void addCurrentRecord() {
+        addAuditRecord(currentAuditRecord);
+    }
+
 }
 
 /*
@@ -135,17 +135,25 @@ public final class BindHelper {
         return ps;
     }
 
-    private static int countNullElements(Object[] a) {
-        if (a == null)
+    // rough size of the values on the wire, used to limit sub-batches
+    static long estimateBytes(Object[] values) {
+        if (values == null)
             return 0;
-        int c = 0;
-        for (int i = 0; i < a.length; i++)
-            if (a[i] == null)
-                c++;
-        return c;
+        long bytes = 0;
+        for (Object o : values) {
+            if (o instanceof String)
+                bytes += 4 + ((String) o).length();
+            else if (o instanceof byte[])
+                bytes += 4 + ((byte[]) o).length;
+            else if (o instanceof BigDecimal)
+                bytes += 4 + ((BigDecimal) o).unscaledValue().bitLength() / 8 + 1;
+            else
+                bytes += 8;
+        }
+        return bytes;
     }
 
-    private static int[] createBindTypeArray(Object[] bindVars) throws SQLException {
+    static int[] createBindTypeArray(Object[] bindVars) throws SQLException {
         if (bindVars == null)
             return new int[0];
         int[] types = new int[bindVars.length];
@@ -184,7 +192,7 @@ public final class BindHelper {
         return types;
     }
 
-    private static void verifyNotMatchingClassesAndBindings(Object[] vals, int[] bindTypes) {
+    static void verifyNotMatchingClassesAndBindings(Object[] vals, int[] bindTypes) {
         if (vals == null)
             return;
         if (bindTypes.length != vals.length)
@@ -257,98 +265,7 @@ public final class BindHelper {
         // try to be lazy
         if (bindVariables == null || bindVariables.length == 0)
             return;
-
-        // check param combinations
-        if (bindTypes == null && countNullElements(bindVariables) > 0)
-            throw new IllegalArgumentException(
-                    "all elements in bindVariables must have a value (use bindTypes param to set bindVariables-elements to null)");
-        // create bindTypes or check given bindTypes
-        if (bindTypes == null)
-            bindTypes = createBindTypeArray(bindVariables);
-        else
-            verifyNotMatchingClassesAndBindings(bindVariables, bindTypes);
-
-        for (int n = 0, pos = 1; n < bindVariables.length; n++, pos++) {
-            Object val = bindVariables[n];
-            int sqltype = bindTypes[n];
-            switch (sqltype) {
-            case Types.CHAR:
-            case Types.VARCHAR:
-            case Types.LONGVARCHAR:
-            case Types.LONGNVARCHAR:
-            case Types.NVARCHAR:
-            case Types.NCHAR:
-                bindString(ps, pos, (String) val);
-                break;
-            case Types.NUMERIC:
-            case Types.DECIMAL:
-                bindBigDecimal(ps, pos, (BigDecimal) val);
-                break;
-            case Types.DATE:
-                if (val != null)
-                    if (val instanceof java.sql.Date)
-                        bindSQLDate(ps, pos, (Date) val, calendar);
-                    else
-                        bindDate(ps, pos, (java.util.Date) val, calendar);
-                else
-                    bindSQLDate(ps, pos, (Date) val, calendar);
-                break;
-            case Types.FLOAT:
-            case Types.DOUBLE:
-                bindDouble(ps, pos, (Double) val);
-                break;
-            case Types.TINYINT:
-            case Types.SMALLINT:
-            case Types.INTEGER:
-                bindInteger(ps, pos, (Integer) val);
-                break;
-            case Types.BIGINT:
-                bindLong(ps, pos, (Long) val);
-                break;
-            case Types.REAL:
-                bindFloat(ps, pos, (Float) val);
-                break;
-            case Types.BINARY:
-            case Types.VARBINARY:
-            case Types.LONGVARBINARY:
-                bindByteArray(ps, pos, (byte[]) val);
-                break;
-            case Types.BIT:
-            case Types.BOOLEAN:
-                bindBoolean(ps, pos, (Boolean) val);
-                break;
-            case Types.TIME:
-            case Types.TIME_WITH_TIMEZONE: // TODO: mapping correct?
-                bindSQLTime(ps, pos, (java.sql.Time) val);
-                break;
-            case Types.TIMESTAMP:
-            case Types.TIMESTAMP_WITH_TIMEZONE: // TODO: mapping correct?
-                if (val == null || val instanceof java.sql.Timestamp)
-                    bindSQLTimestamp(ps, pos, (java.sql.Timestamp) val, calendar);
-                else
-                    bindSQLTimestamp(ps, pos,
-                            new java.sql.Timestamp(((java.util.Date) val).getTime()), calendar);
-                break;
-            case Types.BLOB:
-                bindBlob(ps, pos, (java.sql.Blob) val);
-                break;
-            default:
-            	/*	
-                // all special or dependent values....	
-               boolean ok = false;	
-               if (dbProduct == DBProduct.POSTGRESQL) {	
-               	// JSON	
-               	if (sqltype==1111) {	
-                       bindString(ps, pos, (String) val);	
-                       ok = true;	
-               	}	
-               }	
-               if (!ok)	
-                */
-            	throw new IllegalArgumentException(
-                        "unmatched value bindTypes[" + n + "], value=" + bindTypes[n]);
-            }
-        }
+        BindPlan.forValues(null, bindVariables, bindTypes).bind(ps, bindVariables, calendar);
     }
 
 }
@@ -0,0 +1,159 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.impl;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Calendar;
+
+// how the values of an Object[] are bound, compiled once per statement and bindTypes: one binder
+// per ?, the switch over java.sql.Types is done here and not per value. Without bindTypes the
+// types are derived from the classes of the first values (all must be not null).
+// verify() checks the classes of the values against the plan, bind() only their count. A
+// batch verifies its first row only (every row in bind debug mode).
+final class BindPlan {
+
+    @FunctionalInterface
+    interface Binder {
+        void bind(PreparedStatement ps, int pos, Object val, Calendar calendar)
+                throws SQLException;
+    }
+
+    // the bindTypes the plan was compiled for, null if derived from values
+    private final int[] declaredTypes;
+    private final int[] types;
+    private final Binder[] binders;
+
+    private BindPlan(int[] declaredTypes, int[] types) {
+        this.declaredTypes = declaredTypes;
+        this.types = types;
+        binders = new Binder[types.length];
+        for (int n = 0; n < types.length; n++)
+            binders[n] = binder(n, types[n]);
+    }
+
+    // a plan for values and bindTypes, values are verified. cached is returned if it still fits
+    // (same bindTypes, or without bindTypes: values have the same classes).
+    static BindPlan forValues(BindPlan cached, Object[] values, int[] bindTypes)
+            throws SQLException {
+        if (bindTypes != null) {
+            BindHelper.verifyNotMatchingClassesAndBindings(values, bindTypes);
+            if (cached != null && cached.declaredTypes != null
+                    && Arrays.equals(cached.declaredTypes, bindTypes))
+                return cached;
+            return new BindPlan(bindTypes.clone(), bindTypes.clone());
+        }
+        checkNotNull(values);
+        int[] types = BindHelper.createBindTypeArray(values);
+        if (cached != null && cached.declaredTypes == null && Arrays.equals(cached.types, types))
+            return cached;
+        return new BindPlan(null, types);
+    }
+
+    int size() {
+        return binders.length;
+    }
+
+    // for the following rows of a batch
+    void verify(Object[] values) throws SQLException {
+        if (declaredTypes == null) {
+            checkNotNull(values);
+            if (!Arrays.equals(types, BindHelper.createBindTypeArray(values)))
+                throw new IllegalArgumentException(
+                        "bindVariables have other classes than the first row, use bindTypes");
+        } else
+            BindHelper.verifyNotMatchingClassesAndBindings(values, declaredTypes);
+    }
+
+    void bind(PreparedStatement ps, Object[] values, Calendar calendar) throws SQLException {
+        bind(ps, values, calendar, 0);
+    }
+
+    // offset: bind variables before the first one of values (multi row inserts)
+    void bind(PreparedStatement ps, Object[] values, Calendar calendar, int offset)
+            throws SQLException {
+        if (values.length != binders.length)
+            throw new IllegalArgumentException("bindVariables must have " + binders.length
+                    + " elements, found " + values.length);
+        for (int n = 0; n < binders.length; n++)
+            try {
+                binders[n].bind(ps, offset + n + 1, values[n], calendar);
+            } catch (ClassCastException cce) {
+                // an unverified row of a batch
+                throw new IllegalArgumentException("bindVariables[" + n + "] is a "
+                        + values[n].getClass().getName() + ", bound as java.sql.Types "
+                        + types[n], cce);
+            }
+    }
+
+    private static void checkNotNull(Object[] values) {
+        for (Object v : values)
+            if (v == null)
+                throw new IllegalArgumentException(
+                        "all elements in bindVariables must have a value (use bindTypes param to set bindVariables-elements to null)");
+    }
+
+    private static Binder binder(int n, int sqltype) {
+        switch (sqltype) {
+        case Types.CHAR:
+        case Types.VARCHAR:
+        case Types.LONGVARCHAR:
+        case Types.LONGNVARCHAR:
+        case Types.NVARCHAR:
+        case Types.NCHAR:
+            return (ps, pos, val, cal) -> BindHelper.bindString(ps, pos, (String) val);
+        case Types.NUMERIC:
+        case Types.DECIMAL:
+            return (ps, pos, val, cal) -> BindHelper.bindBigDecimal(ps, pos, (BigDecimal) val);
+        case Types.DATE:
+            return (ps, pos, val, cal) -> {
+                if (val == null || val instanceof java.sql.Date)
+                    BindHelper.bindSQLDate(ps, pos, (java.sql.Date) val, cal);
+                else
+                    BindHelper.bindDate(ps, pos, (java.util.Date) val, cal);
+            };
+        case Types.FLOAT:
+        case Types.DOUBLE:
+            return (ps, pos, val, cal) -> BindHelper.bindDouble(ps, pos, (Double) val);
+        case Types.TINYINT:
+        case Types.SMALLINT:
+        case Types.INTEGER:
+            return (ps, pos, val, cal) -> BindHelper.bindInteger(ps, pos, (Integer) val);
+        case Types.BIGINT:
+            return (ps, pos, val, cal) -> BindHelper.bindLong(ps, pos, (Long) val);
+        case Types.REAL:
+            return (ps, pos, val, cal) -> BindHelper.bindFloat(ps, pos, (Float) val);
+        case Types.BINARY:
+        case Types.VARBINARY:
+        case Types.LONGVARBINARY:
+            return (ps, pos, val, cal) -> BindHelper.bindByteArray(ps, pos, (byte[]) val);
+        case Types.BIT:
+        case Types.BOOLEAN:
+            return (ps, pos, val, cal) -> BindHelper.bindBoolean(ps, pos, (Boolean) val);
+        case Types.TIME:
+        case Types.TIME_WITH_TIMEZONE: // TODO: mapping correct?
+            return (ps, pos, val, cal) -> BindHelper.bindSQLTime(ps, pos, (java.sql.Time) val);
+        case Types.TIMESTAMP:
+        case Types.TIMESTAMP_WITH_TIMEZONE: // TODO: mapping correct?
+            return (ps, pos, val, cal) -> {
+                if (val == null || val instanceof java.sql.Timestamp)
+                    BindHelper.bindSQLTimestamp(ps, pos, (java.sql.Timestamp) val, cal);
+                else
+                    BindHelper.bindSQLTimestamp(ps, pos,
+                            new java.sql.Timestamp(((java.util.Date) val).getTime()), cal);
+            };
+        case Types.BLOB:
+            return (ps, pos, val, cal) -> BindHelper.bindBlob(ps, pos, (java.sql.Blob) val);
+        default:
+            throw new IllegalArgumentException(
+                    "unmatched value bindTypes[" + n + "], value=" + sqltype);
+        }
+    }
+
+}
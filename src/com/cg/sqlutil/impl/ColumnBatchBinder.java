@@ -0,0 +1,196 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.impl;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Calendar;
+
+import com.cg.sqlutil.ColumnBatch;
+
+// binds row r of a ColumnBatch: one binder per column, chosen once by ColumnType, reads the
+// primitive arrays directly (setInt/setLong/setDouble/setBoolean, setNull for bits set in the
+// null bitmap). Column c is bound to position c+1.
+final class ColumnBatchBinder {
+
+    @FunctionalInterface
+    private interface Binder {
+        void bind(PreparedStatement ps, int row, Calendar cal) throws SQLException;
+    }
+
+    private final Binder[] binders;
+    private final int[] sqlTypes;
+    // estimated bytes of the fixed size columns per row, see estimateBytes
+    private final long fixedBytes;
+    // String[], byte[][] or BigDecimal[] of the columns with variable size, null for the others
+    private final Object[] varColumns;
+
+    ColumnBatchBinder(ColumnBatch batch) {
+        int n = batch.getColumnCount();
+        varColumns = new Object[n];
+        binders = new Binder[n];
+        sqlTypes = new int[n];
+        long fixed = 0;
+        for (int c = 0; c < n; c++) {
+            binders[c] = binder(batch, c);
+            sqlTypes[c] = sqlType(batch, c);
+            switch (batch.getColumnType(c)) {
+            case STRING:
+                varColumns[c] = batch.getStrings(c);
+                break;
+            case BYTES:
+                varColumns[c] = batch.getRaws(c);
+                break;
+            case BIGDECIMAL:
+                varColumns[c] = batch.getBigDecimals(c);
+                break;
+            default:
+                fixed += 8;
+            }
+        }
+        fixedBytes = fixed;
+    }
+
+    int[] getSQLTypes() {
+        return sqlTypes.clone();
+    }
+
+    void bind(PreparedStatement ps, int row, Calendar cal) throws SQLException {
+        for (Binder b : binders)
+            b.bind(ps, row, cal);
+    }
+
+    // the same as BindHelper.estimateBytes of the row as Object[]: 4 + the length of a String,
+    // byte[] or unscaled BigDecimal, 8 for null and the others
+    long estimateBytes(int row) {
+        long bytes = fixedBytes;
+        for (Object col : varColumns)
+            if (col instanceof String[]) {
+                String v = ((String[]) col)[row];
+                bytes += v == null ? 8 : 4 + v.length();
+            } else if (col instanceof byte[][]) {
+                byte[] v = ((byte[][]) col)[row];
+                bytes += v == null ? 8 : 4 + v.length;
+            } else if (col != null) {
+                BigDecimal v = ((BigDecimal[]) col)[row];
+                bytes += v == null ? 8 : 4 + v.unscaledValue().bitLength() / 8 + 1;
+            }
+        return bytes;
+    }
+
+    private static boolean isNull(long[] nulls, int row) {
+        return nulls != null && (nulls[row >>> 6] & (1L << row)) != 0;
+    }
+
+    private static int sqlType(ColumnBatch batch, int c) {
+        switch (batch.getColumnType(c)) {
+        case STRING:
+            return Types.VARCHAR;
+        case INTEGER:
+            return Types.INTEGER;
+        case LONG:
+            return Types.BIGINT;
+        case BIGDECIMAL:
+            return Types.DECIMAL;
+        case FLOAT:
+        case DOUBLE:
+            return Types.DOUBLE;
+        case DATE:
+            return Types.DATE;
+        case TIME:
+            return Types.TIME;
+        case TIMESTAMP:
+            return Types.TIMESTAMP;
+        case BOOLEAN:
+            return Types.BOOLEAN;
+        case BYTES:
+            return Types.VARBINARY;
+        default:
+            throw new IllegalArgumentException("unknown ColumnType " + batch.getColumnType(c));
+        }
+    }
+
+    private static Binder binder(ColumnBatch batch, int c) {
+        int pos = c + 1;
+        long[] nulls = batch.getNullBitmap(c);
+        switch (batch.getColumnType(c)) {
+        case INTEGER: {
+            int[] a = batch.getInts(c);
+            return (ps, r, cal) -> {
+                if (isNull(nulls, r))
+                    ps.setNull(pos, Types.INTEGER);
+                else
+                    ps.setInt(pos, a[r]);
+            };
+        }
+        case LONG: {
+            long[] a = batch.getLongs(c);
+            return (ps, r, cal) -> {
+                if (isNull(nulls, r))
+                    ps.setNull(pos, Types.BIGINT);
+                else
+                    ps.setLong(pos, a[r]);
+            };
+        }
+        case FLOAT:
+        case DOUBLE: {
+            double[] a = batch.getDoubles(c);
+            return (ps, r, cal) -> {
+                if (isNull(nulls, r))
+                    ps.setNull(pos, Types.DOUBLE);
+                else
+                    ps.setDouble(pos, a[r]);
+            };
+        }
+        case BOOLEAN: {
+            boolean[] a = batch.getBooleans(c);
+            return (ps, r, cal) -> {
+                if (isNull(nulls, r))
+                    ps.setNull(pos, Types.BOOLEAN);
+                else
+                    ps.setBoolean(pos, a[r]);
+            };
+        }
+        case STRING: {
+            String[] a = batch.getStrings(c);
+            return (ps, r, cal) -> BindHelper.bindString(ps, pos,
+                    isNull(nulls, r) ? null : a[r]);
+        }
+        case BIGDECIMAL: {
+            BigDecimal[] a = batch.getBigDecimals(c);
+            return (ps, r, cal) -> BindHelper.bindBigDecimal(ps, pos,
+                    isNull(nulls, r) ? null : a[r]);
+        }
+        case DATE: {
+            java.sql.Date[] a = batch.getDates(c);
+            return (ps, r, cal) -> BindHelper.bindSQLDate(ps, pos,
+                    isNull(nulls, r) ? null : a[r], cal);
+        }
+        case TIME: {
+            Time[] a = batch.getTimes(c);
+            return (ps, r, cal) -> BindHelper.bindSQLTime(ps, pos,
+                    isNull(nulls, r) ? null : a[r]);
+        }
+        case TIMESTAMP: {
+            Timestamp[] a = batch.getTimestamps(c);
+            return (ps, r, cal) -> BindHelper.bindSQLTimestamp(ps, pos,
+                    isNull(nulls, r) ? null : a[r], cal);
+        }
+        case BYTES: {
+            byte[][] a = batch.getRaws(c);
+            return (ps, r, cal) -> BindHelper.bindByteArray(ps, pos,
+                    isNull(nulls, r) ? null : a[r]);
+        }
+        default:
+            throw new IllegalArgumentException("unknown ColumnType " + batch.getColumnType(c));
+        }
+    }
+
+}
@@ -0,0 +1,204 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.impl;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+import com.cg.sqlutil.ColumnType;
+
+// growable buffer for one column of a ColumnBatch. Values are appended row by row directly from
+// the ResultSet, primitive columns never create a wrapper object.
+abstract class ColumnBuffer {
+
+    protected int size;
+    private long[] nulls; // null: no null seen so far
+
+    abstract void append(ResultSet rs, int pos) throws SQLException;
+
+    // the (not trimmed) value array
+    abstract Object values();
+
+    int size() {
+        return size;
+    }
+
+    // one bit per row, at least (size+63)/64 words
+    long[] nullBitmap() {
+        int words = (size + 63) >>> 6;
+        if (nulls != null && nulls.length < words)
+            nulls = Arrays.copyOf(nulls, words);
+        return nulls;
+    }
+
+    protected final void markNull(int row) {
+        if (nulls == null)
+            nulls = new long[Math.max(1, (row >>> 6) + 1) * 2];
+        else if ((row >>> 6) >= nulls.length)
+            nulls = Arrays.copyOf(nulls, Math.max(nulls.length * 2, (row >>> 6) + 1));
+        nulls[row >>> 6] |= 1L << row;
+    }
+
+    protected static int grow(int capacity) {
+        return capacity < 16 ? 16 : capacity + (capacity >> 1);
+    }
+
+    static ColumnBuffer create(ColumnType type, int initialCapacity) {
+        int cap = Math.max(16, initialCapacity);
+        switch (type) {
+        case INTEGER:
+            return new IntBuffer(cap);
+        case LONG:
+            return new LongBuffer(cap);
+        case FLOAT:
+        case DOUBLE:
+            return new DoubleBuffer(cap);
+        case BOOLEAN:
+            return new BooleanBuffer(cap);
+        case STRING:
+            return new ObjectBuffer<>(new String[cap], (rs, pos) -> rs.getString(pos));
+        case BIGDECIMAL:
+            return new ObjectBuffer<>(new BigDecimal[cap], (rs, pos) -> rs.getBigDecimal(pos));
+        case DATE:
+            return new ObjectBuffer<>(new java.sql.Date[cap], (rs, pos) -> rs.getDate(pos));
+        case TIME:
+            return new ObjectBuffer<>(new Time[cap], (rs, pos) -> rs.getTime(pos));
+        case TIMESTAMP:
+            return new ObjectBuffer<>(new Timestamp[cap], (rs, pos) -> rs.getTimestamp(pos));
+        case BYTES:
+            return new ObjectBuffer<>(new byte[cap][], (rs, pos) -> rs.getBytes(pos));
+        default:
+            throw new IllegalArgumentException("no buffer for " + type);
+        }
+    }
+
+    static final class IntBuffer extends ColumnBuffer {
+        private int[] values;
+
+        IntBuffer(int capacity) {
+            values = new int[capacity];
+        }
+
+        @Override
+        void append(ResultSet rs, int pos) throws SQLException {
+            if (size == values.length)
+                values = Arrays.copyOf(values, grow(size));
+            values[size] = rs.getInt(pos);
+            if (rs.wasNull())
+                markNull(size);
+            size++;
+        }
+
+        @Override
+        Object values() {
+            return values;
+        }
+    }
+
+    static final class LongBuffer extends ColumnBuffer {
+        private long[] values;
+
+        LongBuffer(int capacity) {
+            values = new long[capacity];
+        }
+
+        @Override
+        void append(ResultSet rs, int pos) throws SQLException {
+            if (size == values.length)
+                values = Arrays.copyOf(values, grow(size));
+            values[size] = rs.getLong(pos);
+            if (rs.wasNull())
+                markNull(size);
+            size++;
+        }
+
+        @Override
+        Object values() {
+            return values;
+        }
+    }
+
+    static final class DoubleBuffer extends ColumnBuffer {
+        private double[] values;
+
+        DoubleBuffer(int capacity) {
+            values = new double[capacity];
+        }
+
+        @Override
+        void append(ResultSet rs, int pos) throws SQLException {
+            if (size == values.length)
+                values = Arrays.copyOf(values, grow(size));
+            values[size] = rs.getDouble(pos);
+            if (rs.wasNull())
+                markNull(size);
+            size++;
+        }
+
+        @Override
+        Object values() {
+            return values;
+        }
+    }
+
+    static final class BooleanBuffer extends ColumnBuffer {
+        private boolean[] values;
+
+        BooleanBuffer(int capacity) {
+            values = new boolean[capacity];
+        }
+
+        @Override
+        void append(ResultSet rs, int pos) throws SQLException {
+            if (size == values.length)
+                values = Arrays.copyOf(values, grow(size));
+            values[size] = rs.getBoolean(pos);
+            if (rs.wasNull())
+                markNull(size);
+            size++;
+        }
+
+        @Override
+        Object values() {
+            return values;
+        }
+    }
+
+    interface ObjectGetter<T> {
+        T get(ResultSet rs, int pos) throws SQLException;
+    }
+
+    static final class ObjectBuffer<T> extends ColumnBuffer {
+        private T[] values;
+        private final ObjectGetter<T> getter;
+
+        ObjectBuffer(T[] values, ObjectGetter<T> getter) {
+            this.values = values;
+            this.getter = getter;
+        }
+
+        @Override
+        void append(ResultSet rs, int pos) throws SQLException {
+            if (size == values.length)
+                values = Arrays.copyOf(values, grow(size));
+            T v = getter.get(rs, pos);
+            values[size] = v;
+            if (v == null)
+                markNull(size);
+            size++;
+        }
+
+        @Override
+        Object values() {
+            return values;
+        }
+    }
+
+}
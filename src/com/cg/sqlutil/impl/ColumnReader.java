@@ -0,0 +1,105 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.impl;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.cg.sqlutil.ColumnType;
+
+// reads one column of the current row. There is one stateless reader per ColumnType, the type
+// resolution is done once per result shape (see ResultShape), not per value.
+@FunctionalInterface
+interface ColumnReader {
+
+    Object read(ResultSet rs, int pos) throws SQLException;
+
+    ColumnReader STRING = (rs, pos) -> rs.getString(pos);
+
+    ColumnReader INTEGER = (rs, pos) -> {
+        int v = rs.getInt(pos);
+        if (rs.wasNull())
+            return null;
+        return v;
+    };
+
+    ColumnReader LONG = (rs, pos) -> {
+        long v = rs.getLong(pos);
+        if (rs.wasNull())
+            return null;
+        return v;
+    };
+
+    ColumnReader BIGDECIMAL = (rs, pos) -> rs.getBigDecimal(pos);
+
+    ColumnReader FLOAT = (rs, pos) -> {
+        float v = rs.getFloat(pos);
+        if (rs.wasNull())
+            return null;
+        return v;
+    };
+
+    ColumnReader DOUBLE = (rs, pos) -> {
+        double v = rs.getDouble(pos);
+        if (rs.wasNull())
+            return null;
+        return v;
+    };
+
+    ColumnReader DATE = (rs, pos) -> rs.getDate(pos);
+
+    ColumnReader TIME = (rs, pos) -> rs.getTime(pos);
+
+    ColumnReader TIMESTAMP = (rs, pos) -> rs.getTimestamp(pos);
+
+    ColumnReader BOOLEAN = (rs, pos) -> {
+        boolean v = rs.getBoolean(pos);
+        if (rs.wasNull())
+            return null;
+        return v;
+    };
+
+    ColumnReader BYTES = (rs, pos) -> rs.getBytes(pos);
+
+    static ColumnReader of(ColumnType columnType) {
+        switch (columnType) {
+        case STRING:
+            return STRING;
+        case INTEGER:
+            return INTEGER;
+        case LONG:
+            return LONG;
+        case BIGDECIMAL:
+            return BIGDECIMAL;
+        case FLOAT:
+            return FLOAT;
+        case DOUBLE:
+            return DOUBLE;
+        case DATE:
+            return DATE;
+        case TIME:
+            return TIME;
+        case TIMESTAMP:
+            return TIMESTAMP;
+        case BOOLEAN:
+            return BOOLEAN;
+        case BYTES:
+            return BYTES;
+        default:
+            throw new IllegalArgumentException("unknown columnType " + columnType);
+        }
+    }
+
+    // for columns without mapping. Fails only if a value is read, so empty results still work.
+    static ColumnReader unsupported(String selectStmt, int n, int sqlType) {
+        return (rs, pos) -> {
+            throw new UnsupportedOperationException("Cannot convert db-value to Java, column #"
+                    + pos + " in sql <<" + selectStmt + ">>, value of resultTypes[" + n + "]="
+                    + sqlType);
+        };
+    }
+
+}
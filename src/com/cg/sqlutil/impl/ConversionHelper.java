@@ -7,10 +7,13 @@ package com.cg.sqlutil.impl;
 
 import java.math.BigDecimal;
 import java.sql.Timestamp;
+import java.sql.Types;
 import java.util.Hashtable;
 import java.util.List;
 
+import com.cg.sqlutil.ColumnType;
 import com.cg.sqlutil.Row;
+import com.cg.sqlutil.SQLUtilInterface.DBProduct;
 
 public final class ConversionHelper {
 
@@ -204,6 +207,78 @@ public final class ConversionHelper {
         return h;
     }
 
+    // maps a java.sql.Types value of a selected column to its java representation.
+    // returns null if there is no mapping.
+    public static ColumnType toColumnType(int sqlType, DBProduct dbProduct) {
+        switch (sqlType) {
+        case Types.VARCHAR:
+        case Types.CHAR:
+        case Types.LONGVARCHAR:
+            return ColumnType.STRING;
+        case Types.SMALLINT:
+            return ColumnType.INTEGER;
+        case Types.INTEGER:
+        case Types.BIGINT:
+            // FIXME: ? does bigint always match to getLong?
+            return ColumnType.LONG;
+        case Types.NUMERIC:
+        case Types.DECIMAL:
+            return ColumnType.BIGDECIMAL;
+        case Types.DATE:
+            return ColumnType.DATE;
+        case Types.REAL:
+            return ColumnType.FLOAT;
+        case Types.DOUBLE:
+            return ColumnType.DOUBLE;
+        case Types.TIMESTAMP:
+            return ColumnType.TIMESTAMP;
+        case Types.TIME:
+            return ColumnType.TIME;
+        case Types.BIT:
+        case Types.BOOLEAN:
+            return ColumnType.BOOLEAN;
+        case Types.BINARY:
+        case Types.VARBINARY:
+        case Types.LONGVARBINARY:
+            return ColumnType.BYTES;
+        default:
+            // all special or dependent values....
+            if (dbProduct == DBProduct.POSTGRESQL) {
+                // numbers are hardcoded, so no postgres driver is referenced.
+                switch (sqlType) {
+                case 8: //float8
+                    return ColumnType.DOUBLE;
+                case -5: // smallint
+                    return ColumnType.LONG;
+                case 1111: // json
+                    return ColumnType.STRING;
+                }
+            } else if (dbProduct == DBProduct.MSSQLSERVER) {
+                switch (sqlType) {
+                case -155: // DATETIMEOFFSET
+                    return ColumnType.TIMESTAMP;
+                }
+            } else if (dbProduct == DBProduct.ORACLE) {
+                switch (sqlType) {
+                case 101: // DOUBLE?
+                    return ColumnType.DOUBLE;
+                case -101: // Timestamp with Time Zone
+                    return ColumnType.TIMESTAMP;
+                case 2005: // clob
+                    return ColumnType.STRING;
+                }
+            }
+            return null;
+        }
+    }
+
+    public static ColumnType[] toColumnTypes(int[] sqlTypes, DBProduct dbProduct) {
+        ColumnType[] types = new ColumnType[sqlTypes.length];
+        for (int i = 0; i < sqlTypes.length; i++)
+            types[i] = toColumnType(sqlTypes[i], dbProduct);
+        return types;
+    }
+
     public static String toRaw(Object object) {
     	// may be byte[]
         throw new IllegalStateException("not implemented");
@@ -0,0 +1,217 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.impl;
+
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Calendar;
+import java.util.Iterator;
+
+// rows in the text format of PostgreSQL's COPY FROM STDIN, encoded while the driver reads: only
+// the current row is kept. Columns are tab separated, null is \N, rows end with \n. Encoders are
+// chosen once per column by java.sql.Types (the same types BindHelper binds), without bindTypes
+// the types are derived from the first row. The first row is verified like a batch.
+// DATE and TIMESTAMP are written in the zone of the calendar (SQLUtil.getCalendar(), like
+// setDate/setTimestamp with a calendar), TIMESTAMP_WITH_TIMEZONE with an explicit offset.
+final class CopyTextReader extends Reader {
+
+    @FunctionalInterface
+    private interface Encoder {
+        void encode(StringBuilder sb, Object val);
+    }
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Iterator<Object[]> rows;
+    private final Calendar calendar;
+    private int[] bindTypes;
+    private Encoder[] encoders;
+    private final StringBuilder row = new StringBuilder(256);
+    private int pos;
+    private long rowCount;
+
+    // calendar may be null (default time zone)
+    CopyTextReader(Iterator<Object[]> rows, int[] bindTypes, Calendar calendar) {
+        this.rows = rows;
+        this.bindTypes = bindTypes;
+        // a copy, set for every value
+        this.calendar = calendar == null ? Calendar.getInstance() : (Calendar) calendar.clone();
+    }
+
+    long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) {
+        int n = 0;
+        while (n < len) {
+            if (pos == row.length() && !nextRow())
+                break;
+            int count = Math.min(len - n, row.length() - pos);
+            row.getChars(pos, pos + count, cbuf, off + n);
+            pos += count;
+            n += count;
+        }
+        return n == 0 && len > 0 ? -1 : n;
+    }
+
+    private boolean nextRow() {
+        row.setLength(0);
+        pos = 0;
+        if (!rows.hasNext())
+            return false;
+        Object[] values = rows.next();
+        if (encoders == null)
+            compile(values);
+        else if (values.length != encoders.length)
+            throw new IllegalArgumentException("row " + rowCount + " must have "
+                    + encoders.length + " values, found " + values.length);
+        for (int c = 0; c < values.length; c++) {
+            if (c > 0)
+                row.append('\t');
+            Object v = values[c];
+            if (v == null)
+                row.append("\\N");
+            else
+                encoders[c].encode(row, v);
+        }
+        row.append('\n');
+        rowCount++;
+        return true;
+    }
+
+    private void compile(Object[] first) {
+        try {
+            if (bindTypes == null)
+                bindTypes = BindHelper.createBindTypeArray(first);
+            else
+                BindHelper.verifyNotMatchingClassesAndBindings(first, bindTypes);
+        } catch (SQLException sqle) {
+            throw new IllegalArgumentException(sqle.getMessage(), sqle);
+        }
+        encoders = new Encoder[bindTypes.length];
+        for (int c = 0; c < bindTypes.length; c++)
+            encoders[c] = encoder(c, bindTypes[c]);
+    }
+
+    private Encoder encoder(int n, int sqltype) {
+        switch (sqltype) {
+        case Types.CHAR:
+        case Types.VARCHAR:
+        case Types.LONGVARCHAR:
+        case Types.LONGNVARCHAR:
+        case Types.NVARCHAR:
+        case Types.NCHAR:
+            return (sb, v) -> escape(sb, (String) v);
+        case Types.NUMERIC:
+        case Types.DECIMAL:
+            return (sb, v) -> sb.append(((BigDecimal) v).toPlainString());
+        case Types.TINYINT:
+        case Types.SMALLINT:
+        case Types.INTEGER:
+        case Types.BIGINT:
+        case Types.REAL:
+        case Types.FLOAT:
+        case Types.DOUBLE:
+            return (sb, v) -> sb.append(v);
+        case Types.BIT:
+        case Types.BOOLEAN:
+            return (sb, v) -> sb.append((Boolean) v ? 't' : 'f');
+        case Types.DATE:
+            return (sb, v) -> date(sb, (java.util.Date) v);
+        case Types.TIME:
+        case Types.TIME_WITH_TIMEZONE:
+            return (sb, v) -> sb.append(v);
+        case Types.TIMESTAMP:
+            return (sb, v) -> timestamp(sb, (java.util.Date) v, false);
+        case Types.TIMESTAMP_WITH_TIMEZONE:
+            return (sb, v) -> timestamp(sb, (java.util.Date) v, true);
+        case Types.BINARY:
+        case Types.VARBINARY:
+        case Types.LONGVARBINARY:
+            // bytea hex format, the backslash escaped for the text format
+            return (sb, v) -> {
+                byte[] b = (byte[]) v;
+                sb.append("\\\\x");
+                for (byte x : b)
+                    sb.append(HEX[(x >> 4) & 0xf]).append(HEX[x & 0xf]);
+            };
+        default:
+            throw new IllegalArgumentException(
+                    "COPY: unmatched value bindTypes[" + n + "], value=" + sqltype);
+        }
+    }
+
+    // yyyy-mm-dd
+    private void date(StringBuilder sb, java.util.Date d) {
+        calendar.setTimeInMillis(d.getTime());
+        pad(sb, calendar.get(Calendar.YEAR), 4).append('-');
+        pad(sb, calendar.get(Calendar.MONTH) + 1, 2).append('-');
+        pad(sb, calendar.get(Calendar.DAY_OF_MONTH), 2);
+    }
+
+    // yyyy-mm-dd hh:mm:ss[.fffffffff][+hh:mm]
+    private void timestamp(StringBuilder sb, java.util.Date d, boolean withOffset) {
+        date(sb, d);
+        sb.append(' ');
+        pad(sb, calendar.get(Calendar.HOUR_OF_DAY), 2).append(':');
+        pad(sb, calendar.get(Calendar.MINUTE), 2).append(':');
+        pad(sb, calendar.get(Calendar.SECOND), 2);
+        int nanos = d instanceof java.sql.Timestamp ? ((java.sql.Timestamp) d).getNanos()
+                : calendar.get(Calendar.MILLISECOND) * 1000000;
+        if (nanos > 0) {
+            int digits = 9;
+            while (nanos % 10 == 0) {
+                nanos /= 10;
+                digits--;
+            }
+            pad(sb.append('.'), nanos, digits);
+        }
+        if (withOffset) {
+            int minutes = (calendar.get(Calendar.ZONE_OFFSET) + calendar.get(Calendar.DST_OFFSET))
+                    / 60000;
+            sb.append(minutes < 0 ? '-' : '+');
+            pad(sb, Math.abs(minutes) / 60, 2).append(':');
+            pad(sb, Math.abs(minutes) % 60, 2);
+        }
+    }
+
+    private static StringBuilder pad(StringBuilder sb, int value, int digits) {
+        for (int limit = 10; --digits > 0; limit *= 10)
+            if (value < limit)
+                sb.append('0');
+        return sb.append(value);
+    }
+
+    private static void escape(StringBuilder sb, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+            case '\\':
+                sb.append("\\\\");
+                break;
+            case '\t':
+                sb.append("\\t");
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            case '\r':
+                sb.append("\\r");
+                break;
+            default:
+                sb.append(c);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+}
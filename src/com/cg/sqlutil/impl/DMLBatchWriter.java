@@ -0,0 +1,166 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.impl;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.cg.sqlutil.BatchOptions;
+import com.cg.sqlutil.BatchOptions.ErrorPolicy;
+import com.cg.sqlutil.BatchResult;
+import com.cg.sqlutil.BatchWriter;
+
+// BatchWriter of a SQLUtil: rows are bound to the (cached) statement with its BindPlan, the
+// statement is borrowed from the first pending row until the batch is executed. With
+// ErrorPolicy.ISOLATE the pending rows are kept (copied), to bind them again for the retries.
+final class DMLBatchWriter implements BatchWriter {
+
+    private final SQLUtil sqlUtil;
+    private final String dmlStmt;
+    private final int[] bindTypes;
+    private final BatchOptions options;
+    private final int maxRows;
+    private final long maxBytes;
+    private final long maxDelayNanos;
+    private final BatchResult stats = new BatchResult();
+    private final List<Object[]> pendingRows;
+
+    private PreparedStatement ps;
+    private BindPlan plan;
+    private int pending;
+    private long pendingBytes;
+    private long firstPendingNanos;
+    private int uncommittedBatches;
+    private boolean closed;
+
+    DMLBatchWriter(SQLUtil sqlUtil, String dmlStmt, int[] bindTypes, BatchOptions options) {
+        this.sqlUtil = sqlUtil;
+        this.dmlStmt = dmlStmt;
+        this.bindTypes = bindTypes == null ? null : bindTypes.clone();
+        this.options = options;
+        maxRows = options.getMaxRows() > 0 ? options.getMaxRows() : Integer.MAX_VALUE;
+        maxBytes = options.getMaxBytes() > 0 ? options.getMaxBytes() : Long.MAX_VALUE;
+        maxDelayNanos = options.getMaxDelayMillis() > 0 ? options.getMaxDelayMillis() * 1000000
+                : Long.MAX_VALUE;
+        pendingRows = options.getErrorPolicy() == ErrorPolicy.ISOLATE ? new ArrayList<>() : null;
+    }
+
+    @Override
+    public void add(Object... values) throws SQLException {
+        if (closed)
+            throw new IllegalStateException("BatchWriter is closed");
+        if (ps == null)
+            ps = sqlUtil.getPreparedStatement(dmlStmt);
+        try {
+            if (plan == null)
+                plan = sqlUtil.bindVariables(ps, values, bindTypes);
+            else {
+                if (sqlUtil.isBindDebug())
+                    plan.verify(values);
+                plan.bind(ps, values, sqlUtil.getCalendar());
+            }
+            ps.addBatch();
+        } catch (SQLException | RuntimeException e) {
+            if (pending == 0)
+                releaseStatement();
+            throw e;
+        }
+        if (pendingRows != null)
+            pendingRows.add(values.clone());
+        if (pending++ == 0)
+            firstPendingNanos = System.nanoTime();
+        if (maxBytes != Long.MAX_VALUE)
+            pendingBytes += BindHelper.estimateBytes(values);
+        if (pending >= maxRows || pendingBytes >= maxBytes
+                || (maxDelayNanos != Long.MAX_VALUE
+                        && System.nanoTime() - firstPendingNanos >= maxDelayNanos))
+            flush();
+    }
+
+    @Override
+    public int getPendingRows() {
+        return pending;
+    }
+
+    @Override
+    public int flush() throws SQLException {
+        if (pending == 0)
+            return 0;
+        int rows = pending;
+        int firstRow = stats.getRowCount();
+        pending = 0;
+        pendingBytes = 0;
+        try {
+            if (pendingRows != null)
+                sqlUtil.executeSubBatch(ps, dmlStmt, rows, firstRow,
+                        (stmt, i) -> plan.bind(stmt, pendingRows.get(i), sqlUtil.getCalendar()),
+                        options, stats);
+            else
+                sqlUtil.executeSubBatch(ps, dmlStmt, firstRow, options, stats);
+        } catch (SQLException sqle) {
+            SQLUtil.printError(System.out, sqle,
+                    dmlStmt + " (batch starting at row " + firstRow + ")", null, bindTypes);
+            try {
+                ps.clearBatch();
+            } catch (SQLException ignore) {
+            }
+            throw sqle;
+        } finally {
+            if (pendingRows != null)
+                pendingRows.clear();
+            releaseStatement();
+        }
+        uncommittedBatches++;
+        if (options.getCommitEvery() > 0 && uncommittedBatches >= options.getCommitEvery())
+            commit();
+        return rows;
+    }
+
+    private void commit() throws SQLException {
+        if (!sqlUtil.getConnection().getAutoCommit()) {
+            sqlUtil.commit();
+            stats.addCommit();
+        }
+        uncommittedBatches = 0;
+    }
+
+    private void releaseStatement() {
+        sqlUtil.releaseStatement(ps);
+        ps = null;
+    }
+
+    @Override
+    public BatchResult getStats() {
+        return stats;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (closed)
+            return;
+        try {
+            flush();
+            if (options.getCommitEvery() > 0 && uncommittedBatches > 0)
+                commit();
+        } finally {
+            closed = true;
+            if (ps != null) {
+                try {
+                    ps.clearBatch();
+                } catch (SQLException ignore) {
+                }
+                releaseStatement();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BatchWriter(" + dmlStmt + ", pending=" + pending + ", " + stats + ")";
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.impl;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.cg.sqlutil.UnitOfWork;
+
+// UnitOfWork of a SQLUtil: queued executions are grouped by sql text and bind types (without
+// bindTypes they're derived when queued, so all rows of a group bind the same way). Each group
+// is one executeDMLBatch at flush. Every call remembers its number within its sql text, so the
+// affected rows are returned in the order of the calls, whatever the grouping was.
+final class DMLUnitOfWork implements UnitOfWork {
+
+    private static final int[] NO_TYPES = new int[0];
+    private static final Object[] NO_VALUES = new Object[0];
+
+    private static final class Group {
+        final String sql;
+        final int[] bindTypes;
+        final List<Object[]> rows = new ArrayList<>();
+        // number of the call within its sql text
+        final List<Integer> calls = new ArrayList<>();
+
+        Group(String sql, int[] bindTypes) {
+            this.sql = sql;
+            this.bindTypes = bindTypes;
+        }
+
+        boolean matches(String sql, int[] bindTypes) {
+            return this.sql.equals(sql) && Arrays.equals(this.bindTypes, bindTypes);
+        }
+    }
+
+    private final SQLUtil sqlUtil;
+    private final Ordering ordering;
+    private final boolean autoCommit;
+    // in execution order
+    private final List<Group> groups = new ArrayList<>();
+    // BY_FIRST_USE: the groups of an sql text
+    private final Map<String, List<Group>> groupsBySQL = new HashMap<>();
+    // calls per sql text in the queue
+    private final Map<String, Integer> callsBySQL = new LinkedHashMap<>();
+    private final Map<String, int[]> executed = new LinkedHashMap<>();
+    private int queued;
+    private boolean flushing;
+    private boolean open = true;
+
+    DMLUnitOfWork(SQLUtil sqlUtil, Ordering ordering) throws SQLException {
+        this.sqlUtil = sqlUtil;
+        this.ordering = ordering;
+        autoCommit = sqlUtil.getConnection().getAutoCommit();
+        if (autoCommit)
+            sqlUtil.getConnection().setAutoCommit(false);
+    }
+
+    void queue(String sql, Object[] bindVariables, int[] bindTypes) throws SQLException {
+        Object[] row = bindVariables == null ? NO_VALUES : bindVariables.clone();
+        int[] types = bindTypes;
+        if (types == null)
+            types = row.length == 0 ? NO_TYPES : BindHelper.createBindTypeArray(row);
+        else
+            BindHelper.verifyNotMatchingClassesAndBindings(row, types);
+        Group g = null;
+        if (ordering == Ordering.STRICT) {
+            if (!groups.isEmpty() && groups.get(groups.size() - 1).matches(sql, types))
+                g = groups.get(groups.size() - 1);
+        } else {
+            List<Group> sameSQL = groupsBySQL.computeIfAbsent(sql, k -> new ArrayList<>(1));
+            for (Group candidate : sameSQL)
+                if (candidate.matches(sql, types))
+                    g = candidate;
+            if (g == null) {
+                g = new Group(sql, types);
+                sameSQL.add(g);
+                groups.add(g);
+            }
+        }
+        if (g == null) {
+            g = new Group(sql, types);
+            groups.add(g);
+        }
+        g.rows.add(row);
+        g.calls.add(callsBySQL.merge(sql, 1, Integer::sum) - 1);
+        queued++;
+    }
+
+    // before any other use of the SQLUtil
+    void flushQueue() throws SQLException {
+        if (!flushing && queued > 0)
+            flush();
+    }
+
+    @Override
+    public Ordering getOrdering() {
+        return ordering;
+    }
+
+    @Override
+    public int getQueuedCount() {
+        return queued;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public Map<String, int[]> flush() throws SQLException {
+        checkOpen();
+        Map<String, int[]> counts = new LinkedHashMap<>();
+        if (queued == 0)
+            return counts;
+        for (Map.Entry<String, Integer> e : callsBySQL.entrySet())
+            counts.put(e.getKey(), new int[e.getValue()]);
+        flushing = true;
+        try {
+            for (Group g : groups) {
+                int[] affected = sqlUtil.executeDMLBatch(g.sql, g.rows, g.bindTypes);
+                int[] target = counts.get(g.sql);
+                for (int i = 0; i < affected.length && i < g.calls.size(); i++)
+                    target[g.calls.get(i)] = affected[i];
+            }
+        } catch (SQLException | RuntimeException e) {
+            abort();
+            throw e;
+        } finally {
+            flushing = false;
+            clearQueue();
+        }
+        for (Map.Entry<String, int[]> e : counts.entrySet())
+            executed.merge(e.getKey(), e.getValue(), DMLUnitOfWork::concat);
+        return counts;
+    }
+
+    @Override
+    public Map<String, int[]> commit() throws SQLException {
+        checkOpen();
+        flush();
+        try {
+            sqlUtil.getConnection().commit();
+        } catch (SQLException sqle) {
+            abort();
+            throw sqle;
+        }
+        end();
+        return Collections.unmodifiableMap(executed);
+    }
+
+    @Override
+    public void rollback() throws SQLException {
+        checkOpen();
+        clearQueue();
+        try {
+            sqlUtil.getConnection().rollback();
+        } finally {
+            end();
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (open)
+            rollback();
+    }
+
+    private void abort() {
+        clearQueue();
+        try {
+            sqlUtil.getConnection().rollback();
+        } catch (SQLException ignore) {
+        }
+        end();
+    }
+
+    private void end() {
+        if (!open)
+            return;
+        open = false;
+        sqlUtil.endUnitOfWork(this);
+        if (autoCommit)
+            try {
+                sqlUtil.getConnection().setAutoCommit(true);
+            } catch (SQLException ignore) {
+            }
+    }
+
+    private void clearQueue() {
+        groups.clear();
+        groupsBySQL.clear();
+        callsBySQL.clear();
+        queued = 0;
+    }
+
+    private void checkOpen() {
+        if (!open)
+            throw new IllegalStateException("UnitOfWork is closed");
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        int[] r = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, r, a.length, b.length);
+        return r;
+    }
+
+    @Override
+    public String toString() {
+        return "UnitOfWork(" + ordering + ", queued=" + queued + ", open=" + open + ")";
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.impl;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.cg.sqlutil.AuditRecord;
+import com.cg.sqlutil.BatchOptions;
+import com.cg.sqlutil.BatchOptions.ErrorPolicy;
+import com.cg.sqlutil.BatchResult;
+import com.cg.sqlutil.GroupCommitExecutor;
+import com.cg.sqlutil.SQLUtilInterface;
+
+// the executor thread takes the first request, then everything that comes until maxDelay after
+// its submit (or maxStatements). So under load, when a transaction takes longer than maxDelay,
+// the next one takes whatever is queued and nobody waits for the timer. The requests of a
+// transaction are grouped by sql text and bind types like DMLUnitOfWork, each group is one
+// executeDMLBatch with ISOLATE, the listener puts the affected rows back to their requests.
+public final class GroupCommitDMLExecutor implements GroupCommitExecutor {
+
+    private static final AtomicLong THREAD_NO = new AtomicLong();
+    private static final Object[] NO_VALUES = new Object[0];
+    private static final int[] NO_TYPES = new int[0];
+
+    private static final class Request {
+        final String sql;
+        final Object[] row;
+        final int[] bindTypes;
+        final long submitted = System.nanoTime();
+        final CompletableFuture<Integer> future = new CompletableFuture<>();
+
+        Request(String sql, Object[] row, int[] bindTypes) {
+            this.sql = sql;
+            this.row = row;
+            this.bindTypes = bindTypes;
+        }
+    }
+
+    private static final Request STOP = new Request(null, NO_VALUES, NO_TYPES);
+
+    private static final class Group {
+        final String sql;
+        final int[] bindTypes;
+        final List<Request> requests = new ArrayList<>();
+        int[] affected;
+        List<BatchResult.Failure> failures;
+
+        Group(String sql, int[] bindTypes) {
+            this.sql = sql;
+            this.bindTypes = bindTypes;
+        }
+
+        boolean matches(Request r) {
+            return sql.equals(r.sql) && Arrays.equals(bindTypes, r.bindTypes);
+        }
+    }
+
+    private final SQLUtilInterface sql;
+    private final long maxDelayNanos;
+    private final int maxStatements;
+    private final LinkedBlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private final AtomicLong executed = new AtomicLong(), failed = new AtomicLong(),
+            transactions = new AtomicLong(), latencyNanos = new AtomicLong(),
+            maxLatencyNanos = new AtomicLong();
+    // submit() checks closed and queues under the read lock, so nothing comes after STOP
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private volatile boolean closed;
+
+    public GroupCommitDMLExecutor(SQLUtilInterface dedicatedSql, long maxDelayMicros,
+            int maxStatements) throws SQLException {
+        if (maxStatements < 1)
+            throw new IllegalArgumentException("maxStatements must be >0");
+        this.sql = dedicatedSql;
+        this.maxDelayNanos = Math.max(0, maxDelayMicros) * 1000;
+        this.maxStatements = maxStatements;
+        sql.getConnection().setAutoCommit(false);
+        thread = new Thread(this::run, "sqlutil-group-commit-" + THREAD_NO.incrementAndGet());
+        // close() is needed for the last statements anyway, don't keep the jvm running without it
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public CompletableFuture<Integer> submit(String dmlStmt, Object... bindVariables) {
+        return submit(dmlStmt, bindVariables, null);
+    }
+
+    @Override
+    public CompletableFuture<Integer> submit(String dmlStmt, Object[] bindVariables,
+            int[] bindTypes) {
+        if (closed)
+            throw new IllegalStateException("GroupCommitExecutor is closed");
+        Object[] row = bindVariables == null ? NO_VALUES : bindVariables;
+        int[] types = bindTypes;
+        try {
+            if (types == null)
+                // derived here, so all rows of a group bind the same way
+                types = row.length == 0 ? NO_TYPES : BindHelper.createBindTypeArray(row);
+            else
+                BindHelper.verifyNotMatchingClassesAndBindings(row, types);
+        } catch (SQLException | IllegalArgumentException e) {
+            // like a failing execution: the caller gets it from the future
+            CompletableFuture<Integer> f = new CompletableFuture<>();
+            f.completeExceptionally(e instanceof SQLException ? e
+                    : new SQLException(e.getMessage(), e));
+            return f;
+        }
+        Request r = new Request(dmlStmt, row, types);
+        closeLock.readLock().lock();
+        try {
+            if (closed)
+                throw new IllegalStateException("GroupCommitExecutor is closed");
+            queue.add(r);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        return r.future;
+    }
+
+    // waits also if the thread is interrupted (the queued statements must be committed and the
+    // connection closed), the interrupt flag is restored at the end
+    @Override
+    public synchronized void close() throws SQLException {
+        if (closed)
+            return;
+        boolean interrupted = false;
+        try {
+            closeLock.writeLock().lock();
+            try {
+                closed = true;
+                // unbounded, doesn't block
+                queue.add(STOP);
+            } finally {
+                closeLock.writeLock().unlock();
+            }
+            while (thread.isAlive())
+                try {
+                    thread.join();
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                }
+        } finally {
+            sql.closeConnection();
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Request> requests = new ArrayList<>(Math.min(maxStatements, 10000));
+        while (true) {
+            Request r;
+            try {
+                r = queue.take();
+            } catch (InterruptedException ie) {
+                continue; // only close() ends the thread
+            }
+            long deadline = r.submitted + maxDelayNanos;
+            while (r != STOP) {
+                requests.add(r);
+                if (requests.size() >= maxStatements)
+                    break;
+                r = queue.poll();
+                if (r == null) {
+                    long wait = deadline - System.nanoTime();
+                    if (wait <= 0)
+                        break;
+                    try {
+                        r = queue.poll(wait, TimeUnit.NANOSECONDS);
+                    } catch (InterruptedException ie) {
+                        break;
+                    }
+                    if (r == null)
+                        break;
+                }
+            }
+            if (!requests.isEmpty())
+                execute(requests);
+            requests.clear();
+            if (r == STOP)
+                return;
+        }
+    }
+
+    private void execute(List<Request> requests) {
+        long t0 = System.nanoTime();
+        AuditRecord audit = new AuditRecord(AUDIT_SQL,
+                new Object[] { requests.size(), (t0 - requests.get(0).submitted) / 1000 });
+        List<Group> groups = group(requests);
+        long affectedRows = 0;
+        try {
+            for (Group g : groups) {
+                int[] affected = new int[g.requests.size()];
+                List<Object[]> rows = new ArrayList<>(affected.length);
+                for (Request r : g.requests)
+                    rows.add(r.row);
+                BatchOptions options = BatchOptions.rows(0).onError(ErrorPolicy.ISOLATE)
+                        .listener((batchNo, firstRow, a) -> System.arraycopy(a, 0, affected,
+                                firstRow, a.length));
+                BatchResult result = sql.executeDMLBatch(g.sql, rows, g.bindTypes, options);
+                g.affected = affected;
+                g.failures = result.getFailures();
+                affectedRows += result.getAffectedRows();
+            }
+            sql.commit();
+        } catch (Throwable e) {
+            // also Errors: every future must complete, the thread must keep running
+            SQLException sqle = e instanceof SQLException ? (SQLException) e
+                    : new SQLException(e.getMessage(), e);
+            sql.rollbackSilent();
+            transactions.incrementAndGet();
+            audit.finish(sqle);
+            sql.getAudit().addAuditRecord(audit);
+            for (Request r : requests)
+                fail(r, sqle);
+            return;
+        }
+        transactions.incrementAndGet();
+        audit.finish((int) affectedRows);
+        sql.getAudit().addAuditRecord(audit);
+        for (Group g : groups) {
+            SQLException[] errors = new SQLException[g.requests.size()];
+            for (BatchResult.Failure f : g.failures)
+                errors[f.getIndex()] = f.getError();
+            for (int i = 0; i < errors.length; i++)
+                if (errors[i] != null)
+                    fail(g.requests.get(i), errors[i]);
+                else
+                    complete(g.requests.get(i), g.affected[i]);
+        }
+    }
+
+    private static List<Group> group(List<Request> requests) {
+        List<Group> groups = new ArrayList<>();
+        Map<String, List<Group>> groupsBySQL = new HashMap<>();
+        for (Request r : requests) {
+            List<Group> sameSQL = groupsBySQL.computeIfAbsent(r.sql, k -> new ArrayList<>(1));
+            Group g = null;
+            for (Group candidate : sameSQL)
+                if (candidate.matches(r))
+                    g = candidate;
+            if (g == null) {
+                g = new Group(r.sql, r.bindTypes);
+                sameSQL.add(g);
+                groups.add(g);
+            }
+            g.requests.add(r);
+        }
+        return groups;
+    }
+
+    private void complete(Request r, int affected) {
+        executed.incrementAndGet();
+        latency(r);
+        r.future.complete(affected);
+    }
+
+    private void fail(Request r, SQLException sqle) {
+        failed.incrementAndGet();
+        latency(r);
+        r.future.completeExceptionally(sqle);
+    }
+
+    private void latency(Request r) {
+        long nanos = System.nanoTime() - r.submitted;
+        latencyNanos.addAndGet(nanos);
+        maxLatencyNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    @Override
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    @Override
+    public long getExecutedCount() {
+        return executed.get();
+    }
+
+    @Override
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    @Override
+    public long getTransactionCount() {
+        return transactions.get();
+    }
+
+    @Override
+    public long getAvgLatencyMicros() {
+        long n = executed.get() + failed.get();
+        return n == 0 ? 0 : latencyNanos.get() / n / 1000;
+    }
+
+    @Override
+    public long getMaxLatencyMicros() {
+        return maxLatencyNanos.get() / 1000;
+    }
+
+    @Override
+    public String toString() {
+        return "GroupCommitExecutor(queued=" + getQueuedCount() + ", executed="
+                + getExecutedCount() + ", failed=" + getFailedCount() + ", transactions="
+                + getTransactionCount() + ", avgLatency=" + getAvgLatencyMicros() + "µs)";
+    }
+}
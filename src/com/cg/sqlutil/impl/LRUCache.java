@@ -8,20 +8,36 @@ package com.cg.sqlutil.impl;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.Hashtable;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+// statement cache of one SQLUtil (PreparedStatements and CallableStatements).
+// A statement is borrowed with acquire() and given back with release(). A borrowed statement is
+// never handed out twice (nested use of the same sql, e.g. inside forEachRow, gets a new
+// uncached statement) and never closed by the cache while it is in use: if it's evicted while
+// borrowed, it's closed on release.
 public final class LRUCache {
 
-    // TODO: Softreferences?
-    // TODO: maybe remove this thing completly. it seems to be the case, that there is no difference
-    //       in caching preparedstmts or not. I think the driver is caching them somehow internally.
-    //       so, maybe this class and the SQLUtil-PS-Caching can be removed completly.
+    private static final class Entry {
+        final PreparedStatement ps;
+        BindPlan bindPlan;
+        boolean inUse;
+        boolean evicted;
 
-    private LinkedList<String> lruSQL = new LinkedList<>();
-    private Hashtable<String, PreparedStatement> stmts = new Hashtable<>();
+        Entry(PreparedStatement ps) {
+            this.ps = ps;
+        }
+    }
+
+    // access order: the first entry is the least recently used
+    private final LinkedHashMap<StatementKey, Entry> entries = new LinkedHashMap<>(16, 0.75f,
+            true);
+    private final Map<PreparedStatement, Entry> borrowed = new IdentityHashMap<>();
     private int maxSize = 0;
+    private long hits, misses;
 
     public LRUCache() {
     }
@@ -31,71 +47,111 @@ public final class LRUCache {
     }
 
     public int size() {
-        return lruSQL.size();
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits;
     }
 
-    public boolean contains(String sql) {
-        return lruSQL.contains(sql);
+    public long getMisses() {
+        return misses;
     }
 
-    public PreparedStatement get(String sql) {
-        boolean removed = lruSQL.remove(sql);
-        if (!removed)
+    boolean contains(StatementKey key) {
+        return entries.containsKey(key);
+    }
+
+    // returns null if the statement is not cached (or in use), the caller prepares a new one then
+    PreparedStatement acquire(StatementKey key) throws SQLException {
+        Entry e = entries.get(key);
+        if (e != null && !e.inUse && e.ps.isClosed()) {
+            entries.remove(key);
+            e = null;
+        }
+        if (e == null || e.inUse) {
+            misses++;
             return null;
-        lruSQL.addFirst(sql);
-        return stmts.get(sql);
-    }
-
-    private void removeDeadStatements() throws SQLException {
-        List<String> del = new ArrayList<>();
-        for (String sql : lruSQL) {
-            PreparedStatement ps = stmts.get(sql);
-            if (ps == null)
-                del.add(sql);
-            else if (ps.isClosed())
-                del.add(sql);
         }
-        for (String sql : del)
-            remove(sql);
+        hits++;
+        e.inUse = true;
+        borrowed.put(e.ps, e);
+        return e.ps;
     }
 
-    public void add(String sql, PreparedStatement s) throws SQLException {
-        removeDeadStatements();
+    // adds a new statement, it's borrowed until release() is called
+    void add(StatementKey key, PreparedStatement ps) throws SQLException {
+        if (entries.containsKey(key))
+            return; // the cached one is in use, ps stays uncached
+        Entry e = new Entry(ps);
+        e.inUse = true;
+        entries.put(key, e);
+        borrowed.put(ps, e);
         if (maxSize > 0)
-            while (size() >= maxSize)
+            while (size() > maxSize)
                 removeLast();
-        lruSQL.addFirst(sql);
-        stmts.put(sql, s);
+    }
+
+    // false if ps is not in the cache, the caller must close it
+    boolean release(PreparedStatement ps) throws SQLException {
+        Entry e = borrowed.remove(ps);
+        if (e == null)
+            return false;
+        e.inUse = false;
+        if (e.evicted)
+            e.ps.close();
+        return true;
+    }
+
+    // the BindPlan of a borrowed statement, null if ps is not cached or has no plan yet
+    BindPlan getBindPlan(PreparedStatement ps) {
+        Entry e = borrowed.get(ps);
+        return e == null ? null : e.bindPlan;
+    }
+
+    void setBindPlan(PreparedStatement ps, BindPlan plan) {
+        Entry e = borrowed.get(ps);
+        if (e != null)
+            e.bindPlan = plan;
     }
 
     public boolean removeLast() throws SQLException {
-        if (lruSQL.size() == 0)
+        Iterator<Entry> it = entries.values().iterator();
+        if (!it.hasNext())
             return false;
-        String last = lruSQL.getLast();
-        return remove(last);
+        Entry e = it.next();
+        it.remove();
+        close(e);
+        return true;
     }
 
-    public boolean remove(String sql) throws SQLException {
-        PreparedStatement stmt = stmts.get(sql);
-        if (stmt != null) {
-            if (!stmt.isClosed())
-                stmt.close();
-            stmts.remove(sql);
-        }
-        return lruSQL.remove(sql);
+    boolean remove(StatementKey key) throws SQLException {
+        Entry e = entries.remove(key);
+        if (e == null)
+            return false;
+        close(e);
+        return true;
+    }
+
+    private void close(Entry e) throws SQLException {
+        if (e.inUse)
+            e.evicted = true;
+        else if (!e.ps.isClosed())
+            e.ps.close();
     }
 
     public void resize(int newMaxSize) throws SQLException {
         this.maxSize = newMaxSize;
-        while (size() > maxSize)
+        while (maxSize > 0 && size() > maxSize)
             removeLast();
     }
 
     public void clear() throws SQLException {
-        while (lruSQL.size() > 0)
-            removeLast();
-        assert (lruSQL.size() == 0);
-        assert (stmts.size() == 0);
+        List<Entry> all = new ArrayList<>(entries.values());
+        entries.clear();
+        for (Entry e : all)
+            close(e);
+        assert (entries.size() == 0);
     }
 
 }
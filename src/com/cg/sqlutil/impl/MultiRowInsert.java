@@ -0,0 +1,112 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.impl;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.cg.sqlutil.SQLUtilInterface.DBProduct;
+
+// "insert into t(a,b) values(?,?)" rewritten to insert n rows with one statement:
+//   insert into t(a,b) values (?,?),(?,?),...
+// Not on Oracle: INSERT ALL evaluates identity columns, sequence defaults and triggers once per
+// source row, all rows of the statement would get the same generated key.
+// n is a power of 2 (the bucket), so a batch of any size needs only a few different statements
+// and they stay in the statement cache. n is limited by the bind variables a product allows per
+// statement. Only inserts with a column list and nothing but ? as values are rewritten.
+final class MultiRowInsert {
+
+    private static final Pattern INSERT = Pattern.compile(
+            "\\s*insert\\s+into\\s+([\\w.\"`\\[\\]]+)\\s*(\\([^()]*\\))\\s*values\\s*"
+                    + "\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)\\s*;?\\s*",
+            Pattern.CASE_INSENSITIVE);
+
+    private final String table;
+    private final String columns;
+    private final int columnCount;
+    private final int maxWidth;
+    // index: log2(width)
+    private final String[] sqlByBucket;
+
+    private MultiRowInsert(String table, String columns, int columnCount, DBProduct dbProduct,
+            int maxRows) {
+        this.table = table;
+        this.columns = columns;
+        this.columnCount = columnCount;
+        int limit = Math.min(maxRows, maxBindVariables(dbProduct) / columnCount);
+        if (dbProduct == DBProduct.MSSQLSERVER)
+            limit = Math.min(limit, 1000); // max rows of a values list
+        this.maxWidth = limit < 1 ? 1 : Integer.highestOneBit(limit);
+        sqlByBucket = new String[Integer.numberOfTrailingZeros(maxWidth) + 1];
+    }
+
+    // null if sql can't be rewritten
+    static MultiRowInsert parse(String sql, DBProduct dbProduct, int maxRows) {
+        if (dbProduct == DBProduct.ORACLE)
+            return null;
+        Matcher m = INSERT.matcher(sql);
+        if (!m.matches())
+            return null;
+        String columns = m.group(2).trim();
+        int columnCount = columns.split(",").length;
+        int placeholders = 0;
+        String values = sql.substring(m.end(2));
+        for (int i = 0; i < values.length(); i++)
+            if (values.charAt(i) == '?')
+                placeholders++;
+        if (placeholders != columnCount)
+            return null;
+        MultiRowInsert mri = new MultiRowInsert(m.group(1), columns, columnCount, dbProduct,
+                maxRows);
+        return mri.maxWidth < 2 ? null : mri;
+    }
+
+    private static int maxBindVariables(DBProduct dbProduct) {
+        switch (dbProduct) {
+        case POSTGRESQL:
+            return 32767;
+        case MYSQL:
+            return 65535;
+        case MSSQLSERVER:
+            return 2100;
+        default:
+            return 1000;
+        }
+    }
+
+    int getColumnCount() {
+        return columnCount;
+    }
+
+    int getMaxWidth() {
+        return maxWidth;
+    }
+
+    // the largest bucket for rows rows
+    int getWidth(int rows) {
+        return Integer.highestOneBit(Math.min(rows, maxWidth));
+    }
+
+    // width must be a bucket
+    String getSQL(int width) {
+        int b = Integer.numberOfTrailingZeros(width);
+        String sql = sqlByBucket[b];
+        if (sql == null) {
+            StringBuilder row = new StringBuilder(columnCount * 2 + 1).append('(');
+            for (int c = 0; c < columnCount; c++)
+                row.append(c == 0 ? "?" : ",?");
+            row.append(')');
+            StringBuilder sb = new StringBuilder(width * (row.length() + 1) + 64);
+            sb.append("insert into ").append(table).append(columns).append(" values ");
+            for (int r = 0; r < width; r++)
+                sb.append(r == 0 ? "" : ",").append(row);
+            sql = sb.toString();
+            sqlByBucket[b] = sql;
+        }
+        return sql;
+    }
+
+}
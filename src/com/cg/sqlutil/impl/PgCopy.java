@@ -0,0 +1,75 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.impl;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// COPY FROM STDIN through the CopyManager of the PostgreSQL driver. The driver is not needed to
+// compile SQLUtil, so it's called by reflection.
+final class PgCopy {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Object copyManager;
+    private final Method copyIn;
+
+    private PgCopy(Object copyManager, Method copyIn) {
+        this.copyManager = copyManager;
+        this.copyIn = copyIn;
+    }
+
+    // null if con is not a connection of the PostgreSQL driver
+    static PgCopy of(Connection con) {
+        try {
+            Class<?> pgConnection = pgConnectionClass(con);
+            if (pgConnection == null || !con.isWrapperFor(pgConnection))
+                return null;
+            Object pg = con.unwrap(pgConnection);
+            Object copyManager = pgConnection.getMethod("getCopyAPI").invoke(pg);
+            Method copyIn = copyManager.getClass().getMethod("copyIn", String.class,
+                    Reader.class, int.class);
+            return new PgCopy(copyManager, copyIn);
+        } catch (SQLException | ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    // the driver may be loaded by the loader of the connection (e.g. in an app server) or ours
+    private static Class<?> pgConnectionClass(Connection con) {
+        for (ClassLoader cl : new ClassLoader[] { con.getClass().getClassLoader(),
+                PgCopy.class.getClassLoader() })
+            try {
+                if (cl != null)
+                    return Class.forName("org.postgresql.PGConnection", true, cl);
+            } catch (ClassNotFoundException cnfe) {
+                // try the next one
+            }
+        return null;
+    }
+
+    // returns the number of rows the server has inserted
+    long copyIn(String copySql, Reader from) throws SQLException {
+        try {
+            return (Long) copyIn.invoke(copyManager, copySql, from, BUFFER_SIZE);
+        } catch (InvocationTargetException ite) {
+            Throwable t = ite.getCause();
+            if (t instanceof SQLException)
+                throw (SQLException) t;
+            if (t instanceof RuntimeException)
+                throw (RuntimeException) t;
+            if (t instanceof IOException)
+                throw new SQLException("COPY failed: " + t.getMessage(), t);
+            throw new SQLException("COPY failed", t);
+        } catch (IllegalAccessException iae) {
+            throw new SQLException("cannot call CopyManager.copyIn", iae);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.impl;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Method;
+
+// records without compiling against java 16: java.lang.Record and Class.getRecordComponents() are
+// looked up once by reflection. The library still runs on java 8, where no class is a record.
+public final class RecordHelper {
+
+    // name, type and accessor of a record component
+    public static final class Component {
+        private final String name;
+        private final Class<?> type;
+        private final Method accessor;
+
+        Component(String name, Class<?> type, Method accessor) {
+            this.name = name;
+            this.type = type;
+            this.accessor = accessor;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Class<?> getType() {
+            return type;
+        }
+
+        public Method getAccessor() {
+            return accessor;
+        }
+
+        @Override
+        public String toString() {
+            return type.getName() + " " + accessor.getDeclaringClass().getName() + "." + name;
+        }
+    }
+
+    // null before java 16
+    private static final Class<?> RECORD;
+    private static final Method GET_RECORD_COMPONENTS, GET_NAME, GET_TYPE, GET_ACCESSOR;
+    static {
+        Class<?> record = null;
+        Method components = null, name = null, type = null, accessor = null;
+        try {
+            record = Class.forName("java.lang.Record");
+            components = Class.class.getMethod("getRecordComponents");
+            Class<?> rc = Class.forName("java.lang.reflect.RecordComponent");
+            name = rc.getMethod("getName");
+            type = rc.getMethod("getType");
+            accessor = rc.getMethod("getAccessor");
+        } catch (ReflectiveOperationException e) {
+            record = null;
+        }
+        RECORD = record;
+        GET_RECORD_COMPONENTS = components;
+        GET_NAME = name;
+        GET_TYPE = type;
+        GET_ACCESSOR = accessor;
+    }
+
+    private RecordHelper() {
+    }
+
+    public static boolean isRecord(Class<?> type) {
+        return RECORD != null && type.getSuperclass() == RECORD;
+    }
+
+    // in declaration order (the order of the canonical constructor)
+    public static Component[] getComponents(Class<?> recordType) {
+        if (!isRecord(recordType))
+            throw new IllegalArgumentException(recordType.getName() + " is not a record");
+        try {
+            Object[] rcs = (Object[]) GET_RECORD_COMPONENTS.invoke(recordType);
+            Component[] components = new Component[rcs.length];
+            for (int i = 0; i < rcs.length; i++)
+                components[i] = new Component((String) GET_NAME.invoke(rcs[i]),
+                        (Class<?>) GET_TYPE.invoke(rcs[i]),
+                        accessible((Method) GET_ACCESSOR.invoke(rcs[i])));
+            return components;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("cannot read record " + recordType.getName(), e);
+        }
+    }
+
+    // non-public classes (e.g. a private nested record) can only be used after setAccessible.
+    // If the module doesn't open the package, unreflect reports it later.
+    public static <T extends AccessibleObject> T accessible(T member) {
+        try {
+            member.setAccessible(true);
+        } catch (RuntimeException e) {
+            // SecurityException, InaccessibleObjectException (java 9+)
+        }
+        return member;
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.impl;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+import com.cg.sqlutil.ColumnIndex;
+import com.cg.sqlutil.ColumnRef;
+import com.cg.sqlutil.Row;
+import com.cg.sqlutil.RowView;
+
+// RowView on the current row of a ResultSet. One instance is used for all rows of a query.
+final class ResultSetRowView implements RowView {
+
+    private final ResultSet rs;
+    private final ResultShape shape;
+    private final ColumnIndex columnIndex;
+    private int rowNumber;
+
+    ResultSetRowView(ResultSet rs, ResultShape shape) {
+        this.rs = rs;
+        this.shape = shape;
+        this.columnIndex = shape.getColumnIndex();
+    }
+
+    void setRowNumber(int rowNumber) {
+        this.rowNumber = rowNumber;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return shape.getColumnCount();
+    }
+
+    @Override
+    public int getRowNumber() {
+        return rowNumber;
+    }
+
+    @Override
+    public int getColumnIndex(String column) {
+        return columnIndex.get(column);
+    }
+
+    @Override
+    public int getColumnIndex(ColumnRef column) {
+        return column.resolve(columnIndex);
+    }
+
+    @Override
+    public Object get(int idx) throws SQLException {
+        return shape.read(rs, idx);
+    }
+
+    @Override
+    public Object get(String column) throws SQLException {
+        return get(getColumnIndex(column));
+    }
+
+    @Override
+    public Object get(ColumnRef column) throws SQLException {
+        return get(getColumnIndex(column));
+    }
+
+    @Override
+    public Boolean getBoolean(int idx) throws SQLException {
+        boolean v = rs.getBoolean(idx + 1);
+        return rs.wasNull() ? null : v;
+    }
+
+    @Override
+    public Boolean getBoolean(String column) throws SQLException {
+        return getBoolean(getColumnIndex(column));
+    }
+
+    @Override
+    public Boolean getBoolean(ColumnRef column) throws SQLException {
+        return getBoolean(getColumnIndex(column));
+    }
+
+    @Override
+    public Long getLong(int idx) throws SQLException {
+        long v = rs.getLong(idx + 1);
+        return rs.wasNull() ? null : v;
+    }
+
+    @Override
+    public Long getLong(String column) throws SQLException {
+        return getLong(getColumnIndex(column));
+    }
+
+    @Override
+    public Long getLong(ColumnRef column) throws SQLException {
+        return getLong(getColumnIndex(column));
+    }
+
+    @Override
+    public Integer getInt(int idx) throws SQLException {
+        int v = rs.getInt(idx + 1);
+        return rs.wasNull() ? null : v;
+    }
+
+    @Override
+    public Integer getInt(String column) throws SQLException {
+        return getInt(getColumnIndex(column));
+    }
+
+    @Override
+    public Integer getInt(ColumnRef column) throws SQLException {
+        return getInt(getColumnIndex(column));
+    }
+
+    @Override
+    public Double getDouble(int idx) throws SQLException {
+        double v = rs.getDouble(idx + 1);
+        return rs.wasNull() ? null : v;
+    }
+
+    @Override
+    public Double getDouble(String column) throws SQLException {
+        return getDouble(getColumnIndex(column));
+    }
+
+    @Override
+    public Double getDouble(ColumnRef column) throws SQLException {
+        return getDouble(getColumnIndex(column));
+    }
+
+    @Override
+    public BigDecimal getBigDecimal(int idx) throws SQLException {
+        return rs.getBigDecimal(idx + 1);
+    }
+
+    @Override
+    public BigDecimal getBigDecimal(String column) throws SQLException {
+        return getBigDecimal(getColumnIndex(column));
+    }
+
+    @Override
+    public BigDecimal getBigDecimal(ColumnRef column) throws SQLException {
+        return getBigDecimal(getColumnIndex(column));
+    }
+
+    @Override
+    public Timestamp getTimestamp(int idx) throws SQLException {
+        return rs.getTimestamp(idx + 1);
+    }
+
+    @Override
+    public Timestamp getTimestamp(String column) throws SQLException {
+        return getTimestamp(getColumnIndex(column));
+    }
+
+    @Override
+    public Timestamp getTimestamp(ColumnRef column) throws SQLException {
+        return getTimestamp(getColumnIndex(column));
+    }
+
+    @Override
+    public String getString(int idx) throws SQLException {
+        return rs.getString(idx + 1);
+    }
+
+    @Override
+    public String getString(String column) throws SQLException {
+        return getString(getColumnIndex(column));
+    }
+
+    @Override
+    public String getString(ColumnRef column) throws SQLException {
+        return getString(getColumnIndex(column));
+    }
+
+    @Override
+    public byte[] getRaw(int idx) throws SQLException {
+        return rs.getBytes(idx + 1);
+    }
+
+    @Override
+    public byte[] getRaw(String column) throws SQLException {
+        return getRaw(getColumnIndex(column));
+    }
+
+    @Override
+    public byte[] getRaw(ColumnRef column) throws SQLException {
+        return getRaw(getColumnIndex(column));
+    }
+
+    @Override
+    public long getLongValue(int idx) throws SQLException {
+        return rs.getLong(idx + 1);
+    }
+
+    @Override
+    public int getIntValue(int idx) throws SQLException {
+        return rs.getInt(idx + 1);
+    }
+
+    @Override
+    public double getDoubleValue(int idx) throws SQLException {
+        return rs.getDouble(idx + 1);
+    }
+
+    @Override
+    public boolean getBooleanValue(int idx) throws SQLException {
+        return rs.getBoolean(idx + 1);
+    }
+
+    @Override
+    public boolean wasNull() throws SQLException {
+        return rs.wasNull();
+    }
+
+    @Override
+    public Row toRow() throws SQLException {
+        return new Row(shape.readRow(rs), columnIndex);
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.impl;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.cg.sqlutil.ColumnIndex;
+import com.cg.sqlutil.ColumnType;
+import com.cg.sqlutil.SQLUtilInterface.DBProduct;
+
+// the compiled column readers and column labels of one select statement. A row is read by a plain
+// loop over the readers, all type and product dependent decisions are made when the shape is created.
+final class ResultShape {
+
+    private final int[] resultTypes;
+    private final String[] labels;
+    private final ColumnIndex columnIndex;
+    private final ColumnType[] columnTypes;
+    private final ColumnReader[] readers;
+    // record/bean mappers of this shape, created on first use
+    private Map<Class<?>, RowMapper<?>> mappers;
+
+    ResultShape(String selectStmt, int[] resultTypes, String[] labels, DBProduct dbProduct) {
+        this.resultTypes = resultTypes;
+        this.labels = labels;
+        // shared by all rows
+        columnIndex = new ColumnIndex(labels);
+        columnTypes = ConversionHelper.toColumnTypes(resultTypes, dbProduct);
+        readers = new ColumnReader[resultTypes.length];
+        for (int n = 0; n < readers.length; n++)
+            readers[n] = columnTypes[n] == null
+                    ? ColumnReader.unsupported(selectStmt, n, resultTypes[n])
+                    : ColumnReader.of(columnTypes[n]);
+    }
+
+    int getColumnCount() {
+        return readers.length;
+    }
+
+    int[] getResultTypes() {
+        return resultTypes;
+    }
+
+    ColumnType[] getColumnTypes() {
+        return columnTypes;
+    }
+
+    String[] getLabels() {
+        return labels;
+    }
+
+    ColumnIndex getColumnIndex() {
+        return columnIndex;
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> RowMapper<T> getMapper(Class<T> type) {
+        if (mappers == null)
+            mappers = new HashMap<>();
+        return (RowMapper<T>) mappers.computeIfAbsent(type, t -> RowMapper.compile(t, labels));
+    }
+
+    boolean matches(int[] otherResultTypes, String[] otherLabels) {
+        return Arrays.equals(resultTypes, otherResultTypes) && Arrays.equals(labels, otherLabels);
+    }
+
+    Object read(ResultSet rs, int n) throws SQLException {
+        return readers[n].read(rs, n + 1);
+    }
+
+    Object[] readRow(ResultSet rs) throws SQLException {
+        Object[] row = new Object[readers.length];
+        for (int n = 0; n < readers.length; n++)
+            row[n] = readers[n].read(rs, n + 1);
+        return row;
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.impl;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.cg.sqlutil.ColumnType;
+import com.cg.sqlutil.RowBlock;
+
+// copies the current row of a ResultSet into a RowBlock.Builder. Like ResultShape, the appender
+// per column is chosen once, primitive values are never wrapped.
+final class RowBlockReader {
+
+    @FunctionalInterface
+    private interface Appender {
+        void append(ResultSet rs, int pos, RowBlock.Builder b, int col) throws SQLException;
+    }
+
+    private final Appender[] appenders;
+
+    RowBlockReader(String selectStmt, ResultShape shape) {
+        ColumnType[] columnTypes = shape.getColumnTypes();
+        appenders = new Appender[columnTypes.length];
+        for (int n = 0; n < columnTypes.length; n++) {
+            if (columnTypes[n] == null)
+                throw new UnsupportedOperationException("Cannot convert db-value to Java, column #"
+                        + (n + 1) + " in sql <<" + selectStmt + ">>, value of resultTypes[" + n
+                        + "]=" + shape.getResultTypes()[n]);
+            appenders[n] = appender(columnTypes[n]);
+        }
+    }
+
+    void appendRow(ResultSet rs, RowBlock.Builder b) throws SQLException {
+        for (int n = 0; n < appenders.length; n++)
+            appenders[n].append(rs, n + 1, b, n);
+        b.endRow();
+    }
+
+    private static Appender appender(ColumnType columnType) {
+        switch (columnType) {
+        case INTEGER:
+            return (rs, pos, b, col) -> {
+                int v = rs.getInt(pos);
+                if (rs.wasNull())
+                    b.setNull(col);
+                else
+                    b.setInt(col, v);
+            };
+        case LONG:
+            return (rs, pos, b, col) -> {
+                long v = rs.getLong(pos);
+                if (rs.wasNull())
+                    b.setNull(col);
+                else
+                    b.setLong(col, v);
+            };
+        case FLOAT:
+            return (rs, pos, b, col) -> {
+                float v = rs.getFloat(pos);
+                if (rs.wasNull())
+                    b.setNull(col);
+                else
+                    b.setDouble(col, v);
+            };
+        case DOUBLE:
+            return (rs, pos, b, col) -> {
+                double v = rs.getDouble(pos);
+                if (rs.wasNull())
+                    b.setNull(col);
+                else
+                    b.setDouble(col, v);
+            };
+        case BOOLEAN:
+            return (rs, pos, b, col) -> {
+                boolean v = rs.getBoolean(pos);
+                if (rs.wasNull())
+                    b.setNull(col);
+                else
+                    b.setBoolean(col, v);
+            };
+        case STRING:
+            return (rs, pos, b, col) -> b.setString(col, rs.getString(pos));
+        case BYTES:
+            return (rs, pos, b, col) -> b.setBytes(col, rs.getBytes(pos));
+        case BIGDECIMAL:
+            return (rs, pos, b, col) -> b.setBigDecimal(col, rs.getBigDecimal(pos));
+        case DATE:
+            return (rs, pos, b, col) -> b.setDate(col, rs.getDate(pos));
+        case TIME:
+            return (rs, pos, b, col) -> b.setDate(col, rs.getTime(pos));
+        case TIMESTAMP:
+            return (rs, pos, b, col) -> b.setTimestamp(col, rs.getTimestamp(pos));
+        default:
+            throw new IllegalArgumentException("unknown columnType " + columnType);
+        }
+    }
+
+}
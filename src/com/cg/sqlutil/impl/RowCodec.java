@@ -0,0 +1,207 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.impl;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+import com.cg.sqlutil.ColumnType;
+
+// binary form of one row, based on the ColumnTypes of a ResultShape. Layout:
+// null bitmap ((columns+7)/8 bytes), then the non-null values in column order:
+//   INTEGER/FLOAT: 4 bytes, LONG/DOUBLE/DATE/TIME: 8 bytes, BOOLEAN: 1 byte,
+//   TIMESTAMP: 8 bytes millis + 4 bytes nanos, STRING(utf-8)/BYTES: 4 bytes length + bytes,
+//   BIGDECIMAL: 4 bytes scale + 4 bytes length + unscaled value (two's complement)
+// The decoded values have the same Java types as the ColumnReaders return.
+final class RowCodec {
+
+    private final ColumnType[] columnTypes;
+    private final int nullBytes;
+    private byte[] buf = new byte[256];
+    private int pos;
+
+    RowCodec(ColumnType[] columnTypes) {
+        this.columnTypes = columnTypes;
+        nullBytes = (columnTypes.length + 7) >>> 3;
+    }
+
+    // encodes into an internal buffer, valid until the next call of encode
+    ByteBuffer encode(Object[] row) {
+        pos = 0;
+        ensure(nullBytes);
+        Arrays.fill(buf, 0, nullBytes, (byte) 0);
+        pos = nullBytes;
+        for (int n = 0; n < columnTypes.length; n++) {
+            Object v = row[n];
+            if (v == null) {
+                buf[n >>> 3] |= 1 << (n & 7);
+                continue;
+            }
+            switch (columnTypes[n]) {
+            case INTEGER:
+                putInt((Integer) v);
+                break;
+            case LONG:
+                putLong((Long) v);
+                break;
+            case FLOAT:
+                putInt(Float.floatToRawIntBits((Float) v));
+                break;
+            case DOUBLE:
+                putLong(Double.doubleToRawLongBits((Double) v));
+                break;
+            case BOOLEAN:
+                ensure(1);
+                buf[pos++] = (byte) (((Boolean) v) ? 1 : 0);
+                break;
+            case DATE:
+            case TIME:
+                putLong(((java.util.Date) v).getTime());
+                break;
+            case TIMESTAMP:
+                putLong(((Timestamp) v).getTime());
+                putInt(((Timestamp) v).getNanos());
+                break;
+            case STRING:
+                putBytes(((String) v).getBytes(StandardCharsets.UTF_8));
+                break;
+            case BYTES:
+                putBytes((byte[]) v);
+                break;
+            case BIGDECIMAL:
+                putInt(((BigDecimal) v).scale());
+                putBytes(((BigDecimal) v).unscaledValue().toByteArray());
+                break;
+            default:
+                throw new IllegalStateException("unknown columnType " + columnTypes[n]);
+            }
+        }
+        return ByteBuffer.wrap(buf, 0, pos);
+    }
+
+    // absolute reads only, so any number of threads can decode from the same buffer
+    Object[] decode(ByteBuffer in, int offset) {
+        Object[] row = new Object[columnTypes.length];
+        int p = offset + nullBytes;
+        for (int n = 0; n < columnTypes.length; n++) {
+            if ((in.get(offset + (n >>> 3)) & (1 << (n & 7))) != 0)
+                continue;
+            switch (columnTypes[n]) {
+            case INTEGER:
+                row[n] = in.getInt(p);
+                p += 4;
+                break;
+            case LONG:
+                row[n] = in.getLong(p);
+                p += 8;
+                break;
+            case FLOAT:
+                row[n] = Float.intBitsToFloat(in.getInt(p));
+                p += 4;
+                break;
+            case DOUBLE:
+                row[n] = Double.longBitsToDouble(in.getLong(p));
+                p += 8;
+                break;
+            case BOOLEAN:
+                row[n] = in.get(p) != 0;
+                p += 1;
+                break;
+            case DATE:
+                row[n] = new java.sql.Date(in.getLong(p));
+                p += 8;
+                break;
+            case TIME:
+                row[n] = new Time(in.getLong(p));
+                p += 8;
+                break;
+            case TIMESTAMP:
+                Timestamp ts = new Timestamp(in.getLong(p));
+                ts.setNanos(in.getInt(p + 8));
+                row[n] = ts;
+                p += 12;
+                break;
+            case STRING:
+                byte[] utf8 = getBytes(in, p);
+                row[n] = new String(utf8, StandardCharsets.UTF_8);
+                p += 4 + utf8.length;
+                break;
+            case BYTES:
+                byte[] b = getBytes(in, p);
+                row[n] = b;
+                p += 4 + b.length;
+                break;
+            case BIGDECIMAL:
+                int scale = in.getInt(p);
+                byte[] unscaled = getBytes(in, p + 4);
+                row[n] = new BigDecimal(new BigInteger(unscaled), scale);
+                p += 8 + unscaled.length;
+                break;
+            default:
+                throw new IllegalStateException("unknown columnType " + columnTypes[n]);
+            }
+        }
+        return row;
+    }
+
+    // rough heap size of a row read by ResultShape.readRow: Row + Object[] + values
+    long estimateHeapBytes(Object[] row) {
+        long bytes = 24 + 16 + 4L * row.length;
+        for (Object v : row) {
+            if (v == null || v instanceof Boolean)
+                continue;
+            if (v instanceof String)
+                bytes += 56 + ((String) v).length();
+            else if (v instanceof byte[])
+                bytes += 16 + ((byte[]) v).length;
+            else if (v instanceof BigDecimal)
+                bytes += 40 + (((BigDecimal) v).precision() > 18 ? 40 : 0);
+            else
+                bytes += 24;
+        }
+        return bytes;
+    }
+
+    private static byte[] getBytes(ByteBuffer in, int p) {
+        byte[] b = new byte[in.getInt(p)];
+        // absolute bulk get is java 13, a duplicate keeps the position of the shared buffer
+        ByteBuffer d = in.duplicate();
+        d.position(p + 4);
+        d.get(b);
+        return b;
+    }
+
+    private void ensure(int bytes) {
+        if (pos + bytes > buf.length)
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + bytes));
+    }
+
+    private void putInt(int v) {
+        ensure(4);
+        buf[pos++] = (byte) (v >>> 24);
+        buf[pos++] = (byte) (v >>> 16);
+        buf[pos++] = (byte) (v >>> 8);
+        buf[pos++] = (byte) v;
+    }
+
+    private void putLong(long v) {
+        putInt((int) (v >>> 32));
+        putInt((int) v);
+    }
+
+    private void putBytes(byte[] b) {
+        putInt(b.length);
+        ensure(b.length);
+        System.arraycopy(b, 0, buf, pos, b.length);
+        pos += b.length;
+    }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.impl;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.cg.sqlutil.ColumnIndex;
+import com.cg.sqlutil.Row;
+import com.cg.sqlutil.RowIterator;
+import com.cg.sqlutil.SQLUtilInterface.DBProduct;
+import com.cg.sqlutil.exception.UncheckedSQLException;
+
+// one open ResultSet. Every cursor owns its own PreparedStatement (never taken from the statement
+// cache), so any number of cursors can be open on the same connection at the same time.
+final class RowCursor implements RowIterator {
+
+    private final SQLUtil sqlUtil;
+    private PreparedStatement ps;
+    private ResultSet rs;
+    private ResultSetMetaData metaData;
+    private ResultShape shape;
+    private int colCount;
+    private int[] resultTypes;
+    private ColumnIndex columnIndex;
+    private Row next;
+    private boolean done;
+
+    RowCursor(SQLUtil sqlUtil, String selectStmt, Object[] bindVariables, int[] bindTypes,
+            int fetchSize) throws SQLException {
+        this.sqlUtil = sqlUtil;
+        try {
+            // not cached, so flush like getStatement() does
+            sqlUtil.flushUnitOfWork();
+            ps = sqlUtil.getConnection().prepareStatement(selectStmt);
+            sqlUtil.bindVariables(ps, bindVariables, bindTypes);
+            ps.setFetchSize(fetchSize);
+            rs = ps.executeQuery();
+            rs.setFetchSize(fetchSize);
+
+            metaData = rs.getMetaData();
+            shape = sqlUtil.getResultShape(selectStmt, metaData);
+            colCount = shape.getColumnCount();
+            resultTypes = shape.getResultTypes().clone();
+            columnIndex = shape.getColumnIndex();
+            for (int n = 0; n < colCount; n++) {
+                // a little hack. SQL.INTEGER are mapped to java long. Java long must be mapped to SQL.BIGINT
+                if (resultTypes[n] == Types.INTEGER)
+                    resultTypes[n] = Types.BIGINT;
+                // JSON hack postgres
+                if (sqlUtil.getDBProduct() == DBProduct.POSTGRESQL && resultTypes[n] == 1111)
+                    resultTypes[n] = Types.VARCHAR;
+            }
+        } catch (SQLException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    ResultShape getShape() {
+        return shape;
+    }
+
+    ResultSetMetaData getMetaData() {
+        return metaData;
+    }
+
+    int getColumnCount() {
+        return colCount;
+    }
+
+    int[] getResultTypes() {
+        return resultTypes;
+    }
+
+    // true if all rows were read or the cursor was closed
+    boolean isDone() {
+        return done && next == null;
+    }
+
+    // returns the next row or null if there are no more rows
+    Row fetch() throws SQLException {
+        if (next != null) {
+            Row r = next;
+            next = null;
+            return r;
+        }
+        if (done)
+            return null;
+        try {
+            if (!rs.next()) {
+                close();
+                return null;
+            }
+            return new Row(shape.readRow(rs), columnIndex);
+        } catch (SQLException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {
+            try {
+                next = fetch();
+            } catch (SQLException sqle) {
+                throw new UncheckedSQLException(sqle);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public Row next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        Row r = next;
+        next = null;
+        return r;
+    }
+
+    @Override
+    public void close() {
+        done = true;
+        sqlUtil.closeSilent(rs);
+        sqlUtil.closeSilent(ps);
+        rs = null;
+        ps = null;
+    }
+
+    Stream<Row> stream() {
+        Spliterator<Row> split = Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(split, false).onClose(this::close);
+    }
+
+    // objects are created directly from the ResultSet, there is no Row
+    <T> Stream<T> stream(RowMapper<T> mapper) {
+        Spliterator<T> split = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                if (done)
+                    return false;
+                T t;
+                try {
+                    if (!rs.next()) {
+                        close();
+                        return false;
+                    }
+                    t = mapper.map(rs);
+                } catch (SQLException sqle) {
+                    close();
+                    throw new UncheckedSQLException(sqle);
+                } catch (RuntimeException e) {
+                    close();
+                    throw e;
+                }
+                action.accept(t);
+                return true;
+            }
+        };
+        return StreamSupport.stream(split, false).onClose(this::close);
+    }
+
+}
@@ -0,0 +1,269 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.impl;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// creates objects of one class directly from the current row of a ResultSet. Compiled once per
+// (class, ResultShape): every column that is used gets a MethodHandle (ResultSet)value with the
+// column position bound, records get the canonical constructor with all these handles as
+// argument filters, so mapping a row is one invokeExact. No Row or Object[] is created.
+// Column labels match record components/bean properties ignoring case and '_' (FIRST_NAME matches
+// firstName). Records need a column for every component, beans only set properties that have a
+// column. Columns without component/property are ignored. Records are found with RecordHelper,
+// on java 8..15 every class is mapped as a bean.
+final class RowMapper<T> {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final Class<T> type;
+    // records: (ResultSet)Object
+    private final MethodHandle recordFactory;
+    // beans: ()Object and per property (Object, ResultSet)void
+    private final MethodHandle beanFactory;
+    private final MethodHandle[] setters;
+
+    private RowMapper(Class<T> type, MethodHandle recordFactory, MethodHandle beanFactory,
+            MethodHandle[] setters) {
+        this.type = type;
+        this.recordFactory = recordFactory;
+        this.beanFactory = beanFactory;
+        this.setters = setters;
+    }
+
+    T map(ResultSet rs) throws SQLException {
+        try {
+            if (recordFactory != null)
+                return type.cast((Object) recordFactory.invokeExact(rs));
+            Object o = (Object) beanFactory.invokeExact();
+            for (MethodHandle setter : setters)
+                setter.invokeExact(o, rs);
+            return type.cast(o);
+        } catch (SQLException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("cannot create " + type.getName(), t);
+        }
+    }
+
+    static <T> RowMapper<T> compile(Class<T> type, String[] labels) {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int n = 0; n < labels.length; n++)
+            columns.putIfAbsent(normalize(labels[n]), n + 1);
+        try {
+            if (RecordHelper.isRecord(type))
+                return compileRecord(type, columns);
+            return compileBean(type, columns);
+        } catch (ReflectiveOperationException roe) {
+            throw new IllegalArgumentException("cannot map rows to " + type.getName(), roe);
+        }
+    }
+
+    private static <T> RowMapper<T> compileRecord(Class<T> type, Map<String, Integer> columns)
+            throws ReflectiveOperationException {
+        RecordHelper.Component[] components = RecordHelper.getComponents(type);
+        Class<?>[] paramTypes = new Class<?>[components.length];
+        MethodHandle[] getters = new MethodHandle[components.length];
+        for (int i = 0; i < components.length; i++) {
+            paramTypes[i] = components[i].getType();
+            Integer pos = columns.get(normalize(components[i].getName()));
+            if (pos == null)
+                throw new IllegalArgumentException("no column for record component "
+                        + type.getSimpleName() + "." + components[i].getName() + ", columns: "
+                        + columns.keySet());
+            getters[i] = columnGetter(paramTypes[i], pos);
+        }
+        Constructor<T> ctor = RecordHelper.accessible(type.getDeclaredConstructor(paramTypes));
+        MethodHandle mh = LOOKUP.unreflectConstructor(ctor);
+        // (ResultSet, ResultSet, ...)T -> (ResultSet)T
+        mh = MethodHandles.filterArguments(mh, 0, getters);
+        mh = MethodHandles.permuteArguments(mh,
+                MethodType.methodType(type, ResultSet.class), new int[components.length]);
+        mh = mh.asType(MethodType.methodType(Object.class, ResultSet.class));
+        return new RowMapper<>(type, mh, null, null);
+    }
+
+    private static <T> RowMapper<T> compileBean(Class<T> type, Map<String, Integer> columns)
+            throws ReflectiveOperationException {
+        Constructor<T> ctor = RecordHelper.accessible(type.getDeclaredConstructor());
+        MethodHandle factory = LOOKUP.unreflectConstructor(ctor)
+                .asType(MethodType.methodType(Object.class));
+        List<MethodHandle> setters = new ArrayList<>();
+        for (Method m : type.getMethods()) {
+            if (Modifier.isStatic(m.getModifiers()) || m.getParameterCount() != 1
+                    || !m.getName().startsWith("set") || m.getName().length() < 4)
+                continue;
+            Integer pos = columns.get(normalize(m.getName().substring(3)));
+            if (pos == null)
+                continue;
+            MethodHandle getter = columnGetter(m.getParameterTypes()[0], pos);
+            // (bean, value)void -> (Object, ResultSet)void
+            MethodHandle setter = MethodHandles.filterArguments(
+                    LOOKUP.unreflect(RecordHelper.accessible(m)), 1, getter);
+            setters.add(setter.asType(
+                    MethodType.methodType(void.class, Object.class, ResultSet.class)));
+        }
+        return new RowMapper<>(type, null, factory, setters.toArray(new MethodHandle[0]));
+    }
+
+    private static String normalize(String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c != '_')
+                sb.append(Character.toLowerCase(c));
+        }
+        return sb.toString();
+    }
+
+    // (ResultSet)javaType for column pos
+    private static MethodHandle columnGetter(Class<?> javaType, int pos)
+            throws ReflectiveOperationException {
+        MethodHandle mh;
+        String reader = READERS.get(javaType);
+        if (reader != null) {
+            mh = LOOKUP.findStatic(RowMapper.class, reader,
+                    MethodType.methodType(javaType, ResultSet.class, int.class));
+        } else if (javaType.isEnum()) {
+            mh = LOOKUP.findStatic(RowMapper.class, "readEnum",
+                    MethodType.methodType(Enum.class, Class.class, ResultSet.class, int.class));
+            mh = MethodHandles.insertArguments(mh, 0, javaType);
+        } else {
+            // java.time, UUID, ... as far as the driver supports it
+            mh = LOOKUP.findStatic(RowMapper.class, "readObject",
+                    MethodType.methodType(Object.class, Class.class, ResultSet.class, int.class));
+            mh = MethodHandles.insertArguments(mh, 0, javaType);
+        }
+        mh = MethodHandles.insertArguments(mh, 1, pos);
+        return mh.asType(MethodType.methodType(javaType, ResultSet.class));
+    }
+
+    private static final Map<Class<?>, String> READERS = new HashMap<>();
+    static {
+        READERS.put(int.class, "readInt");
+        READERS.put(Integer.class, "readInteger");
+        READERS.put(long.class, "readLongValue");
+        READERS.put(Long.class, "readLong");
+        READERS.put(short.class, "readShortValue");
+        READERS.put(Short.class, "readShort");
+        READERS.put(double.class, "readDoubleValue");
+        READERS.put(Double.class, "readDouble");
+        READERS.put(float.class, "readFloatValue");
+        READERS.put(Float.class, "readFloat");
+        READERS.put(boolean.class, "readBooleanValue");
+        READERS.put(Boolean.class, "readBoolean");
+        READERS.put(String.class, "readString");
+        READERS.put(BigDecimal.class, "readBigDecimal");
+        READERS.put(Timestamp.class, "readTimestamp");
+        READERS.put(java.sql.Date.class, "readDate");
+        READERS.put(Time.class, "readTime");
+        READERS.put(byte[].class, "readBytes");
+    }
+
+    // primitives: null is 0/false, like in JDBC
+    static int readInt(ResultSet rs, int pos) throws SQLException {
+        return rs.getInt(pos);
+    }
+
+    static Integer readInteger(ResultSet rs, int pos) throws SQLException {
+        int v = rs.getInt(pos);
+        return rs.wasNull() ? null : v;
+    }
+
+    static long readLongValue(ResultSet rs, int pos) throws SQLException {
+        return rs.getLong(pos);
+    }
+
+    static Long readLong(ResultSet rs, int pos) throws SQLException {
+        long v = rs.getLong(pos);
+        return rs.wasNull() ? null : v;
+    }
+
+    static short readShortValue(ResultSet rs, int pos) throws SQLException {
+        return rs.getShort(pos);
+    }
+
+    static Short readShort(ResultSet rs, int pos) throws SQLException {
+        short v = rs.getShort(pos);
+        return rs.wasNull() ? null : v;
+    }
+
+    static double readDoubleValue(ResultSet rs, int pos) throws SQLException {
+        return rs.getDouble(pos);
+    }
+
+    static Double readDouble(ResultSet rs, int pos) throws SQLException {
+        double v = rs.getDouble(pos);
+        return rs.wasNull() ? null : v;
+    }
+
+    static float readFloatValue(ResultSet rs, int pos) throws SQLException {
+        return rs.getFloat(pos);
+    }
+
+    static Float readFloat(ResultSet rs, int pos) throws SQLException {
+        float v = rs.getFloat(pos);
+        return rs.wasNull() ? null : v;
+    }
+
+    static boolean readBooleanValue(ResultSet rs, int pos) throws SQLException {
+        return rs.getBoolean(pos);
+    }
+
+    static Boolean readBoolean(ResultSet rs, int pos) throws SQLException {
+        boolean v = rs.getBoolean(pos);
+        return rs.wasNull() ? null : v;
+    }
+
+    static String readString(ResultSet rs, int pos) throws SQLException {
+        return rs.getString(pos);
+    }
+
+    static BigDecimal readBigDecimal(ResultSet rs, int pos) throws SQLException {
+        return rs.getBigDecimal(pos);
+    }
+
+    static Timestamp readTimestamp(ResultSet rs, int pos) throws SQLException {
+        return rs.getTimestamp(pos);
+    }
+
+    static java.sql.Date readDate(ResultSet rs, int pos) throws SQLException {
+        return rs.getDate(pos);
+    }
+
+    static Time readTime(ResultSet rs, int pos) throws SQLException {
+        return rs.getTime(pos);
+    }
+
+    static byte[] readBytes(ResultSet rs, int pos) throws SQLException {
+        return rs.getBytes(pos);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static Enum readEnum(Class type, ResultSet rs, int pos) throws SQLException {
+        String v = rs.getString(pos);
+        return v == null ? null : Enum.valueOf(type, v);
+    }
+
+    static Object readObject(Class<?> type, ResultSet rs, int pos) throws SQLException {
+        return rs.getObject(pos, type);
+    }
+
+}
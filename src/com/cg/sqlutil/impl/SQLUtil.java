@@ -5,25 +5,52 @@
  */
 package com.cg.sqlutil.impl;
 
+import java.io.IOException;
 import java.io.PrintStream;
 import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.BatchUpdateException;
 import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Savepoint;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
-import java.util.Hashtable;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.IntToLongFunction;
+import java.util.stream.Stream;
 
 import com.cg.sqlutil.AuditInterface;
+import com.cg.sqlutil.BatchOptions;
+import com.cg.sqlutil.BatchOptions.ErrorPolicy;
+import com.cg.sqlutil.BatchResult;
+import com.cg.sqlutil.BatchWriter;
+import com.cg.sqlutil.BindMapping;
+import com.cg.sqlutil.ColumnBatch;
+import com.cg.sqlutil.ColumnIndex;
+import com.cg.sqlutil.ColumnType;
 import com.cg.sqlutil.Row;
+import com.cg.sqlutil.RowBlock;
+import com.cg.sqlutil.RowHandler;
+import com.cg.sqlutil.RowIterator;
+import com.cg.sqlutil.RowList;
 import com.cg.sqlutil.SQLUtilInterface;
+import com.cg.sqlutil.UnitOfWork;
+import com.cg.sqlutil.exception.ReturnedMoreThanOneRowException;
+import com.cg.sqlutil.exception.ReturnedNoRowException;
 
 public final class SQLUtil implements SQLUtilInterface {
 
@@ -37,16 +64,39 @@ public final class SQLUtil implements SQLUtilInterface {
     private long lastExecMs;
     private Boolean closeOnCommit;
 
-    // batch
-    private ResultSet batchResultSet;
-    private PreparedStatement batchPreparedStatement;
-    private int batchColCount, batchBatchSize, batchRowCount;
-    private Boolean batchResultSetDone;
-    private String batchSelectStmt;
-    private int[] batchResultTypes;
+    // chunks
+    private RowCursor chunkCursor;
+    private int chunkSize;
+    private int[] lastResultTypes;
+
+    // getRowList: rows beyond the budget are written to a temporary file
+    private long spillHeapBudget = 64L * 1024 * 1024;
+    private Path spillDirectory;
 
     // caches. if hashtable==null, cache is turned off. maxvalues<=0 results in unlimited cache.
     private LRUCache lruStatementCache = null;
+    private boolean bindDebug = false;
+    // executeDMLBatch as multi-row inserts, parsed inserts per sql (null: not rewritable)
+    private int multiRowInsert = 0;
+    private Map<String, MultiRowInsert> multiRowInserts = new HashMap<>();
+    // upsert statements per shape (table, key and value columns), their bind plans are kept by the
+    // statement cache
+    private Map<String, String> upsertStatements = new HashMap<>();
+    // not null while a unit of work is open: executeDML is queued
+    private DMLUnitOfWork unitOfWork;
+    // compiled column readers per select statement, always on. metaDataCacheEnabled: trust a
+    // cached shape if the column count matches (schema must not change while enabled)
+    private boolean metaDataCacheEnabled = false;
+    private static final int RESULT_SHAPE_CACHE_SIZE = 256;
+    private Map<String, ResultShape> resultShapeCache = new LinkedHashMap<String, ResultShape>(16,
+            0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ResultShape> eldest) {
+            return size() > RESULT_SHAPE_CACHE_SIZE;
+        }
+    };
 
     @Override
     public AuditInterface getAudit() {
@@ -104,20 +154,65 @@ public final class SQLUtil implements SQLUtilInterface {
             t.printStackTrace(ps);
     }
 
-    private PreparedStatement getPreparedStatement(String sql) throws SQLException {
+    PreparedStatement getPreparedStatement(String sql) throws SQLException {
+        return getStatement(StatementKey.prepared(sql));
+    }
+
+    private CallableStatement getCallableStatement(String call) throws SQLException {
+        return (CallableStatement) getStatement(StatementKey.callable(call));
+    }
+
+    // all cached executions get their statement here and give it back with releaseStatement()
+    private PreparedStatement getStatement(StatementKey key) throws SQLException {
+        flushUnitOfWork();
         if (lruStatementCache == null)
-            return getConnection().prepareStatement(sql);
-        PreparedStatement ps = lruStatementCache.get(sql);
-        if (ps != null && ps.isClosed())
-            lruStatementCache.remove(sql);
+            return key.prepare(getConnection());
+        PreparedStatement ps = lruStatementCache.acquire(key);
         if (ps == null) {
-            ps = getConnection().prepareStatement(sql);
-            info("prepare:" + sql);
-            lruStatementCache.add(sql, ps);
+            ps = key.prepare(getConnection());
+            info("prepare:" + key);
+            lruStatementCache.add(key, ps);
         }
         return ps;
     }
 
+    // closes ps if it's not cached
+    void releaseStatement(PreparedStatement ps) {
+        if (ps == null)
+            return;
+        try {
+            if (lruStatementCache != null && lruStatementCache.release(ps))
+                return;
+        } catch (SQLException sqle) {
+            error("cannot release Statement" + ps, sqle);
+        }
+        closeSilent(ps);
+    }
+
+    // binds one execution (or the first row of a batch). The BindPlan is kept next to the cached
+    // statement, so it's compiled once per statement and bindTypes. Returns null without binds.
+    BindPlan bindVariables(PreparedStatement ps, Object[] bindVariables, int[] bindTypes)
+            throws SQLException {
+        if (bindVariables == null || bindVariables.length == 0)
+            return null;
+        BindPlan cached = lruStatementCache == null ? null : lruStatementCache.getBindPlan(ps);
+        BindPlan plan = BindPlan.forValues(cached, bindVariables, bindTypes);
+        if (plan != cached && lruStatementCache != null)
+            lruStatementCache.setBindPlan(ps, plan);
+        plan.bind(ps, bindVariables, getCalendar());
+        return plan;
+    }
+
+    @Override
+    public void enableBindDebug(boolean enable) {
+        bindDebug = enable;
+    }
+
+    @Override
+    public boolean isBindDebug() {
+        return bindDebug;
+    }
+
     @Override
     public void enablePreparedStatementCache(boolean enable) throws SQLException {
         if (enable) {
@@ -139,109 +234,153 @@ public final class SQLUtil implements SQLUtilInterface {
         lruStatementCache.resize(cacheSize);
     }
 
-    //DEV (gaus20200329: why is this DEV?)
     @Override
     public void getChunksPrepare(String selectStmt, int batchSize) throws SQLException {
-        /* prepare PS+RS
-         * metaData
-         * colcount
-         * typeMap?
-         */
-
     	long t0 = System.currentTimeMillis();
+        getChunksClose();
+        // flush before the connection turns read only
+        flushUnitOfWork();
         // prepare, bind and execute, no autocommit and readonly are important to stream sql-data with postgres
     	getConnection().setAutoCommit(false);
     	getConnection().setReadOnly(true);
-    	batchPreparedStatement = getPreparedStatement(selectStmt);
-        //FIXME?		batchPreparedStatement = BindHelper.bindVariables(batchPreparedStatement, null, null, getCalendar());
-    	batchPreparedStatement.setFetchSize(batchSize);
-        batchPreparedStatement.closeOnCompletion();
-    	batchResultSet = batchPreparedStatement.executeQuery();
-        batchResultSet.setFetchSize(fetchSize);
-
-        lastMetaData = batchResultSet.getMetaData();
-        batchColCount = lastMetaData.getColumnCount();
-        batchResultTypes = new int[batchColCount];
-        for (int i = 1, n = 0; i <= batchColCount; i++, n++) {
-            batchResultTypes[n] = lastMetaData.getColumnType(i);
-            //System.out.println(n+":"+lastMetaData.getColumnClassName(i)+" "+lastMetaData.getColumnTypeName(i));
-            // a little hack. SQL.INTEGER are mapped to java long. Java long must be mapped to SQL.BIGINT
-            if (batchResultTypes[n] == Types.INTEGER)
-                batchResultTypes[n] = Types.BIGINT;
-            // JSON hack postgres
-            if (getDBProduct()==DBProduct.POSTGRESQL && batchResultTypes[n] == 1111)
-                batchResultTypes[n] = Types.VARCHAR;
-        }
-        if (expectedColumns != null && expectedColumns != batchColCount) {
+        RowCursor cursor = new RowCursor(this, selectStmt, null, null, batchSize);
+        lastMetaData = cursor.getMetaData();
+        lastResultTypes = cursor.getResultTypes();
+        if (expectedColumns != null && expectedColumns != cursor.getColumnCount()) {
+            cursor.close();
             throw new IllegalStateException("Expected columns: " + expectedColumns
-                    + ", columns selected: " + batchColCount);
+                    + ", columns selected: " + cursor.getColumnCount());
         }
-
-        batchBatchSize = batchSize;
-        batchRowCount = 0;
-        batchResultSetDone = false;
-        batchSelectStmt = selectStmt;
+        chunkCursor = cursor;
+        chunkSize = batchSize;
         calculateExecTimeMs(t0);
     }
 
     @Override
     public Row[] getChunksGetNextRows() throws SQLException {
-
     	long t0 = System.currentTimeMillis();
-        if (batchResultSet == null || batchResultSet.isClosed())
+        if (chunkCursor == null)
             throw new SQLException(
                     "current iteration not prepared (no call of prepareRowsIterated)");
-        if (batchResultSetDone)
+        if (chunkCursor.isDone())
             return null;
 
-        int currBatchCounter = 0;
-        ArrayList<Row> rowsList = new ArrayList<>(batchBatchSize);
-        while (true) {
-            if (batchResultSet.next()) {
-                Object[] row = convertResultRow2ObjectArray(batchResultSet, batchColCount,
-                        batchRowCount, batchResultTypes, batchSelectStmt);
-                rowsList.add(new Row(row, /*columnMap*/null));
-                batchRowCount++;
-                currBatchCounter++;
-                if (currBatchCounter >= batchBatchSize)
-                    break;
-            } else {
-                batchResultSetDone = true;
-                break;
-            }
-        }
+        ArrayList<Row> rowsList = new ArrayList<>(chunkSize);
+        Row row;
+        while (rowsList.size() < chunkSize && (row = chunkCursor.fetch()) != null)
+            rowsList.add(row);
 
         if (rowsList.size() == 0)
             return null;
-
-        Row[] rows = new Row[rowsList.size()];
-        int i = 0;
-        for (Row row : rowsList) {
-            rows[i] = row;
-            i++;
-        }
+        Row[] rows = rowsList.toArray(new Row[rowsList.size()]);
         calculateExecTimeMs(t0);
         return rows;
     }
 
     @Override
     public void getChunksClose() {
-        /*
-         * close RS/PS
-         * set all batch* vars to -1/null
-         */
-        closeSilent(batchResultSet);
-        closeSilent(batchPreparedStatement);
-        batchResultSet = null;
-        batchPreparedStatement = null;
-        batchColCount = -1;
-        batchBatchSize = -1;
-        batchRowCount = -1;
-        batchResultSetDone = null;
-        batchSelectStmt = null;
-        // batchResultTypes = null; can be requested from outside, after finishing
-    }
-    //DEV
+        if (chunkCursor != null)
+            chunkCursor.close();
+        chunkCursor = null;
+        chunkSize = -1;
+        // lastResultTypes can be requested from outside, after finishing
+    }
+
+    // stream
+    //
+    @Override
+    public RowIterator iterate(String selectStmt) throws SQLException {
+        return iterate(selectStmt, null, null);
+    }
+
+    @Override
+    public RowIterator iterateVarArgs(String selectStmt, Object... bindVariables)
+            throws SQLException {
+        return iterate(selectStmt, bindVariables, null);
+    }
+
+    @Override
+    public RowIterator iterate(String selectStmt, Object[] bindVariables) throws SQLException {
+        return iterate(selectStmt, bindVariables, null);
+    }
+
+    @Override
+    public RowIterator iterate(String selectStmt, Object[] bindVariables, int[] bindTypes)
+            throws SQLException {
+        return openCursor(selectStmt, bindVariables, bindTypes);
+    }
+
+    @Override
+    public Stream<Row> stream(String selectStmt) throws SQLException {
+        return stream(selectStmt, null, null);
+    }
+
+    @Override
+    public Stream<Row> streamVarArgs(String selectStmt, Object... bindVariables)
+            throws SQLException {
+        return stream(selectStmt, bindVariables, null);
+    }
+
+    @Override
+    public Stream<Row> stream(String selectStmt, Object[] bindVariables) throws SQLException {
+        return stream(selectStmt, bindVariables, null);
+    }
+
+    @Override
+    public Stream<Row> stream(String selectStmt, Object[] bindVariables, int[] bindTypes)
+            throws SQLException {
+        return openCursor(selectStmt, bindVariables, bindTypes).stream();
+    }
+
+    @Override
+    public <T> Stream<T> stream(Class<T> type, String selectStmt) throws SQLException {
+        return stream(type, selectStmt, null, null);
+    }
+
+    @Override
+    public <T> Stream<T> streamVarArgs(Class<T> type, String selectStmt, Object... bindVariables)
+            throws SQLException {
+        return stream(type, selectStmt, bindVariables, null);
+    }
+
+    @Override
+    public <T> Stream<T> stream(Class<T> type, String selectStmt, Object[] bindVariables)
+            throws SQLException {
+        return stream(type, selectStmt, bindVariables, null);
+    }
+
+    @Override
+    public <T> Stream<T> stream(Class<T> type, String selectStmt, Object[] bindVariables,
+            int[] bindTypes) throws SQLException {
+        RowCursor cursor = openCursor(selectStmt, bindVariables, bindTypes);
+        try {
+            return cursor.stream(cursor.getShape().getMapper(type));
+        } catch (RuntimeException e) {
+            cursor.close();
+            throw e;
+        }
+    }
+
+    private RowCursor openCursor(String selectStmt, Object[] bindVariables, int[] bindTypes)
+            throws SQLException {
+        long t0 = System.currentTimeMillis();
+        getAudit().startNewAuditRecord(selectStmt, bindVariables);
+        try {
+            RowCursor cursor = new RowCursor(this, selectStmt, bindVariables, bindTypes,
+                    fetchSize);
+            lastMetaData = cursor.getMetaData();
+            return cursor;
+        } catch (SQLException sqle) {
+            printError(System.out, sqle, selectStmt, bindVariables, bindTypes);
+            getAudit().endAuditRecord(sqle);
+            throw sqle;
+        } finally {
+            getAudit().endAuditRecord();
+            calculateExecTimeMs(t0);
+        }
+    }
+    //
+    // stream
 
     private void setConnection(Connection con) throws SQLException {
         this.con = con;
@@ -270,6 +409,12 @@ public final class SQLUtil implements SQLUtilInterface {
     @Override
     public void closeConnection() {
         try {
+            if (unitOfWork != null) {
+                if (Boolean.TRUE.equals(closeOnCommit))
+                    unitOfWork.commit();
+                else
+                    unitOfWork.rollback();
+            }
             // close all dependent caches
             if (lruStatementCache != null)
                 lruStatementCache.clear();
@@ -299,10 +444,38 @@ public final class SQLUtil implements SQLUtilInterface {
 
     @Override
     public void commit() throws SQLException {
+        if (unitOfWork != null) {
+            unitOfWork.commit();
+            return;
+        }
         if (getConnection().getAutoCommit() == false)
             con.commit();
     }
 
+    @Override
+    public UnitOfWork beginUnitOfWork(UnitOfWork.Ordering ordering) throws SQLException {
+        if (unitOfWork != null)
+            throw new IllegalStateException("a UnitOfWork is open already");
+        unitOfWork = new DMLUnitOfWork(this, ordering);
+        return unitOfWork;
+    }
+
+    @Override
+    public UnitOfWork getUnitOfWork() {
+        return unitOfWork;
+    }
+
+    // queued DML of an open unit of work runs before any other statement sees the database
+    void flushUnitOfWork() throws SQLException {
+        if (unitOfWork != null)
+            unitOfWork.flushQueue();
+    }
+
+    void endUnitOfWork(DMLUnitOfWork uow) {
+        if (unitOfWork == uow)
+            unitOfWork = null;
+    }
+
     @Override
     public void commitSilent() {
         try {
@@ -314,6 +487,10 @@ public final class SQLUtil implements SQLUtilInterface {
 
     @Override
     public void rollback() throws SQLException {
+        if (unitOfWork != null) {
+            unitOfWork.rollback();
+            return;
+        }
         if (getConnection().getAutoCommit() == false)
             con.rollback();
     }
@@ -344,7 +521,7 @@ public final class SQLUtil implements SQLUtilInterface {
 
     @Override
     public int[] getPreviousRowSQLTypes() {
-        return batchResultTypes == null ? null : batchResultTypes.clone();
+        return lastResultTypes == null ? null : lastResultTypes.clone();
     }
 
     @Override
@@ -363,6 +540,8 @@ public final class SQLUtil implements SQLUtilInterface {
         getAudit().startNewAuditRecord(ddlStmt);
         PreparedStatement ps = null;
         try {
+            // not cached, but queued DML must run first like for getStatement()
+            flushUnitOfWork();
             ps = getConnection().prepareStatement(ddlStmt);
             ps.execute();
         } catch (SQLException sqle) {
@@ -412,6 +591,29 @@ public final class SQLUtil implements SQLUtilInterface {
         }
     }
 
+    @Override
+    public void setMultiRowInsert(int maxRows) {
+        multiRowInsert = maxRows;
+        multiRowInserts.clear();
+    }
+
+    @Override
+    public int getMultiRowInsert() {
+        return multiRowInsert;
+    }
+
+    private MultiRowInsert getMultiRowInsert(String dmlStmt) {
+        if (multiRowInsert < 2)
+            return null;
+        if (multiRowInserts.containsKey(dmlStmt))
+            return multiRowInserts.get(dmlStmt);
+        if (multiRowInserts.size() > RESULT_SHAPE_CACHE_SIZE)
+            multiRowInserts.clear();
+        MultiRowInsert mri = MultiRowInsert.parse(dmlStmt, getDBProduct(), multiRowInsert);
+        multiRowInserts.put(dmlStmt, mri);
+        return mri;
+    }
+
     @Override
     public int[] executeDMLBatch(String dmlStmt, List<Object[]> batchValues, int[] bindTypes)
             throws SQLException {
@@ -419,10 +621,23 @@ public final class SQLUtil implements SQLUtilInterface {
         getAudit().startNewAuditRecord(dmlStmt);
         PreparedStatement ps = null;
         int[] affectedRows = null;
+        MultiRowInsert mri = batchValues.size() > 1 ? getMultiRowInsert(dmlStmt) : null;
         try {
+            if (mri != null) {
+                affectedRows = executeMultiRowInsert(mri, batchValues, bindTypes);
+                return affectedRows;
+            }
             ps = getPreparedStatement(dmlStmt);
+            Calendar cal = getCalendar();
+            BindPlan plan = null;
             for (Object[] data : batchValues) {
-                BindHelper.bindVariables(ps, data, bindTypes, getCalendar(), getDBProduct());
+                if (plan == null)
+                    plan = bindVariables(ps, data, bindTypes);
+                else {
+                    if (bindDebug)
+                        plan.verify(data);
+                    plan.bind(ps, data, cal);
+                }
                 ps.addBatch();
             }
             affectedRows = ps.executeBatch();
@@ -432,19 +647,77 @@ public final class SQLUtil implements SQLUtilInterface {
             getAudit().endAuditRecord(sqle);
             throw sqle;
         } finally {
-            if (lruStatementCache == null)
-                closeSilent(ps);
+            if (affectedRows == null)
+                clearBatchSilent(ps);
+            releaseStatement(ps);
             if (getAudit().isEnabled()) {
                 int rows = 0;
                 if (affectedRows!=null)
 	                for (int i = 0; i < affectedRows.length; i++)
-	                    rows += affectedRows[i];
+	                    if (affectedRows[i] > 0)
+	                        rows += affectedRows[i];
                 getAudit().endAuditRecord(rows);
             }
             calculateExecTimeMs(t0);
         }
     }
 
+    // after a failed batch: don't leave its rows in a cached statement
+    private static void clearBatchSilent(PreparedStatement ps) {
+        if (ps == null)
+            return;
+        try {
+            ps.clearBatch();
+        } catch (SQLException ignore) {
+        }
+    }
+
+    // all rows in buckets: as many statements of the largest width as possible (one jdbc batch),
+    // then at most one statement per smaller width
+    private int[] executeMultiRowInsert(MultiRowInsert mri, List<Object[]> batchValues,
+            int[] bindTypes) throws SQLException {
+        int rowCount = batchValues.size();
+        int[] affectedRows = new int[rowCount];
+        Calendar cal = getCalendar();
+        BindPlan plan = null;
+        int row = 0;
+        while (row < rowCount) {
+            int width = mri.getWidth(rowCount - row);
+            int statements = (rowCount - row) / width;
+            int first = row;
+            PreparedStatement ps = getPreparedStatement(mri.getSQL(width));
+            boolean executed = false;
+            try {
+                for (int s = 0; s < statements; s++) {
+                    for (int r = 0, offset = 0; r < width; r++, row++, offset += mri
+                            .getColumnCount()) {
+                        Object[] data = batchValues.get(row);
+                        if (plan == null)
+                            plan = BindPlan.forValues(null, data, bindTypes);
+                        else if (bindDebug)
+                            plan.verify(data);
+                        plan.bind(ps, data, cal, offset);
+                    }
+                    ps.addBatch();
+                }
+                executed = true;
+                int[] counts = ps.executeBatch();
+                for (int s = 0; s < counts.length; s++) {
+                    int v = counts[s] == width ? 1 : Statement.SUCCESS_NO_INFO;
+                    Arrays.fill(affectedRows, first + s * width, first + (s + 1) * width, v);
+                }
+            } finally {
+                if (!executed)
+                    try {
+                        ps.clearBatch(); // don't leave rows in a cached statement
+                    } catch (SQLException ignore) {
+                    }
+                releaseStatement(ps);
+            }
+        }
+        return affectedRows;
+    }
+
     @Override
     public int[] executeDMLBatch(String dmlStmt, Row[] rows, int[] bindTypes) throws SQLException {
     	long t0 = System.currentTimeMillis();
@@ -453,8 +726,16 @@ public final class SQLUtil implements SQLUtilInterface {
         int[] affectedRows = null;
         try {
             ps = getPreparedStatement(dmlStmt);
+            Calendar cal = getCalendar();
+            BindPlan plan = null;
             for (Row row : rows) {
-                BindHelper.bindVariables(ps, row.getData(), bindTypes, getCalendar(), getDBProduct());
+                if (plan == null)
+                    plan = bindVariables(ps, row.getData(), bindTypes);
+                else {
+                    if (bindDebug)
+                        plan.verify(row.getData());
+                    plan.bind(ps, row.getData(), cal);
+                }
                 ps.addBatch();
             }
             affectedRows = ps.executeBatch();
@@ -464,427 +745,1210 @@ public final class SQLUtil implements SQLUtilInterface {
             getAudit().endAuditRecord(sqle);
             throw sqle;
         } finally {
-            if (lruStatementCache == null)
-                closeSilent(ps);
+            if (affectedRows == null)
+                clearBatchSilent(ps);
+            releaseStatement(ps);
             if (getAudit().isEnabled()) {
                 int r = 0;
-                for (int i = 0; i < affectedRows.length; i++)
-                    r += affectedRows[i];
+                if (affectedRows != null)
+                    for (int i = 0; i < affectedRows.length; i++)
+                        r += affectedRows[i];
                 getAudit().endAuditRecord(r);
             }
             calculateExecTimeMs(t0);
         }
     }
 
-    public void expectXRows(Row[] rows, int x) throws SQLException {
-        // if negative, 0..* rows are ok, so everything is ok
-        if (x<0) return;
-        if (rows==null && x==0) return;
+    @Override
+    public <T> int[] executeMappedBatch(String dmlStmt, List<T> entities, BindMapping<T> mapping)
+            throws SQLException {
+        long t0 = System.currentTimeMillis();
+        getAudit().startNewAuditRecord(dmlStmt);
+        PreparedStatement ps = null;
+        int[] affectedRows = null;
+        try {
+            ps = getPreparedStatement(dmlStmt);
+            Calendar cal = getCalendar();
+            for (T entity : entities) {
+                mapping.bind(ps, entity, cal);
+                ps.addBatch();
+            }
+            affectedRows = ps.executeBatch();
+            return affectedRows;
+        } catch (SQLException sqle) {
+            printError(System.out, sqle, dmlStmt, null, mapping.getSQLTypes());
+            getAudit().endAuditRecord(sqle);
+            throw sqle;
+        } finally {
+            if (affectedRows == null)
+                clearBatchSilent(ps);
+            releaseStatement(ps);
+            if (getAudit().isEnabled()) {
+                int rows = 0;
+                if (affectedRows != null)
+                    for (int i = 0; i < affectedRows.length; i++)
+                        if (affectedRows[i] > 0)
+                            rows += affectedRows[i];
+                getAudit().endAuditRecord(rows);
+            }
+            calculateExecTimeMs(t0);
+        }
+    }
 
-        boolean ok = true;
-        if (rows == null || rows.length == 0)
-            if (x == 0)
-                return;
-            else
-                ok = false;
-        if (ok) {
-            if (x == rows.length)
-                return;
-            else
-                ok = false;
+    @Override
+    public BatchResult executeDMLBatch(String dmlStmt, List<Object[]> batchValues,
+            int[] bindTypes, BatchOptions options) throws SQLException {
+        Calendar cal = getCalendar();
+        BindPlan[] plan = { null };
+        List<Object[]> rows = randomAccess(batchValues);
+        return executeDMLBatch(dmlStmt, rows.size(), options, (ps, row) -> {
+            Object[] data = rows.get(row);
+            if (plan[0] == null)
+                plan[0] = bindVariables(ps, data, bindTypes);
+            else {
+                if (bindDebug)
+                    plan[0].verify(data);
+                plan[0].bind(ps, data, cal);
+            }
+        }, row -> BindHelper.estimateBytes(rows.get(row)), bindTypes);
+    }
+
+    @Override
+    public <T> BatchResult executeMappedBatch(String dmlStmt, List<T> entities,
+            BindMapping<T> mapping, BatchOptions options) throws SQLException {
+        Calendar cal = getCalendar();
+        List<T> rows = randomAccess(entities);
+        return executeDMLBatch(dmlStmt, rows.size(), options,
+                (ps, row) -> mapping.bind(ps, rows.get(row), cal), null, mapping.getSQLTypes());
+    }
+
+    @Override
+    public int[] executeDMLBatch(String dmlStmt, ColumnBatch columns) throws SQLException {
+        long t0 = System.currentTimeMillis();
+        getAudit().startNewAuditRecord(dmlStmt);
+        PreparedStatement ps = null;
+        int[] affectedRows = null;
+        ColumnBatchBinder binder = new ColumnBatchBinder(columns);
+        try {
+            ps = getPreparedStatement(dmlStmt);
+            Calendar cal = getCalendar();
+            for (int r = 0, n = columns.getRowCount(); r < n; r++) {
+                binder.bind(ps, r, cal);
+                ps.addBatch();
+            }
+            affectedRows = ps.executeBatch();
+            return affectedRows;
+        } catch (SQLException sqle) {
+            printError(System.out, sqle, dmlStmt, null, binder.getSQLTypes());
+            getAudit().endAuditRecord(sqle);
+            throw sqle;
+        } finally {
+            if (affectedRows == null)
+                clearBatchSilent(ps);
+            releaseStatement(ps);
+            if (getAudit().isEnabled()) {
+                int rows = 0;
+                if (affectedRows != null)
+                    for (int i = 0; i < affectedRows.length; i++)
+                        if (affectedRows[i] > 0)
+                            rows += affectedRows[i];
+                getAudit().endAuditRecord(rows);
+            }
+            calculateExecTimeMs(t0);
         }
+    }
 
-        if (!ok)
-            throw new SQLException("expected rows: " + x + ", rows given:"
-                    + (rows == null ? 0 : rows.length));
+    @Override
+    public BatchResult executeDMLBatch(String dmlStmt, ColumnBatch columns, BatchOptions options)
+            throws SQLException {
+        Calendar cal = getCalendar();
+        ColumnBatchBinder binder = new ColumnBatchBinder(columns);
+        return executeDMLBatch(dmlStmt, columns.getRowCount(), options,
+                (ps, row) -> binder.bind(ps, row, cal), binder::estimateBytes,
+                binder.getSQLTypes());
+    }
+
+    // the rows are bound by their index, so the chunked loop doesn't need a List of them
+    private static <T> List<T> randomAccess(List<T> rows) {
+        return rows instanceof RandomAccess ? rows : new ArrayList<>(rows);
+    }
+
+    // binds row (0-based) of the input
+    interface RowBinder {
+        void bind(PreparedStatement ps, int row) throws SQLException;
+    }
+
+    // executeBatch() every maxRows/maxBytes, one audit record per sub-batch
+    private BatchResult executeDMLBatch(String dmlStmt, int rowCount, BatchOptions options,
+            RowBinder binder, IntToLongFunction sizer, int[] bindTypes) throws SQLException {
+        long t0 = System.currentTimeMillis();
+        int maxRows = options.getMaxRows() > 0 ? options.getMaxRows() : Integer.MAX_VALUE;
+        long maxBytes = sizer != null && options.getMaxBytes() > 0 ? options.getMaxBytes()
+                : Long.MAX_VALUE;
+        boolean commit = options.getCommitEvery() > 0 && !getConnection().getAutoCommit();
+        boolean isolate = options.getErrorPolicy() == ErrorPolicy.ISOLATE;
+        BatchResult result = new BatchResult();
+        PreparedStatement ps = null;
+        int n = 0, firstRow = 0;
+        long bytes = 0;
+        try {
+            ps = getPreparedStatement(dmlStmt);
+            for (int row = 0; row < rowCount; row++) {
+                binder.bind(ps, row);
+                ps.addBatch();
+                n++;
+                if (maxBytes != Long.MAX_VALUE)
+                    bytes += sizer.applyAsLong(row);
+                if (n >= maxRows || bytes >= maxBytes) {
+                    flushSubBatch(ps, dmlStmt, firstRow, n, isolate ? binder : null, options,
+                            result);
+                    firstRow += n;
+                    n = 0;
+                    bytes = 0;
+                    if (commit && result.getBatchCount() % options.getCommitEvery() == 0) {
+                        commit();
+                        result.addCommit();
+                    }
+                }
+            }
+            if (n > 0) {
+                flushSubBatch(ps, dmlStmt, firstRow, n, isolate ? binder : null, options, result);
+                n = 0;
+            }
+            if (commit && result.getBatchCount() % options.getCommitEvery() != 0) {
+                commit();
+                result.addCommit();
+            }
+            return result;
+        } catch (SQLException sqle) {
+            printError(System.out, sqle, dmlStmt + " (sub-batch starting at row " + firstRow + ")",
+                    null, bindTypes);
+            throw sqle;
+        } finally {
+            if (n > 0 && ps != null)
+                try {
+                    ps.clearBatch(); // don't leave rows in a cached statement
+                } catch (SQLException ignore) {
+                }
+            releaseStatement(ps);
+            calculateExecTimeMs(t0);
+        }
+    }
+
+    @Override
+    public BatchWriter createBatchWriter(String dmlStmt, int[] bindTypes, BatchOptions options) {
+        return new DMLBatchWriter(this, dmlStmt, bindTypes, options);
+    }
+
+    @Override
+    public long bulkInsert(String table, String[] columns, int[] bindTypes,
+            Iterable<Object[]> rows) throws SQLException {
+        return bulkInsert(table, columns, bindTypes, rows.iterator());
+    }
+
+    @Override
+    public long bulkInsert(String table, String[] columns, int[] bindTypes,
+            Iterator<Object[]> rows) throws SQLException {
+        String columnList = String.join(",", columns);
+        PgCopy copy = getDBProduct() == DBProduct.POSTGRESQL ? PgCopy.of(getConnection()) : null;
+        if (copy == null) {
+            StringBuilder insert = new StringBuilder("insert into ").append(table).append('(')
+                    .append(columnList).append(")values(");
+            for (int i = 0; i < columns.length; i++)
+                insert.append(i == 0 ? "?" : ",?");
+            insert.append(')');
+            try (BatchWriter w = createBatchWriter(insert.toString(), bindTypes,
+                    BatchOptions.rows(BULK_BATCH_ROWS))) {
+                while (rows.hasNext())
+                    w.add(rows.next());
+                w.flush();
+                return w.getStats().getRowCount();
+            }
+        }
+        String copySql = "copy " + table + "(" + columnList + ") from stdin";
+        long t0 = System.currentTimeMillis();
+        getAudit().startNewAuditRecord(copySql);
+        long count = 0;
+        try {
+            flushUnitOfWork();
+            count = copy.copyIn(copySql, new CopyTextReader(rows, bindTypes, getCalendar()));
+            return count;
+        } catch (SQLException sqle) {
+            printError(System.out, sqle, copySql, null, bindTypes);
+            getAudit().endAuditRecord(sqle);
+            throw sqle;
+        } finally {
+            getAudit().endAuditRecord((int) Math.min(count, Integer.MAX_VALUE));
+            calculateExecTimeMs(t0);
+        }
+    }
+
+    @Override
+    public BatchResult upsertBatch(String table, String[] keyColumns, String[] valueColumns,
+            List<Object[]> rows) throws SQLException {
+        return upsertBatch(table, keyColumns, valueColumns, rows, null,
+                BatchOptions.rows(BULK_BATCH_ROWS));
+    }
+
+    @Override
+    public BatchResult upsertBatch(String table, String[] keyColumns, String[] valueColumns,
+            List<Object[]> rows, int[] bindTypes, BatchOptions options) throws SQLException {
+        String shape = table + '\0' + String.join(",", keyColumns) + '\0'
+                + String.join(",", valueColumns);
+        String upsert = upsertStatements.get(shape);
+        if (upsert == null) {
+            upsert = UpsertSQL.create(getDBProduct(), table, keyColumns, valueColumns);
+            if (upsertStatements.size() > RESULT_SHAPE_CACHE_SIZE)
+                upsertStatements.clear();
+            upsertStatements.put(shape, upsert);
+        }
+        return executeDMLBatch(upsert, rows, bindTypes, options);
+    }
+
+    // rows firstRow..firstRow+n-1 of the input are bound to ps, binder binds them again for
+    // ErrorPolicy.ISOLATE (null: ErrorPolicy.FAIL)
+    private void flushSubBatch(PreparedStatement ps, String dmlStmt, int firstRow, int n,
+            RowBinder binder, BatchOptions options, BatchResult result) throws SQLException {
+        if (binder == null)
+            executeSubBatch(ps, dmlStmt, firstRow, options, result);
+        else
+            executeSubBatch(ps, dmlStmt, n, firstRow,
+                    (stmt, i) -> binder.bind(stmt, firstRow + i), options, result);
+    }
+
+    void executeSubBatch(PreparedStatement ps, String dmlStmt, int firstRow,
+            BatchOptions options, BatchResult result) throws SQLException {
+        getAudit().startNewAuditRecord(dmlStmt);
+        long t0 = System.nanoTime();
+        int[] affectedRows;
+        try {
+            affectedRows = ps.executeBatch();
+        } catch (SQLException sqle) {
+            getAudit().endAuditRecord(sqle);
+            throw sqle;
+        }
+        endSubBatch(affectedRows, t0, firstRow, options, result);
+    }
+
+    // ErrorPolicy.ISOLATE: the rowCount rows are bound to ps already, binder binds row i of the
+    // sub-batch again if the batch fails. Retries are part of the audit record of the sub-batch.
+    void executeSubBatch(PreparedStatement ps, String dmlStmt, int rowCount, int firstRow,
+            RowBinder binder, BatchOptions options, BatchResult result) throws SQLException {
+        getAudit().startNewAuditRecord(dmlStmt);
+        long t0 = System.nanoTime();
+        int[] affectedRows = new int[rowCount];
+        int[] all = new int[rowCount];
+        for (int i = 0; i < all.length; i++)
+            all[i] = i;
+        try {
+            boolean savepoints = !getConnection().getAutoCommit()
+                    && getConnection().getMetaData().supportsSavepoints();
+            executeIsolating(ps, firstRow, all, true, binder, savepoints, affectedRows, result);
+        } catch (SQLException sqle) {
+            getAudit().endAuditRecord(sqle);
+            throw sqle;
+        }
+        endSubBatch(affectedRows, t0, firstRow, options, result);
+    }
+
+    // executes the rows idx of the sub-batch as one batch (bound: already added to ps). On BatchUpdateException a
+    // single row is a failure, more rows are split in halves and executed again. Without a
+    // savepoint the update counts tell which rows are done, except on PostgreSQL: the driver runs
+    // a batch in one implicit transaction, nothing is left of a failed one.
+    private void executeIsolating(PreparedStatement ps, int firstRow, int[] idx, boolean bound,
+            RowBinder binder, boolean savepoints, int[] affectedRows, BatchResult result)
+            throws SQLException {
+        if (!bound)
+            for (int i : idx) {
+                binder.bind(ps, i);
+                ps.addBatch();
+            }
+        Savepoint sp = savepoints ? getConnection().setSavepoint() : null;
+        int[] a;
+        try {
+            a = ps.executeBatch();
+        } catch (BatchUpdateException bue) {
+            ps.clearBatch();
+            int[] pending = idx;
+            if (sp != null) {
+                getConnection().rollback(sp);
+                // still open after the rollback, the next setSavepoint() would nest in it
+                releaseSavepoint(sp);
+            } else if (getDBProduct() != DBProduct.POSTGRESQL)
+                pending = notExecuted(idx, bue.getUpdateCounts(), affectedRows);
+            if (idx.length == 1) {
+                affectedRows[idx[0]] = Statement.EXECUTE_FAILED;
+                // some drivers (PostgreSQL) keep the cause of the row as next exception
+                result.addFailure(firstRow + idx[0],
+                        bue.getNextException() != null ? bue.getNextException() : bue);
+            } else if (pending.length > 0) {
+                int half = (pending.length + 1) / 2;
+                executeIsolating(ps, firstRow, Arrays.copyOfRange(pending, 0, half), false,
+                        binder, savepoints, affectedRows, result);
+                executeIsolating(ps, firstRow, Arrays.copyOfRange(pending, half, pending.length),
+                        false, binder, savepoints, affectedRows, result);
+            }
+            return;
+        }
+        if (sp != null)
+            releaseSavepoint(sp);
+        for (int i = 0; i < idx.length; i++)
+            affectedRows[idx[i]] = i < a.length ? a[i] : Statement.SUCCESS_NO_INFO;
+    }
+
+    // best effort: SQL Server has no RELEASE SAVEPOINT, the Oracle driver rejects it. Their
+    // savepoints end with the transaction.
+    private void releaseSavepoint(Savepoint sp) throws SQLException {
+        DBProduct product = getDBProduct();
+        if (product == DBProduct.MSSQLSERVER || product == DBProduct.ORACLE)
+            return;
+        try {
+            getConnection().releaseSavepoint(sp);
+        } catch (SQLFeatureNotSupportedException ignore) {
+        }
+    }
+
+    // rows of idx that failed or were not executed, the others get their update count
+    private static int[] notExecuted(int[] idx, int[] updateCounts, int[] affectedRows) {
+        int[] pending = new int[idx.length];
+        int n = 0;
+        for (int i = 0; i < idx.length; i++)
+            if (updateCounts != null && i < updateCounts.length
+                    && updateCounts[i] != Statement.EXECUTE_FAILED)
+                affectedRows[idx[i]] = updateCounts[i];
+            else
+                pending[n++] = idx[i];
+        return Arrays.copyOf(pending, n);
+    }
+
+    private void endSubBatch(int[] affectedRows, long t0, int firstRow, BatchOptions options,
+            BatchResult result) {
+        result.addBatch(affectedRows, System.nanoTime() - t0);
+        if (getAudit().isEnabled()) {
+            int rows = 0;
+            for (int a : affectedRows)
+                if (a > 0)
+                    rows += a;
+            getAudit().endAuditRecord(rows);
+        }
+        if (options.getListener() != null)
+            options.getListener().executed(result.getBatchCount(), firstRow, affectedRows);
+    }
+
+    public void expectXRows(Row[] rows, int x) throws SQLException {
+        // if negative, 0..* rows are ok, so everything is ok
+        if (x<0) return;
+        if (rows==null && x==0) return;
+
+        boolean ok = true;
+        if (rows == null || rows.length == 0)
+            if (x == 0)
+                return;
+            else
+                ok = false;
+        if (ok) {
+            if (x == rows.length)
+                return;
+            else
+                ok = false;
+        }
+
+        if (!ok)
+            throw new SQLException("expected rows: " + x + ", rows given:"
+                    + (rows == null ? 0 : rows.length));
+    }
+
+    // executeCall
+    @Override
+    public void executeSP(String call) throws SQLException {
+        executeSP(call, null, null);
+    }
+
+    @Override
+    public void executeSPVarArgs(String call, Object... bindVariables) throws SQLException {
+        executeSP(call, bindVariables, null);
+    }
+
+    @Override
+    public void executeSP(String call, Object[] bindVariables) throws SQLException {
+        executeSP(call, bindVariables, null);
+    }
+
+    @Override
+    public void executeSP(String call, Object[] bindVariables, int[] bindTypes)
+            throws SQLException {
+    	long t0 = System.currentTimeMillis();
+        getAudit().startNewAuditRecord(call, bindVariables);
+        CallableStatement cs = null;
+        try {
+            cs = getCallableStatement(call);
+            bindVariables(cs, bindVariables, bindTypes);
+            cs.execute();
+        } catch (SQLException sqle) {
+            printError(System.out, sqle, call, bindVariables, bindTypes);
+            getAudit().endAuditRecord(sqle);
+            throw sqle;
+        } finally {
+            releaseStatement(cs);
+            getAudit().endAuditRecord();
+        }
+        calculateExecTimeMs(t0);
+    }
+
+    // executeDML
+    //
+    @Override
+    public Integer executeDML(String dmlStmt) throws SQLException {
+        return executeDML(dmlStmt, null, null);
+    }
+
+    @Override
+    public Integer executeDMLVarArgs(String dmlStmt, Object... bindVariables) throws SQLException {
+        return executeDML(dmlStmt, bindVariables, null);
+    }
+
+    @Override
+    public Integer executeDML(String dmlStmt, Object[] bindVariables) throws SQLException {
+        return executeDML(dmlStmt, bindVariables, null);
+    }
+
+    @Override
+    public Integer executeDML(String dmlStmt, Object[] bindVariables, int[] bindTypes)
+            throws SQLException {
+        if (unitOfWork != null) {
+            unitOfWork.queue(dmlStmt, bindVariables, bindTypes);
+            return null;
+        }
+    	long t0 = System.currentTimeMillis();
+        getAudit().startNewAuditRecord(dmlStmt, bindVariables);
+        PreparedStatement ps = null;
+        int rows = -1;
+        try {
+            ps = getPreparedStatement(dmlStmt);
+            bindVariables(ps, bindVariables, bindTypes);
+            rows = ps.executeUpdate();
+            return rows;
+        } catch (SQLException sqle) {
+            printError(System.out, sqle, dmlStmt, bindVariables, bindTypes);
+            getAudit().endAuditRecord(sqle);
+            throw sqle;
+        } finally {
+            releaseStatement(ps);
+            getAudit().endAuditRecord(rows);
+            calculateExecTimeMs(t0);
+        }
+    }
+
+    @Override
+    public long[] executeDMLReturningKeys(String dmlStmt, Object[] bindVariables,
+            int[] bindTypes, String... keyColumns) throws SQLException {
+        return executeReturningKeys(dmlStmt, null, bindVariables, bindTypes, keyColumns,
+                SQLUtil::readLongKeys);
+    }
+
+    @Override
+    public Row[] executeDMLReturningKeyRows(String dmlStmt, Object[] bindVariables,
+            int[] bindTypes, String... keyColumns) throws SQLException {
+        return executeReturningKeys(dmlStmt, null, bindVariables, bindTypes, keyColumns,
+                keys -> readKeyRows(dmlStmt, keyColumns, keys));
+    }
+
+    @Override
+    public long[] executeDMLBatchReturningKeys(String dmlStmt, List<Object[]> batchValues,
+            int[] bindTypes, String... keyColumns) throws SQLException {
+        return executeReturningKeys(dmlStmt, batchValues, null, bindTypes, keyColumns,
+                SQLUtil::readLongKeys);
+    }
+
+    @Override
+    public Row[] executeDMLBatchReturningKeyRows(String dmlStmt, List<Object[]> batchValues,
+            int[] bindTypes, String... keyColumns) throws SQLException {
+        return executeReturningKeys(dmlStmt, batchValues, null, bindTypes, keyColumns,
+                keys -> readKeyRows(dmlStmt, keyColumns, keys));
+    }
+
+    private interface KeyReader<K> {
+        K read(ResultSet keys) throws SQLException;
+    }
+
+    // batchValues==null: executed once with bindVariables
+    private <K> K executeReturningKeys(String dmlStmt, List<Object[]> batchValues,
+            Object[] bindVariables, int[] bindTypes, String[] keyColumns, KeyReader<K> reader)
+            throws SQLException {
+        long t0 = System.currentTimeMillis();
+        getAudit().startNewAuditRecord(dmlStmt, bindVariables);
+        PreparedStatement ps = null;
+        ResultSet keys = null;
+        int rows = -1;
+        boolean executed = false;
+        try {
+            ps = getStatement(StatementKey.generatedKeys(dmlStmt, keyColumns));
+            if (batchValues == null) {
+                bindVariables(ps, bindVariables, bindTypes);
+                rows = ps.executeUpdate();
+            } else {
+                BindPlan plan = null;
+                Calendar cal = getCalendar();
+                for (Object[] row : batchValues) {
+                    if (plan == null)
+                        plan = bindVariables(ps, row, bindTypes);
+                    else {
+                        if (bindDebug)
+                            plan.verify(row);
+                        plan.bind(ps, row, cal);
+                    }
+                    ps.addBatch();
+                }
+                executed = true;
+                rows = 0;
+                for (int a : ps.executeBatch())
+                    if (a > 0)
+                        rows += a;
+            }
+            keys = ps.getGeneratedKeys();
+            return reader.read(keys);
+        } catch (SQLException sqle) {
+            printError(System.out, sqle, dmlStmt, bindVariables, bindTypes);
+            getAudit().endAuditRecord(sqle);
+            throw sqle;
+        } finally {
+            closeSilent(keys);
+            if (batchValues != null && !executed)
+                clearBatchSilent(ps);
+            releaseStatement(ps);
+            getAudit().endAuditRecord(rows);
+            calculateExecTimeMs(t0);
+        }
+    }
+
+    private static long[] readLongKeys(ResultSet keys) throws SQLException {
+        long[] result = new long[16];
+        int n = 0;
+        while (keys.next()) {
+            if (n == result.length)
+                result = Arrays.copyOf(result, n * 2);
+            result[n++] = keys.getLong(1);
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private Row[] readKeyRows(String dmlStmt, String[] keyColumns, ResultSet keys)
+            throws SQLException {
+        // not a select, the shape is cached by the statement and its key columns
+        ResultShape shape = getResultShape(dmlStmt + "\0keys:" + String.join(",", keyColumns),
+                keys.getMetaData());
+        List<Row> rows = new ArrayList<>();
+        while (keys.next())
+            rows.add(new Row(shape.readRow(keys), shape.getColumnIndex()));
+        return rows.toArray(new Row[0]);
+    }
+    //
+    // executeDML
+
+    // getRows
+    //
+    @Override
+    public Row[] getRowsVarArgs(String selectStmt, Object... bindVariables) throws SQLException {
+        return getRows(selectStmt, bindVariables, null);
+    }
+
+    @Override
+    public Row[] getRows(String selectStmt) throws SQLException {
+        return getRows(selectStmt, null, null);
+    }
+
+    @Override
+    public Row[] getRows(String selectStmt, Object[] bindVariables) throws SQLException {
+        return getRows(selectStmt, bindVariables, null);
+    }
+
+    // getRow
+    //
+    @Override
+    public Row getRowVarArgs(String selectStmt, Object... bindVariables) throws SQLException {
+        return getRow(selectStmt, bindVariables, null);
+    }
+
+    @Override
+    public Row getRow(String selectStmt) throws SQLException {
+        return getRow(selectStmt, null, null);
+    }
+
+    @Override
+    public Row getRow(String selectStmt, Object[] bindVariables) throws SQLException {
+        return getRow(selectStmt, bindVariables, null);
+    }
+
+    /*
+    @Override
+     why columnMap here?
+    public Row getRow(Hashtable<String, Integer> columnMap, String selectStmt,
+            Object[] bindVariables, int[] bindTypes) throws SQLException {
+        Row[] rows = getRows(columnMap, selectStmt, bindVariables, bindTypes);
+        expectXRows(rows, 1);
+        return rows[0];
+    }
+    */
+
+    @Override
+    public Row getRow(String selectStmt, Object[] bindVariables, int[] bindTypes) throws SQLException {
+        return (Row) getSingleRow(selectStmt, bindVariables, bindTypes, null, (rs, pos) -> {
+            lastMetaData = rs.getMetaData();
+            ResultShape shape = getResultShape(selectStmt, lastMetaData);
+            return new Row(shape.readRow(rs), shape.getColumnIndex());
+        });
+    }
+
+
+    // returns the compiled readers and labels for the current ResultSet, cached by sql.
+    // With the metadata cache enabled a cached shape is only checked against the column count,
+    // otherwise against all column types and labels.
+    ResultShape getResultShape(String selectStmt, ResultSetMetaData metaData)
+            throws SQLException {
+        int colCount = metaData.getColumnCount();
+        ResultShape shape = resultShapeCache.get(selectStmt);
+        if (shape != null && metaDataCacheEnabled && shape.getColumnCount() == colCount)
+            return shape;
+        int[] resultTypes = new int[colCount];
+        String[] labels = new String[colCount];
+        for (int i = 1, n = 0; i <= colCount; i++, n++) {
+            resultTypes[n] = metaData.getColumnType(i);
+            labels[n] = metaData.getColumnLabel(i);
+        }
+        if (shape == null || !shape.matches(resultTypes, labels)) {
+            shape = new ResultShape(selectStmt, resultTypes, labels, getDBProduct());
+            resultShapeCache.put(selectStmt, shape);
+        }
+        return shape;
+    }
+
+    @Override
+    public void enableResultMetaDataCache(boolean enable) {
+        metaDataCacheEnabled = enable;
+    }
+
+    @Override
+    public Row[] getRows(String selectStmt, Object[] bindVariables, int[] bindTypes) throws SQLException {
+    	long t0 = System.currentTimeMillis();
+        getAudit().startNewAuditRecord(selectStmt, bindVariables);
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        ArrayList<Object[]> list = new ArrayList<>();
+        ColumnIndex columnIndex = null;
+        int rowCount = 0;
+        try {
+            // prepare, bind and execute
+            ps = getPreparedStatement(selectStmt);
+            bindVariables(ps, bindVariables, bindTypes);
+            ps.setFetchSize(fetchSize);
+            rs = ps.executeQuery();
+            lastMetaData = rs.getMetaData();
+            rs.setFetchSize(fetchSize);
+
+            // parse types of resultset
+            ResultShape shape = getResultShape(selectStmt, lastMetaData);
+            int colCount = shape.getColumnCount();
+            columnIndex = shape.getColumnIndex();
+            if (expectedColumns != null && expectedColumns != colCount) {
+                throw new IllegalStateException(
+                        "Expected columns: " + expectedColumns + ", columns selected: " + colCount);
+            }
+
+            // fetch data
+            while (rs.next()) {
+                rowCount++;
+                if (expectedRows != null && rowCount > expectedRows) {
+                    throw new IllegalStateException(
+                            "got more than expected rows(expectaion: " + expectedRows + ")");
+                }
+                list.add(shape.readRow(rs));
+            }
+
+        } catch (SQLException sqle) {
+            printError(System.out, sqle, selectStmt, bindVariables, bindTypes);
+            getAudit().endAuditRecord(sqle);
+            throw sqle;
+        } finally {
+            closeSilent(rs);
+            releaseStatement(ps);
+            setExpectations(null, null); // reset expectations
+            getAudit().endAuditRecord(rowCount);
+        }
+
+        Row[] rows = new Row[list.size()];
+        int i = 0;
+        for (Object[] rowData : list)
+            rows[i++] = new Row(rowData, columnIndex);
+        calculateExecTimeMs(t0);
+        return rows;
+    }
+
+    //
+    // getRows
+
+    // getRows(type, ...)
+    //
+    @Override
+    public <T> List<T> getRows(Class<T> type, String selectStmt) throws SQLException {
+        return getRows(type, selectStmt, null, null);
+    }
+
+    @Override
+    public <T> List<T> getRowsVarArgs(Class<T> type, String selectStmt, Object... bindVariables)
+            throws SQLException {
+        return getRows(type, selectStmt, bindVariables, null);
+    }
+
+    @Override
+    public <T> List<T> getRows(Class<T> type, String selectStmt, Object[] bindVariables)
+            throws SQLException {
+        return getRows(type, selectStmt, bindVariables, null);
+    }
+
+    @Override
+    public <T> List<T> getRows(Class<T> type, String selectStmt, Object[] bindVariables,
+            int[] bindTypes) throws SQLException {
+        long t0 = System.currentTimeMillis();
+        getAudit().startNewAuditRecord(selectStmt, bindVariables);
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        List<T> list = new ArrayList<>();
+        try {
+            // prepare, bind and execute
+            ps = getPreparedStatement(selectStmt);
+            bindVariables(ps, bindVariables, bindTypes);
+            ps.setFetchSize(fetchSize);
+            rs = ps.executeQuery();
+            lastMetaData = rs.getMetaData();
+            rs.setFetchSize(fetchSize);
+
+            // mapper is compiled once per class and result shape
+            RowMapper<T> mapper = getResultShape(selectStmt, lastMetaData).getMapper(type);
+
+            // fetch data
+            while (rs.next()) {
+                if (expectedRows != null && list.size() >= expectedRows) {
+                    throw new IllegalStateException(
+                            "got more than expected rows(expectaion: " + expectedRows + ")");
+                }
+                list.add(mapper.map(rs));
+            }
+            return list;
+        } catch (SQLException sqle) {
+            printError(System.out, sqle, selectStmt, bindVariables, bindTypes);
+            getAudit().endAuditRecord(sqle);
+            throw sqle;
+        } finally {
+            closeSilent(rs);
+            releaseStatement(ps);
+            setExpectations(null, null); // reset expectations
+            getAudit().endAuditRecord(list.size());
+            calculateExecTimeMs(t0);
+        }
     }
+    //
+    // getRows(type, ...)
 
-    // executeCall
+    // getRowBlock
+    //
     @Override
-    public void executeSP(String call) throws SQLException {
-        executeSP(call, null, null);
+    public RowBlock getRowBlock(String selectStmt) throws SQLException {
+        return getRowBlock(selectStmt, null, null);
     }
 
     @Override
-    public void executeSPVarArgs(String call, Object... bindVariables) throws SQLException {
-        executeSP(call, bindVariables, null);
+    public RowBlock getRowBlockVarArgs(String selectStmt, Object... bindVariables)
+            throws SQLException {
+        return getRowBlock(selectStmt, bindVariables, null);
     }
 
     @Override
-    public void executeSP(String call, Object[] bindVariables) throws SQLException {
-        executeSP(call, bindVariables, null);
+    public RowBlock getRowBlock(String selectStmt, Object[] bindVariables) throws SQLException {
+        return getRowBlock(selectStmt, bindVariables, null);
     }
 
     @Override
-    public void executeSP(String call, Object[] bindVariables, int[] bindTypes)
+    public RowBlock getRowBlock(String selectStmt, Object[] bindVariables, int[] bindTypes)
             throws SQLException {
-    	long t0 = System.currentTimeMillis();
-        getAudit().startNewAuditRecord(call, bindVariables);
-        CallableStatement cs = null;
+        long t0 = System.currentTimeMillis();
+        getAudit().startNewAuditRecord(selectStmt, bindVariables);
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        int rowCount = 0;
         try {
-            cs = getConnection().prepareCall(call);
-            BindHelper.bindVariables(cs, bindVariables, bindTypes, getCalendar(), getDBProduct());
-            cs.execute();
-            cs.close();
+            // prepare, bind and execute
+            ps = getPreparedStatement(selectStmt);
+            bindVariables(ps, bindVariables, bindTypes);
+            ps.setFetchSize(fetchSize);
+            rs = ps.executeQuery();
+            lastMetaData = rs.getMetaData();
+            rs.setFetchSize(fetchSize);
+
+            // parse types of resultset
+            ResultShape shape = getResultShape(selectStmt, lastMetaData);
+            if (expectedColumns != null && expectedColumns != shape.getColumnCount()) {
+                throw new IllegalStateException("Expected columns: " + expectedColumns
+                        + ", columns selected: " + shape.getColumnCount());
+            }
+            RowBlockReader reader = new RowBlockReader(selectStmt, shape);
+            RowBlock.Builder block = new RowBlock.Builder(shape.getColumnIndex(),
+                    shape.getColumnTypes(), fetchSize);
+
+            // fetch data
+            while (rs.next()) {
+                rowCount++;
+                if (expectedRows != null && rowCount > expectedRows) {
+                    throw new IllegalStateException(
+                            "got more than expected rows(expectaion: " + expectedRows + ")");
+                }
+                reader.appendRow(rs, block);
+            }
+            return block.build();
         } catch (SQLException sqle) {
-            printError(System.out, sqle, call, bindVariables, bindTypes);
+            printError(System.out, sqle, selectStmt, bindVariables, bindTypes);
             getAudit().endAuditRecord(sqle);
             throw sqle;
         } finally {
-            closeSilent(cs);
-            getAudit().endAuditRecord();
+            closeSilent(rs);
+            releaseStatement(ps);
+            setExpectations(null, null); // reset expectations
+            getAudit().endAuditRecord(rowCount);
+            calculateExecTimeMs(t0);
         }
-        calculateExecTimeMs(t0);
     }
+    //
+    // getRowBlock
 
-    // executeDML
+    // getRowList
     //
     @Override
-    public Integer executeDML(String dmlStmt) throws SQLException {
-        return executeDML(dmlStmt, null, null);
+    public void setSpillHeapBudget(long heapBytes) {
+        spillHeapBudget = heapBytes;
     }
 
     @Override
-    public Integer executeDMLVarArgs(String dmlStmt, Object... bindVariables) throws SQLException {
-        return executeDML(dmlStmt, bindVariables, null);
+    public void setSpillDirectory(Path directory) {
+        spillDirectory = directory;
     }
 
     @Override
-    public Integer executeDML(String dmlStmt, Object[] bindVariables) throws SQLException {
-        return executeDML(dmlStmt, bindVariables, null);
+    public RowList getRowList(String selectStmt) throws SQLException {
+        return getRowList(selectStmt, null, null);
     }
 
     @Override
-    public Integer executeDML(String dmlStmt, Object[] bindVariables, int[] bindTypes)
+    public RowList getRowListVarArgs(String selectStmt, Object... bindVariables)
             throws SQLException {
-    	long t0 = System.currentTimeMillis();
-        getAudit().startNewAuditRecord(dmlStmt, bindVariables);
+        return getRowList(selectStmt, bindVariables, null);
+    }
+
+    @Override
+    public RowList getRowList(String selectStmt, Object[] bindVariables) throws SQLException {
+        return getRowList(selectStmt, bindVariables, null);
+    }
+
+    @Override
+    public RowList getRowList(String selectStmt, Object[] bindVariables, int[] bindTypes)
+            throws SQLException {
+        long t0 = System.currentTimeMillis();
+        getAudit().startNewAuditRecord(selectStmt, bindVariables);
         PreparedStatement ps = null;
-        int rows = -1;
+        ResultSet rs = null;
+        SpillingRowList list = null;
+        int rowCount = 0;
         try {
-            ps = getPreparedStatement(dmlStmt);
-            BindHelper.bindVariables(ps, bindVariables, bindTypes, getCalendar(), getDBProduct());
-            rows = ps.executeUpdate();
-            return rows;
+            // prepare, bind and execute
+            ps = getPreparedStatement(selectStmt);
+            bindVariables(ps, bindVariables, bindTypes);
+            ps.setFetchSize(fetchSize);
+            rs = ps.executeQuery();
+            lastMetaData = rs.getMetaData();
+            rs.setFetchSize(fetchSize);
+
+            // parse types of resultset
+            ResultShape shape = getResultShape(selectStmt, lastMetaData);
+            if (expectedColumns != null && expectedColumns != shape.getColumnCount()) {
+                throw new IllegalStateException("Expected columns: " + expectedColumns
+                        + ", columns selected: " + shape.getColumnCount());
+            }
+            list = new SpillingRowList(shape.getColumnIndex(), shape.getColumnTypes(),
+                    spillHeapBudget, spillDirectory);
+
+            // fetch data
+            while (rs.next()) {
+                rowCount++;
+                if (expectedRows != null && rowCount > expectedRows) {
+                    throw new IllegalStateException(
+                            "got more than expected rows(expectaion: " + expectedRows + ")");
+                }
+                list.append(shape.readRow(rs));
+            }
+            list.finish();
+            SpillingRowList result = list;
+            list = null;
+            return result;
+        } catch (IOException ioe) {
+            SQLException sqle = new SQLException("cannot spill rows to disk: " + ioe.getMessage(),
+                    ioe);
+            printError(System.out, sqle, selectStmt, bindVariables, bindTypes);
+            getAudit().endAuditRecord(sqle);
+            throw sqle;
         } catch (SQLException sqle) {
-            printError(System.out, sqle, dmlStmt, bindVariables, bindTypes);
+            printError(System.out, sqle, selectStmt, bindVariables, bindTypes);
             getAudit().endAuditRecord(sqle);
             throw sqle;
         } finally {
-            if (lruStatementCache == null)
-                closeSilent(ps);
-            getAudit().endAuditRecord(rows);
+            // list is only set here if an error occurred
+            if (list != null)
+                list.close();
+            closeSilent(rs);
+            releaseStatement(ps);
+            setExpectations(null, null); // reset expectations
+            getAudit().endAuditRecord(rowCount);
             calculateExecTimeMs(t0);
         }
     }
     //
-    // executeDML
+    // getRowList
 
-    // getRows
+    // forEachRow
     //
     @Override
-    public Row[] getRowsVarArgs(String selectStmt, Object... bindVariables) throws SQLException {
-        return getRows(selectStmt, bindVariables, null);
+    public int forEachRow(String selectStmt, RowHandler handler) throws SQLException {
+        return forEachRow(selectStmt, null, null, handler);
     }
 
     @Override
-    public Row[] getRows(String selectStmt) throws SQLException {
-        return getRows(selectStmt, null, null);
+    public int forEachRow(String selectStmt, Object[] bindVariables, RowHandler handler)
+            throws SQLException {
+        return forEachRow(selectStmt, bindVariables, null, handler);
     }
 
     @Override
-    public Row[] getRows(String selectStmt, Object[] bindVariables) throws SQLException {
-        return getRows(selectStmt, bindVariables, null);
-    }
+    public int forEachRow(String selectStmt, Object[] bindVariables, int[] bindTypes,
+            RowHandler handler) throws SQLException {
+        long t0 = System.currentTimeMillis();
+        getAudit().startNewAuditRecord(selectStmt, bindVariables);
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        int rowCount = 0;
+        try {
+            // prepare, bind and execute
+            ps = getPreparedStatement(selectStmt);
+            bindVariables(ps, bindVariables, bindTypes);
+            ps.setFetchSize(fetchSize);
+            rs = ps.executeQuery();
+            lastMetaData = rs.getMetaData();
+            rs.setFetchSize(fetchSize);
 
-    // getRow
-    //
-    @Override
-    public Row getRowVarArgs(String selectStmt, Object... bindVariables) throws SQLException {
-        return getRow(selectStmt, bindVariables, null);
-    }
+            // parse types of resultset
+            ResultShape shape = getResultShape(selectStmt, lastMetaData);
+            ResultSetRowView view = new ResultSetRowView(rs, shape);
 
-    @Override
-    public Row getRow(String selectStmt) throws SQLException {
-        return getRow(selectStmt, null, null);
+            // one view for all rows
+            while (rs.next()) {
+                rowCount++;
+                view.setRowNumber(rowCount);
+                handler.handle(view);
+            }
+            return rowCount;
+        } catch (SQLException sqle) {
+            printError(System.out, sqle, selectStmt, bindVariables, bindTypes);
+            getAudit().endAuditRecord(sqle);
+            throw sqle;
+        } finally {
+            closeSilent(rs);
+            releaseStatement(ps);
+            getAudit().endAuditRecord(rowCount);
+            calculateExecTimeMs(t0);
+        }
     }
+    //
+    // forEachRow
 
+    // getColumns
+    //
     @Override
-    public Row getRow(String selectStmt, Object[] bindVariables) throws SQLException {
-        return getRow(selectStmt, bindVariables, null);
+    public ColumnBatch getColumns(String selectStmt) throws SQLException {
+        return getColumns(selectStmt, null, null);
     }
 
-    /*
     @Override
-     why columnMap here?
-    public Row getRow(Hashtable<String, Integer> columnMap, String selectStmt,
-            Object[] bindVariables, int[] bindTypes) throws SQLException {
-        Row[] rows = getRows(columnMap, selectStmt, bindVariables, bindTypes);
-        expectXRows(rows, 1);
-        return rows[0];
+    public ColumnBatch getColumnsVarArgs(String selectStmt, Object... bindVariables)
+            throws SQLException {
+        return getColumns(selectStmt, bindVariables, null);
     }
-    */
 
     @Override
-    public Row getRow(String selectStmt, Object[] bindVariables, int[] bindTypes) throws SQLException {
-        Row[] rows = getRows(selectStmt, bindVariables, bindTypes);
-        expectXRows(rows, 1);
-        return rows[0];
-    }
-
-
-    private Object[] convertResultRow2ObjectArray(ResultSet rs, int colCount, int rowCount,
-            final int[] resultTypes, final String selectStmt) throws SQLException {
-        Object[] row = new Object[colCount];
-        Object v = null;
-        for (int i = 1, n = 0; i <= colCount; i++, n++) {
-            switch (resultTypes[n]) {
-            case Types.VARCHAR:
-            case Types.CHAR:
-            case Types.LONGVARCHAR:
-                v = getString(rs, i);
-                break;
-            case Types.SMALLINT:
-                v = getInteger(rs, i);
-                break;
-            case Types.INTEGER:
-            case Types.BIGINT:
-                // FIXME: ? does bigint always match to getLong?
-                v = getLong(rs, i);
-                break;
-            case Types.NUMERIC:
-            case Types.DECIMAL:
-                v = getBigDecimal(rs, i);
-                break;
-            case Types.DATE:
-                v = getDate(rs, i);
-                break;
-            case Types.REAL:
-                v = getFloat(rs, i);
-                break;
-            case Types.DOUBLE:
-                v = getDouble(rs, i);
-                break;
-            case Types.TIMESTAMP:
-                v = getTimestamp(rs, i);
-                break;
-            case Types.TIME:
-                v = getTime(rs, i);
-                break;
-            case Types.BIT:
-            case Types.BOOLEAN:
-                v = getBoolean(rs, i);
-                break;
-            case Types.BINARY:
-            case Types.VARBINARY:
-            case Types.LONGVARBINARY:
-                v = getByteArray(rs, i);
-                break;
-            default:
-                // all special or dependent values....
-                boolean err = false;
-                if (getDBProduct() == DBProduct.POSTGRESQL) {
-                    // numbers are hardcoded, so no postgres driver is referenced.
-                    switch (resultTypes[n]) {
-                    case 8: //float8
-                        v = getDouble(rs, i);
-                        break;
-                    case -5: // smallint
-                        v = getLong(rs, i);
-                        break;
-                    case 1111: // json
-                        v = getString(rs, i);
-                        break;
-                    default:
-                        err = true;
-                    }
-                } else if (getDBProduct() == DBProduct.MSSQLSERVER) {
-                    switch (resultTypes[n]) {
-                    case -155: // DATETIMEOFFSET
-                        v = getTimestamp(rs, i);
-                        break;
-                    default:
-                        err = true;
-                    }
-                } else if (getDBProduct() == DBProduct.ORACLE) {
-                    switch (resultTypes[n]) {
-                    case 101: // DOUBLE?
-                        v = getDouble(rs, i);
-                        break;
-                    case -101: // Timestamp with Time Zone
-                        v = getTimestamp(rs, i);
-                        break;
-                    case 2005: // clob
-                        v = getString(rs, i);
-                        break;
-                    default:
-                        err = true;
-                    }
-                } else {
-                    err = true;
-                }
-                if (err) {
-                    throw new UnsupportedOperationException(
-                            "Cannot convert db-value to Java, column #" + i + " in sql <<"
-                                    + selectStmt + ">>, value of resultTypes[" + n + "]="
-                                    + resultTypes[n]);
-                }
-            }
-            row[n] = v;
-            if (expectedRows != null && rowCount > expectedRows) {
-                throw new IllegalStateException(
-                        "got more than expected rows(expectaion: " + expectedRows + ")");
-            }
-        }
-        return row;
+    public ColumnBatch getColumns(String selectStmt, Object[] bindVariables) throws SQLException {
+        return getColumns(selectStmt, bindVariables, null);
     }
 
     @Override
-    public Row[] getRows(String selectStmt, Object[] bindVariables, int[] bindTypes) throws SQLException {
-    	long t0 = System.currentTimeMillis();
+    public ColumnBatch getColumns(String selectStmt, Object[] bindVariables, int[] bindTypes)
+            throws SQLException {
+        long t0 = System.currentTimeMillis();
         getAudit().startNewAuditRecord(selectStmt, bindVariables);
         PreparedStatement ps = null;
         ResultSet rs = null;
-        ArrayList<Object[]> list = new ArrayList<>();
-        Hashtable<String, Integer> columnMap = new Hashtable<>();
         int rowCount = 0;
         try {
             // prepare, bind and execute
-            ps = getConnection().prepareStatement(selectStmt);
-            BindHelper.bindVariables(ps, bindVariables, bindTypes, getCalendar(), getDBProduct());
+            ps = getPreparedStatement(selectStmt);
+            bindVariables(ps, bindVariables, bindTypes);
             ps.setFetchSize(fetchSize);
             rs = ps.executeQuery();
             lastMetaData = rs.getMetaData();
             rs.setFetchSize(fetchSize);
 
-            // parse types of resultset
-            int colCount = rs.getMetaData().getColumnCount();
-            int[] resultTypes = new int[colCount];
+            // one buffer per column, type resolved once
+            ResultShape shape = getResultShape(selectStmt, lastMetaData);
+            int colCount = shape.getColumnCount();
+            String[] columnNames = shape.getLabels().clone();
+            ColumnType[] columnTypes = shape.getColumnTypes().clone();
+            ColumnBuffer[] buffers = new ColumnBuffer[colCount];
             for (int i = 1, n = 0; i <= colCount; i++, n++) {
-                resultTypes[n] = rs.getMetaData().getColumnType(i);
-                //System.out.println(n+":"+resultTypes[n]+":"+lastMetaData.getColumnClassName(i)+" "+lastMetaData.getColumnTypeName(i));
-                columnMap.put(rs.getMetaData().getColumnLabel(i), n);
-            }
-            if (expectedColumns != null && expectedColumns != colCount) {
-                throw new IllegalStateException(
-                        "Expected columns: " + expectedColumns + ", columns selected: " + colCount);
+                if (columnTypes[n] == null)
+                    throw new UnsupportedOperationException(
+                            "Cannot convert db-value to Java, column #" + i + " in sql <<"
+                                    + selectStmt + ">>, value of resultTypes[" + n + "]="
+                                    + shape.getResultTypes()[n]);
+                buffers[n] = ColumnBuffer.create(columnTypes[n], fetchSize);
             }
 
             // fetch data
             while (rs.next()) {
+                for (int n = 0; n < colCount; n++)
+                    buffers[n].append(rs, n + 1);
                 rowCount++;
-                Object[] row = convertResultRow2ObjectArray(rs, colCount, rowCount, resultTypes,
-                        selectStmt);
-                list.add(row);
             }
 
+            Object[] columns = new Object[colCount];
+            long[][] nullBitmaps = new long[colCount][];
+            for (int n = 0; n < colCount; n++) {
+                columns[n] = buffers[n].values();
+                nullBitmaps[n] = buffers[n].nullBitmap();
+            }
+            return new ColumnBatch(rowCount, columnNames, columnTypes, columns, nullBitmaps);
         } catch (SQLException sqle) {
             printError(System.out, sqle, selectStmt, bindVariables, bindTypes);
             getAudit().endAuditRecord(sqle);
             throw sqle;
         } finally {
             closeSilent(rs);
-            if (lruStatementCache == null)
-                closeSilent(ps);
-            setExpectations(null, null); // reset expectations
+            releaseStatement(ps);
             getAudit().endAuditRecord(rowCount);
+            calculateExecTimeMs(t0);
         }
-
-        Row[] rows = new Row[list.size()];
-        int i = 0;
-        for (Object[] rowData : list)
-            rows[i++] = new Row(rowData, columnMap);
-        calculateExecTimeMs(t0);
-        return rows;
     }
-
     //
-    // getRows
+    // getColumns
+
+    // what a single value query returns, read with the ColumnReader of the matching ColumnType
     private enum ReturnType {
-        STRING, DOUBLE, LONG, BIGDECIMAL, SQLDATE, SQLTIMESTAMP, BYTEARRAY
+        STRING(ColumnReader.STRING), DOUBLE(ColumnReader.DOUBLE), LONG(ColumnReader.LONG),
+        BIGDECIMAL(ColumnReader.BIGDECIMAL), SQLDATE(ColumnReader.DATE),
+        SQLTIMESTAMP(ColumnReader.TIMESTAMP), BYTEARRAY(ColumnReader.BYTES);
+
+        private final ColumnReader reader;
+
+        ReturnType(ColumnReader reader) {
+            this.reader = reader;
+        }
+    }
+
+    private Object getObject(String selectStmt, Object[] bindVariables, int[] bindTypes,
+            ReturnType rt) throws SQLException {
+        return getSingleRow(selectStmt, bindVariables, bindTypes, 1, rt.reader);
     }
 
-    private Object getObject(String selectStmt, ReturnType rt) throws SQLException {
+    // the path of all single row/single value queries: cached statement, no Row[] and no list.
+    // maxRows=2 is enough to detect a second row, the driver doesn't have to send the rest.
+    // expectedColumns: null for any number of columns
+    private Object getSingleRow(String selectStmt, Object[] bindVariables, int[] bindTypes,
+            Integer expectedColumns, ColumnReader reader) throws SQLException {
         long t0 = System.currentTimeMillis();
-        getAudit().startNewAuditRecord(selectStmt);
+        getAudit().startNewAuditRecord(selectStmt, bindVariables);
         PreparedStatement ps = null;
         ResultSet rs = null;
+        int maxRows = 0;
+        int rowCount = 0;
         try {
             ps = getPreparedStatement(selectStmt);
+            bindVariables(ps, bindVariables, bindTypes);
+            maxRows = ps.getMaxRows();
+            if (maxRows != 2)
+                ps.setMaxRows(2);
             rs = ps.executeQuery();
-            rs.next();
-            Object v = null;
-            switch (rt) {
-            case STRING:
-                v = rs.getString(1);
-                break;
-            case LONG:
-                v = Long.valueOf(rs.getLong(1));
-                break;
-            case BIGDECIMAL:
-                v = rs.getBigDecimal(1);
-                break;
-            case SQLDATE:
-                v = rs.getDate(1);
-                break;
-            case SQLTIMESTAMP:
-                v = rs.getTimestamp(1);
-                break;
-            case DOUBLE:
-                v = rs.getDouble(1);
-                break;
-            case BYTEARRAY:
-                v = rs.getBytes(1);
-                break;
+            if (expectedColumns != null
+                    && expectedColumns != rs.getMetaData().getColumnCount()) {
+                throw new IllegalStateException("Expected columns: " + expectedColumns
+                        + ", columns selected: " + rs.getMetaData().getColumnCount());
             }
-            if (rs.wasNull())
-                return null;
+            if (!rs.next())
+                throw new ReturnedNoRowException("single row query returned no row");
+            rowCount = 1;
+            Object v = reader.read(rs, 1);
             if (rs.next())
-                throw new SQLException("single row query returned more than one row");
+                throw new ReturnedMoreThanOneRowException();
             return v;
         } catch (SQLException sqle) {
-            printError(System.out, sqle, selectStmt, null, null);
+            printError(System.out, sqle, selectStmt, bindVariables, bindTypes);
             getAudit().endAuditRecord(sqle);
             throw sqle;
         } finally {
             closeSilent(rs);
-            if (lruStatementCache == null)
-                closeSilent(ps);
-            getAudit().endAuditRecord(1);
+            if (ps != null && maxRows != 2)
+                restoreMaxRows(ps, maxRows);
+            releaseStatement(ps);
+            getAudit().endAuditRecord(rowCount);
             calculateExecTimeMs(t0);
         }
     }
 
+    // a cached statement can be used by other methods for the same sql
+    private void restoreMaxRows(PreparedStatement ps, int maxRows) {
+        if (lruStatementCache == null)
+            return;
+        try {
+            if (!ps.isClosed())
+                ps.setMaxRows(maxRows);
+        } catch (SQLException sqle) {
+            // statement is not usable anymore, the cache drops closed statements
+            closeSilent(ps);
+        }
+    }
+
     // <T> get<T>(selectStmt)
     //
     @Override
     public String getString(String selectStmt) throws SQLException {
-        return (String) getObject(selectStmt, ReturnType.STRING);
+        return (String) getObject(selectStmt, null, null, ReturnType.STRING);
     }
 
     @Override
     public Long getLong(String selectStmt) throws SQLException {
-        return (Long) getObject(selectStmt, ReturnType.LONG);
+        return (Long) getObject(selectStmt, null, null, ReturnType.LONG);
     }
 
     @Override
     public Double getDouble(String selectStmt) throws SQLException {
-        return (Double) getObject(selectStmt, ReturnType.DOUBLE);
+        return (Double) getObject(selectStmt, null, null, ReturnType.DOUBLE);
     }
 
     @Override
     public BigDecimal getBigDecimal(String selectStmt) throws SQLException {
-        return (BigDecimal) getObject(selectStmt, ReturnType.BIGDECIMAL);
+        return (BigDecimal) getObject(selectStmt, null, null, ReturnType.BIGDECIMAL);
     }
 
     @Override
     public java.sql.Timestamp getTimestamp(String selectStmt) throws SQLException {
-        return (java.sql.Timestamp) getObject(selectStmt, ReturnType.SQLTIMESTAMP);
+        return (java.sql.Timestamp) getObject(selectStmt, null, null, ReturnType.SQLTIMESTAMP);
     }
 
     @Override
     public byte[] getRaw(String selectStmt) throws SQLException {
-        return (byte[]) getObject(selectStmt, ReturnType.BYTEARRAY);
+        return (byte[]) getObject(selectStmt, null, null, ReturnType.BYTEARRAY);
     }
     //
     // <T> get<T>(selectStmt)
@@ -893,34 +1957,34 @@ public final class SQLUtil implements SQLUtilInterface {
     //
     @Override
     public String getStringVarArgs(String selectStmt, Object... bindVariables) throws SQLException {
-        return (String) getObject(selectStmt, bindVariables);
+        return (String) getObject(selectStmt, bindVariables, null, ReturnType.STRING);
     }
 
     @Override
     public Long getLongVarArgs(String selectStmt, Object... bindVariables) throws SQLException {
-        return ConversionHelper.toLong(getObject(selectStmt, bindVariables));
+        return (Long) getObject(selectStmt, bindVariables, null, ReturnType.LONG);
     }
 
     @Override
     public BigDecimal getBigDecimalVarArgs(String selectStmt, Object... bindVariables)
             throws SQLException {
-        return ConversionHelper.toBigDecimal(getObject(selectStmt, bindVariables));
+        return (BigDecimal) getObject(selectStmt, bindVariables, null, ReturnType.BIGDECIMAL);
     }
 
     @Override
     public Double getDoubleVarArgs(String selectStmt, Object... bindVariables) throws SQLException {
-        return (Double) getObject(selectStmt, bindVariables);
+        return (Double) getObject(selectStmt, bindVariables, null, ReturnType.DOUBLE);
     }
 
     @Override
     public Timestamp getTimestampVarArgs(String selectStmt, Object... bindVariables)
             throws SQLException {
-        return (Timestamp) getObject(selectStmt, bindVariables);
+        return (Timestamp) getObject(selectStmt, bindVariables, null, ReturnType.SQLTIMESTAMP);
     }
 
     @Override
     public byte[] getRawVarArgs(String selectStmt, Object... bindVariables) throws SQLException {
-        return (byte[]) getObject(selectStmt, bindVariables);
+        return (byte[]) getObject(selectStmt, bindVariables, null, ReturnType.BYTEARRAY);
     }
     //
     // <T> get<T>VarArgs(selectStmt, bindVars...)
@@ -929,37 +1993,34 @@ public final class SQLUtil implements SQLUtilInterface {
     //
     @Override
     public String getString(String selectStmt, Object[] bindVariables) throws SQLException {
-        return (String) getObject(selectStmt, bindVariables);
+        return (String) getObject(selectStmt, bindVariables, null, ReturnType.STRING);
     }
 
     @Override
     public Long getLong(String selectStmt, Object[] bindVariables) throws SQLException {
-        return ConversionHelper.toLong(getObject(selectStmt, bindVariables));
+        return (Long) getObject(selectStmt, bindVariables, null, ReturnType.LONG);
     }
 
     @Override
     public Timestamp getTimestamp(String selectStmt, Object[] bindVariables) throws SQLException {
-        return (Timestamp) getObject(selectStmt, bindVariables);
+        return (Timestamp) getObject(selectStmt, bindVariables, null, ReturnType.SQLTIMESTAMP);
     }
 
     @Override
     public BigDecimal getBigDecimal(String selectStmt, Object[] bindVariables) throws SQLException {
-        return ConversionHelper.toBigDecimal(getObject(selectStmt, bindVariables));
+        return (BigDecimal) getObject(selectStmt, bindVariables, null, ReturnType.BIGDECIMAL);
     }
 
     @Override
     public Double getDouble(String selectStmt, Object[] bindVariables) throws SQLException {
-        return (Double) getObject(selectStmt, bindVariables);
+        return (Double) getObject(selectStmt, bindVariables, null, ReturnType.DOUBLE);
     }
 
     @Override
     public byte[] getRaw(String selectStmt, Object[] bindVariables) throws SQLException {
-        return (byte[]) getObject(selectStmt, bindVariables);
+        return (byte[]) getObject(selectStmt, bindVariables, null, ReturnType.BYTEARRAY);
     }
 
-    private Object getObject(String selectStmt, Object[] bindVariables) throws SQLException {
-        return getObject(selectStmt, bindVariables, null);
-    }
     //
     // <T> get<T>(selectStmt, bindVars)
 
@@ -968,45 +2029,39 @@ public final class SQLUtil implements SQLUtilInterface {
     @Override
     public String getString(String selectStmt, Object[] bindVariables, int[] bindTypes)
             throws SQLException {
-        return (String) getObject(selectStmt, bindVariables, bindTypes);
+        return (String) getObject(selectStmt, bindVariables, bindTypes, ReturnType.STRING);
     }
 
     @Override
     public Long getLong(String selectStmt, Object[] bindVariables, int[] bindTypes)
             throws SQLException {
-        return ConversionHelper.toLong(getObject(selectStmt, bindVariables, bindTypes));
+        return (Long) getObject(selectStmt, bindVariables, bindTypes, ReturnType.LONG);
     }
 
     @Override
     public Timestamp getTimestamp(String selectStmt, Object[] bindVariables, int[] bindTypes)
             throws SQLException {
-        return (Timestamp) getObject(selectStmt, bindVariables, bindTypes);
+        return (Timestamp) getObject(selectStmt, bindVariables, bindTypes,
+                ReturnType.SQLTIMESTAMP);
     }
 
     @Override
     public Double getDouble(String selectStmt, Object[] bindVariables, int[] bindTypes)
             throws SQLException {
-        return (Double) getObject(selectStmt, bindVariables, bindTypes);
+        return (Double) getObject(selectStmt, bindVariables, bindTypes, ReturnType.DOUBLE);
     }
 
     @Override
     public BigDecimal getBigDecimal(String selectStmt, Object[] bindVariables, int[] bindTypes)
             throws SQLException {
-        return ConversionHelper.toBigDecimal(getObject(selectStmt, bindVariables, bindTypes));
+        return (BigDecimal) getObject(selectStmt, bindVariables, bindTypes,
+                ReturnType.BIGDECIMAL);
     }
 
     @Override
     public byte[] getRaw(String selectStmt, Object[] bindVariables, int[] bindTypes)
             throws SQLException {
-        return (byte[]) getObject(selectStmt, bindVariables, bindTypes);
-    }
-
-    private Object getObject(String selectStmt, Object[] bindVariables, int[] bindTypes)
-            throws SQLException {
-        setExpectations(1, 1);
-        Row[] r = getRows(selectStmt, bindVariables, bindTypes);
-        expectXRows(r, 1);
-        return r[0].get(0);
+        return (byte[]) getObject(selectStmt, bindVariables, bindTypes, ReturnType.BYTEARRAY);
     }
 
     // List<<T>> get<T>s(selectStmt)
@@ -1205,81 +2260,7 @@ public final class SQLUtil implements SQLUtilInterface {
 
     // INTERNAL HELPER
     //
-    private static String getString(ResultSet rs, int pos) throws SQLException {
-        return rs.getString(pos);
-    }
-
-    @SuppressWarnings("unused")
-    // nevertheless, this is here to be complete
-    private static String getString(ResultSet rs, String col) throws SQLException {
-        return rs.getString(col);
-    }
-
-    private static Long getLong(ResultSet rs, int pos) throws SQLException {
-        long v = rs.getLong(pos);
-        if (rs.wasNull())
-            return null;
-        return v;
-    }
-
-    @SuppressWarnings("unused")
-    // nevertheless, this is here to be complete
-    private static Long getLong(ResultSet rs, String col) throws SQLException {
-        long v = rs.getLong(col);
-        if (rs.wasNull())
-            return null;
-        return v;
-    }
-
-    private static Integer getInteger(ResultSet rs, int pos) throws SQLException {
-        int v = rs.getInt(pos);
-        if (rs.wasNull())
-            return null;
-        return v;
-    }
-
-    private static Boolean getBoolean(ResultSet rs, int pos) throws SQLException {
-        boolean v = rs.getBoolean(pos);
-        if (rs.wasNull())
-            return null;
-        return v;
-    }
-
-    private static Float getFloat(ResultSet rs, int pos) throws SQLException {
-        float v = rs.getFloat(pos);
-        if (rs.wasNull())
-            return null;
-        return v;
-    }
-
-    private static Double getDouble(ResultSet rs, int pos) throws SQLException {
-        double v = rs.getDouble(pos);
-        if (rs.wasNull())
-            return null;
-        return v;
-    }
-
-    private static BigDecimal getBigDecimal(ResultSet rs, int pos) throws SQLException {
-        return rs.getBigDecimal(pos);
-    }
-
-    private static java.sql.Date getDate(ResultSet rs, int pos) throws SQLException {
-        return rs.getDate(pos);
-    }
-
-    private static java.sql.Timestamp getTimestamp(ResultSet rs, int pos) throws SQLException {
-        return rs.getTimestamp(pos);
-    }
-
-    private static java.sql.Time getTime(ResultSet rs, int pos) throws SQLException {
-        return rs.getTime(pos);
-    }
-
-    private static byte[] getByteArray(ResultSet rs, int i) throws SQLException {
-        return rs.getBytes(i);
-    }
-
-    private static void printError(PrintStream out, SQLException sqle, String stmt,
+    static void printError(PrintStream out, SQLException sqle, String stmt,
             Object[] bindVariables, int[] bindTypes) {
         out.println(sqle.getMessage());
         out.println("sql=" + stmt);
@@ -0,0 +1,242 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.impl;
+
+import java.io.IOException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.cg.sqlutil.ColumnIndex;
+import com.cg.sqlutil.ColumnType;
+import com.cg.sqlutil.Row;
+import com.cg.sqlutil.RowList;
+
+// Rows are kept on the heap until heapBudget is reached, all following rows are encoded with a
+// RowCodec and appended to a temporary file. When all rows are read, the file is mapped into
+// memory (in segments of at most 1GB, a row never crosses a segment).
+final class SpillingRowList extends AbstractList<Row> implements RowList {
+
+    private static final long SEGMENT_SIZE = 1L << 30;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    private final ColumnIndex columnIndex;
+    private final ColumnType[] columnTypes;
+    private final long heapBudget;
+    private final Path spillDirectory;
+    private final ArrayList<Row> heapRows = new ArrayList<>();
+    private long heapBytes;
+    private RowCodec codec;
+
+    // spill file, null if not spilled
+    private Path file;
+    private FileChannel channel;
+    private ByteBuffer writeBuffer;
+    private SpillFileRef cleanable;
+    private long fileSize;
+    private long[] offsets;
+    private int spilledCount;
+    private long[] segmentStarts;
+    private int segmentCount;
+    private MappedByteBuffer[] segments;
+    private boolean closed;
+
+    SpillingRowList(ColumnIndex columnIndex, ColumnType[] columnTypes, long heapBudget,
+            Path spillDirectory) {
+        this.columnIndex = columnIndex;
+        this.columnTypes = columnTypes;
+        this.heapBudget = heapBudget;
+        this.spillDirectory = spillDirectory;
+    }
+
+    // while reading the ResultSet
+    void append(Object[] data) throws IOException {
+        if (file == null) {
+            if (codec == null)
+                codec = new RowCodec(columnTypes);
+            heapBytes += codec.estimateHeapBytes(data);
+            if (heapBytes <= heapBudget) {
+                heapRows.add(new Row(data, columnIndex));
+                return;
+            }
+            openSpillFile();
+        }
+        ByteBuffer row = codec.encode(data);
+        int len = row.remaining();
+        // a row never crosses a segment
+        if (fileSize + len - segmentStarts[segmentCount - 1] > SEGMENT_SIZE) {
+            if (segmentCount == segmentStarts.length)
+                segmentStarts = Arrays.copyOf(segmentStarts, segmentCount * 2);
+            segmentStarts[segmentCount++] = fileSize;
+        }
+        if (spilledCount == offsets.length)
+            offsets = Arrays.copyOf(offsets, spilledCount + (spilledCount >> 1));
+        offsets[spilledCount++] = fileSize;
+        if (len > writeBuffer.remaining())
+            flushWriteBuffer();
+        if (len > writeBuffer.capacity())
+            writeFully(row);
+        else
+            writeBuffer.put(row);
+        fileSize += len;
+    }
+
+    // after the last row was appended
+    void finish() throws IOException {
+        if (file == null)
+            return;
+        flushWriteBuffer();
+        writeBuffer = null;
+        segments = new MappedByteBuffer[segmentCount];
+        for (int s = 0; s < segmentCount; s++) {
+            long end = s + 1 < segmentCount ? segmentStarts[s + 1] : fileSize;
+            segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, segmentStarts[s],
+                    end - segmentStarts[s]);
+        }
+    }
+
+    private void openSpillFile() throws IOException {
+        file = spillDirectory == null ? Files.createTempFile("sqlutil", ".rows")
+                : Files.createTempFile(spillDirectory, "sqlutil", ".rows");
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // deletes the file, also if close() is never called
+        cleanable = new SpillFileRef(this, new SpillFileRemover(channel, file));
+        writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        offsets = new long[1024];
+        segmentStarts = new long[4];
+        segmentCount = 1;
+    }
+
+    private void flushWriteBuffer() throws IOException {
+        writeBuffer.flip();
+        writeFully(writeBuffer);
+        writeBuffer.clear();
+    }
+
+    private void writeFully(ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining())
+            channel.write(buf);
+    }
+
+    @Override
+    public Row get(int index) {
+        if (closed)
+            throw new IllegalStateException("RowList is closed");
+        if (index < heapRows.size())
+            return heapRows.get(index);
+        int i = index - heapRows.size();
+        if (index < 0 || i >= spilledCount)
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size());
+        long offset = offsets[i];
+        int s = Arrays.binarySearch(segmentStarts, 0, segmentCount, offset);
+        if (s < 0)
+            s = -s - 2;
+        return new Row(codec.decode(segments[s], (int) (offset - segmentStarts[s])), columnIndex);
+    }
+
+    @Override
+    public int size() {
+        return heapRows.size() + spilledCount;
+    }
+
+    @Override
+    public boolean isSpilled() {
+        return file != null;
+    }
+
+    @Override
+    public int getHeapRowCount() {
+        return heapRows.size();
+    }
+
+    @Override
+    public long getSpillFileSize() {
+        return fileSize;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        segments = null;
+        heapRows.clear();
+        spilledCount = 0;
+        if (cleanable != null)
+            cleanable.clean();
+    }
+
+    // java.lang.ref.Cleaner is java 9: a phantom reference per spill file, a daemon thread (started
+    // with the first spill) removes the files of lists that were collected without close()
+    private static final class SpillFileRef extends PhantomReference<SpillingRowList> {
+        private static final ReferenceQueue<SpillingRowList> COLLECTED = new ReferenceQueue<>();
+        // keeps the references reachable until they are cleaned
+        private static final Set<SpillFileRef> OPEN = ConcurrentHashMap.newKeySet();
+        static {
+            Thread t = new Thread(SpillFileRef::removeCollected, "sqlutil-spill-cleaner");
+            t.setDaemon(true);
+            t.start();
+        }
+
+        private final SpillFileRemover remover;
+
+        SpillFileRef(SpillingRowList list, SpillFileRemover remover) {
+            super(list, COLLECTED);
+            this.remover = remover;
+            OPEN.add(this);
+        }
+
+        // once, by close() or after the list was collected
+        void clean() {
+            if (OPEN.remove(this))
+                remover.run();
+        }
+
+        private static void removeCollected() {
+            while (true) {
+                try {
+                    ((SpillFileRef) COLLECTED.remove()).clean();
+                } catch (InterruptedException ie) {
+                    // daemon, runs as long as the jvm
+                }
+            }
+        }
+    }
+
+    // must not reference the list, or it's never collected
+    private static final class SpillFileRemover implements Runnable {
+        private final FileChannel channel;
+        private final Path file;
+
+        SpillFileRemover(FileChannel channel, Path file) {
+            this.channel = channel;
+            this.file = file;
+        }
+
+        @Override
+        public void run() {
+            try {
+                channel.close();
+            } catch (IOException ioe) {
+                // ignore, try to delete anyway
+            }
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ioe) {
+                // e.g. windows doesn't delete files that are still mapped
+                file.toFile().deleteOnExit();
+            }
+        }
+    }
+
+}
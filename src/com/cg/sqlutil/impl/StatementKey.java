@@ -0,0 +1,126 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.impl;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+// key of the statement cache. The same sql text can be cached as PreparedStatement and as
+// CallableStatement, with different ResultSet type/concurrency/holdability and with or without
+// generated keys (a statement prepared for generated keys returns them on every execution).
+final class StatementKey {
+
+    enum Kind {
+        PREPARED, CALLABLE
+    }
+
+    // holdability 0: the default of the connection
+    static final int DEFAULT_HOLDABILITY = 0;
+
+    private final String sql;
+    private final Kind kind;
+    private final int resultSetType;
+    private final int resultSetConcurrency;
+    private final int resultSetHoldability;
+    // null: no generated keys, empty: Statement.RETURN_GENERATED_KEYS, else the key columns
+    private final String[] keyColumns;
+    private final int hash;
+
+    StatementKey(String sql, Kind kind, int resultSetType, int resultSetConcurrency,
+            int resultSetHoldability) {
+        this(sql, kind, resultSetType, resultSetConcurrency, resultSetHoldability, null);
+    }
+
+    private StatementKey(String sql, Kind kind, int resultSetType, int resultSetConcurrency,
+            int resultSetHoldability, String[] keyColumns) {
+        this.sql = sql;
+        this.kind = kind;
+        this.resultSetType = resultSetType;
+        this.resultSetConcurrency = resultSetConcurrency;
+        this.resultSetHoldability = resultSetHoldability;
+        this.keyColumns = keyColumns;
+        int h = sql.hashCode();
+        h = 31 * h + kind.hashCode();
+        h = 31 * h + resultSetType;
+        h = 31 * h + resultSetConcurrency;
+        h = 31 * h + resultSetHoldability;
+        hash = 31 * h + (keyColumns == null ? -1 : Arrays.hashCode(keyColumns));
+    }
+
+    static StatementKey prepared(String sql) {
+        return new StatementKey(sql, Kind.PREPARED, ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY, DEFAULT_HOLDABILITY);
+    }
+
+    static StatementKey callable(String call) {
+        return new StatementKey(call, Kind.CALLABLE, ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY, DEFAULT_HOLDABILITY);
+    }
+
+    // keyColumns null or empty: Statement.RETURN_GENERATED_KEYS
+    static StatementKey generatedKeys(String sql, String[] keyColumns) {
+        return new StatementKey(sql, Kind.PREPARED, ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY, DEFAULT_HOLDABILITY,
+                keyColumns == null ? new String[0] : keyColumns.clone());
+    }
+
+    String getSQL() {
+        return sql;
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    PreparedStatement prepare(Connection con) throws SQLException {
+        if (kind == Kind.CALLABLE) {
+            CallableStatement cs = resultSetHoldability == DEFAULT_HOLDABILITY
+                    ? con.prepareCall(sql, resultSetType, resultSetConcurrency)
+                    : con.prepareCall(sql, resultSetType, resultSetConcurrency,
+                            resultSetHoldability);
+            return cs;
+        }
+        if (keyColumns != null)
+            return keyColumns.length == 0
+                    ? con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                    : con.prepareStatement(sql, keyColumns);
+        return resultSetHoldability == DEFAULT_HOLDABILITY
+                ? con.prepareStatement(sql, resultSetType, resultSetConcurrency)
+                : con.prepareStatement(sql, resultSetType, resultSetConcurrency,
+                        resultSetHoldability);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof StatementKey))
+            return false;
+        StatementKey k = (StatementKey) o;
+        return hash == k.hash && kind == k.kind && resultSetType == k.resultSetType
+                && resultSetConcurrency == k.resultSetConcurrency
+                && resultSetHoldability == k.resultSetHoldability
+                && Arrays.equals(keyColumns, k.keyColumns) && sql.equals(k.sql);
+    }
+
+    @Override
+    public String toString() {
+        if (keyColumns != null)
+            return kind + "(keys" + Arrays.toString(keyColumns) + "):" + sql;
+        return kind + ":" + sql;
+    }
+
+}
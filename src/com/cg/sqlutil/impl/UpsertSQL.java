@@ -0,0 +1,104 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.impl;
+
+import com.cg.sqlutil.SQLUtilInterface.DBProduct;
+
+// one statement that inserts a row or updates its value columns if the key exists. The binds are
+// the key columns, then the value columns (the order of the row):
+//   PostgreSQL:  insert into t(k,v) values(?,?) on conflict(k) do update set v=excluded.v
+//   MySQL:       insert into t(k,v) values(?,?) on duplicate key update v=values(v)
+//   Oracle:      merge into t d using (select ? k,? v from dual) s on (d.k=s.k)
+//                when matched then update set d.v=s.v
+//                when not matched then insert(k,v) values(s.k,s.v)
+//   SQL Server:  merge into t d using (values(?,?)) s(k,v) on (d.k=s.k) ... ; (the ; is required)
+//   generic:     like SQL Server, without the ; (SQL:2003 merge)
+// Without value columns existing rows are left as they are.
+final class UpsertSQL {
+
+    private UpsertSQL() {
+    }
+
+    static String create(DBProduct dbProduct, String table, String[] keyColumns,
+            String[] valueColumns) {
+        if (keyColumns.length == 0)
+            throw new IllegalArgumentException("upsert needs at least one key column");
+        String[] all = new String[keyColumns.length + valueColumns.length];
+        System.arraycopy(keyColumns, 0, all, 0, keyColumns.length);
+        System.arraycopy(valueColumns, 0, all, keyColumns.length, valueColumns.length);
+        StringBuilder sb = new StringBuilder(128 + all.length * 32);
+        switch (dbProduct) {
+        case POSTGRESQL:
+            insert(sb, table, all);
+            sb.append(" on conflict(").append(String.join(",", keyColumns)).append(')');
+            if (valueColumns.length == 0)
+                sb.append(" do nothing");
+            else {
+                sb.append(" do update set ");
+                for (int i = 0; i < valueColumns.length; i++)
+                    sb.append(i == 0 ? "" : ",").append(valueColumns[i]).append("=excluded.")
+                            .append(valueColumns[i]);
+            }
+            break;
+        case MYSQL:
+            insert(sb, table, all);
+            sb.append(" on duplicate key update ");
+            if (valueColumns.length == 0)
+                // no-op update, "insert ignore" would hide other errors too
+                sb.append(keyColumns[0]).append('=').append(keyColumns[0]);
+            else
+                for (int i = 0; i < valueColumns.length; i++)
+                    sb.append(i == 0 ? "" : ",").append(valueColumns[i]).append("=values(")
+                            .append(valueColumns[i]).append(')');
+            break;
+        case ORACLE:
+            sb.append("merge into ").append(table).append(" d using (select ");
+            for (int i = 0; i < all.length; i++)
+                sb.append(i == 0 ? "? " : ",? ").append(all[i]);
+            sb.append(" from dual) s");
+            merge(sb, keyColumns, valueColumns, all);
+            break;
+        default:
+            sb.append("merge into ").append(table).append(" d using (values(");
+            for (int i = 0; i < all.length; i++)
+                sb.append(i == 0 ? "?" : ",?");
+            sb.append(")) s(").append(String.join(",", all)).append(')');
+            merge(sb, keyColumns, valueColumns, all);
+            if (dbProduct == DBProduct.MSSQLSERVER)
+                sb.append(';');
+        }
+        return sb.toString();
+    }
+
+    private static void insert(StringBuilder sb, String table, String[] all) {
+        sb.append("insert into ").append(table).append('(').append(String.join(",", all))
+                .append(")values(");
+        for (int i = 0; i < all.length; i++)
+            sb.append(i == 0 ? "?" : ",?");
+        sb.append(')');
+    }
+
+    private static void merge(StringBuilder sb, String[] keyColumns, String[] valueColumns,
+            String[] all) {
+        sb.append(" on (");
+        for (int i = 0; i < keyColumns.length; i++)
+            sb.append(i == 0 ? "" : " and ").append("d.").append(keyColumns[i]).append("=s.")
+                    .append(keyColumns[i]);
+        sb.append(')');
+        if (valueColumns.length > 0) {
+            sb.append(" when matched then update set ");
+            for (int i = 0; i < valueColumns.length; i++)
+                sb.append(i == 0 ? "" : ",").append("d.").append(valueColumns[i]).append("=s.")
+                        .append(valueColumns[i]);
+        }
+        sb.append(" when not matched then insert(").append(String.join(",", all))
+                .append(")values(");
+        for (int i = 0; i < all.length; i++)
+            sb.append(i == 0 ? "s." : ",s.").append(all[i]);
+        sb.append(')');
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.test;
+
+import java.sql.SQLException;
+import java.sql.Types;
+
+import com.cg.sqlutil.AsyncBatchWriter;
+import com.cg.sqlutil.AsyncBatchWriter.WhenFull;
+import com.cg.sqlutil.BatchOptions;
+import com.cg.sqlutil.BatchWriter;
+import com.cg.sqlutil.SQLUtilFactory;
+import com.cg.sqlutil.SQLUtilInterface;
+
+/*
+ * How long does the thread that produces rows wait? BatchWriter executes the batches in the
+ * calling thread, AsyncBatchWriter in its own thread. StubJdbc simulates the round trip of a
+ * batch. The slowest add() is the time a request thread would have been blocked.
+ * Arguments: [rows] [batch round trip micros]
+ */
+public class BenchmarkAsyncBatchWriter {
+
+    static final String SQL_INSERT = "insert into telemetry(id,v)values(?,?)";
+    static final int[] BIND_TYPES = { Types.BIGINT, Types.VARCHAR };
+
+    public static void main(String[] args) throws SQLException, InterruptedException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        long roundTripMicros = args.length > 1 ? Long.parseLong(args[1]) : 2000;
+        StubJdbc stub = new StubJdbc();
+        stub.executeLatencyNanos = roundTripMicros * 1000;
+
+        SQLUtilInterface sql = SQLUtilFactory.createSQLUtil(stub.connection());
+        sql.getAudit().enable(false);
+        sql.setStdout(null);
+        sql.enablePreparedStatementCache(true);
+        long maxWait = 0;
+        long t0 = System.nanoTime();
+        try (BatchWriter w = sql.createBatchWriter(SQL_INSERT, BIND_TYPES,
+                BatchOptions.rows(1000))) {
+            for (long i = 0; i < rows; i++) {
+                long t = System.nanoTime();
+                w.add(i, "value " + i);
+                maxWait = Math.max(maxWait, System.nanoTime() - t);
+            }
+        }
+        report("BatchWriter     ", rows, t0, maxWait);
+
+        SQLUtilInterface own = SQLUtilFactory.createSQLUtil(stub.connection());
+        own.getAudit().enable(false);
+        own.setStdout(null);
+        own.enablePreparedStatementCache(true);
+        maxWait = 0;
+        t0 = System.nanoTime();
+        AsyncBatchWriter w = SQLUtilFactory.createAsyncBatchWriter(own, SQL_INSERT, BIND_TYPES,
+                BatchOptions.rows(1000), 100000, WhenFull.BLOCK, null);
+        for (long i = 0; i < rows; i++) {
+            long t = System.nanoTime();
+            w.add(i, "value " + i);
+            maxWait = Math.max(maxWait, System.nanoTime() - t);
+        }
+        long addedNanos = System.nanoTime() - t0;
+        w.close();
+        report("AsyncBatchWriter", rows, t0, maxWait);
+        Test.log("AsyncBatchWriter: all rows added after " + addedNanos / 1000000 + "ms, "
+                + w.getBatchCount() + " batches");
+    }
+
+    private static void report(String name, int rows, long t0, long maxWaitNanos) {
+        Test.log(name + ": " + rows + " rows, " + (System.nanoTime() - t0) / 1000000
+                + "ms until committed, slowest add() " + maxWaitNanos / 1000 + "us");
+    }
+
+}
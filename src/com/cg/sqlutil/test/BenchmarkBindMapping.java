@@ -0,0 +1,111 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.test;
+
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.cg.sqlutil.BindMapping;
+import com.cg.sqlutil.SQLUtilFactory;
+import com.cg.sqlutil.SQLUtilInterface;
+
+/*
+ * Compares executeDMLBatch with List<Object[]> (an array per entity, types checked per value)
+ * and executeMappedBatch with a BindMapping. Runs against StubJdbc, so only the binding is measured.
+ * Arguments: [entities] [rounds]
+ */
+public class BenchmarkBindMapping {
+
+    // records need java 16, the mapping is built by hand
+    public static final class Customer {
+        final long id;
+        final String name;
+        final Double balance;
+        final int rank;
+
+        Customer(long id, String name, Double balance, int rank) {
+            this.id = id;
+            this.name = name;
+            this.balance = balance;
+            this.rank = rank;
+        }
+
+        public long id() {
+            return id;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public Double balance() {
+            return balance;
+        }
+
+        public int rank() {
+            return rank;
+        }
+    }
+
+    static final String SQL_INSERT = "insert into customer(id,name,balance,rank)values(?,?,?,?)";
+    static final int[] BIND_TYPES = { Types.BIGINT, Types.VARCHAR, Types.DOUBLE, Types.INTEGER };
+    static final BindMapping<Customer> MAPPING = BindMapping.<Customer>builder()
+            .setLongValue(Customer::id).setString(Customer::name).setDouble(Customer::balance)
+            .setIntValue(Customer::rank).build();
+
+    public static void main(String[] args) throws SQLException {
+        int entities = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        List<Customer> customers = new ArrayList<>(entities);
+        for (long i = 0; i < entities; i++)
+            customers.add(new Customer(i, "customer " + i, i % 7 == 0 ? null : i * 0.5,
+                    (int) (i % 100)));
+
+        SQLUtilInterface sql = SQLUtilFactory.createSQLUtil(new StubJdbc().connection());
+        sql.getAudit().enable(false);
+        sql.setStdout(null);
+        sql.enablePreparedStatementCache(true);
+
+        // warmup, then measure
+        for (int i = 0; i < rounds; i++) {
+            arrays(sql, customers);
+            mapped(sql, customers);
+        }
+        measure("Object[]   ", sql, customers, true);
+        measure("BindMapping", sql, customers, false);
+    }
+
+    private static int[] arrays(SQLUtilInterface sql, List<Customer> customers)
+            throws SQLException {
+        List<Object[]> values = new ArrayList<>(customers.size());
+        for (Customer c : customers)
+            values.add(new Object[] { c.id(), c.name(), c.balance(), c.rank() });
+        return sql.executeDMLBatch(SQL_INSERT, values, BIND_TYPES);
+    }
+
+    private static int[] mapped(SQLUtilInterface sql, List<Customer> customers)
+            throws SQLException {
+        return sql.executeMappedBatch(SQL_INSERT, customers, MAPPING);
+    }
+
+    private static void measure(String name, SQLUtilInterface sql, List<Customer> customers,
+            boolean arrays) throws SQLException {
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        long bytes0 = mx.getThreadAllocatedBytes(tid);
+        long t0 = System.nanoTime();
+        int[] affected = arrays ? arrays(sql, customers) : mapped(sql, customers);
+        long ms = (System.nanoTime() - t0) / 1000000;
+        long bytes = mx.getThreadAllocatedBytes(tid) - bytes0;
+        Test.log(name + ": " + affected.length + " rows, " + ms + "ms, allocated " + (bytes / 1024)
+                + "kB");
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.test;
+
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.cg.sqlutil.ColumnBatch;
+import com.cg.sqlutil.SQLUtilFactory;
+import com.cg.sqlutil.SQLUtilInterface;
+
+/*
+ * Metric rows (id, ts, value, 1% null values) inserted with executeDMLBatch from a List<Object[]>
+ * (like Test.A3) and from a ColumnBatch of primitive arrays. Shows the heap allocated to build
+ * the input and to bind it, and the rows per second. StubJdbc boxes every bound value itself
+ * (it's a java.lang.reflect.Proxy), that's part of "bind" for both variants, a real driver
+ * allocates less.
+ * Arguments: [rows] [rounds]
+ */
+public class BenchmarkColumnBatch {
+
+    static final String SQL_INSERT = "insert into metric(id,ts,v)values(?,?,?)";
+    static final int[] BIND_TYPES = { Types.BIGINT, Types.BIGINT, Types.DOUBLE };
+
+    public static void main(String[] args) throws SQLException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        long[] ids = new long[rows], ts = new long[rows];
+        double[] v = new double[rows];
+        long[] nulls = ColumnBatch.newNullBitmap(rows);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < rows; i++) {
+            ids[i] = i;
+            ts[i] = now + i;
+            v[i] = i * 0.5;
+            if (i % 100 == 0)
+                ColumnBatch.setNull(nulls, i);
+        }
+
+        StubJdbc stub = new StubJdbc();
+        SQLUtilInterface sql = SQLUtilFactory.createSQLUtil(stub.connection());
+        sql.getAudit().enable(false);
+        sql.setStdout(null);
+        sql.enablePreparedStatementCache(true);
+
+        for (int round = 0; round < rounds; round++) {
+            long a0 = allocated(), t0 = System.nanoTime();
+            List<Object[]> values = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++)
+                values.add(new Object[] { ids[i], ts[i], i % 100 == 0 ? null : v[i] });
+            long a1 = allocated();
+            sql.executeDMLBatch(SQL_INSERT, values, BIND_TYPES);
+            report("List<Object[]>", rows, t0, a0, a1);
+
+            a0 = allocated();
+            t0 = System.nanoTime();
+            ColumnBatch batch = ColumnBatch.builder(rows).addLongs("id", ids).addLongs("ts", ts)
+                    .addDoubles("v", v, nulls).build();
+            a1 = allocated();
+            sql.executeDMLBatch(SQL_INSERT, batch);
+            report("ColumnBatch   ", rows, t0, a0, a1);
+        }
+    }
+
+    private static void report(String name, int rows, long t0, long a0, long a1) {
+        long nanos = System.nanoTime() - t0;
+        long a2 = allocated();
+        Test.log(name + ": " + rows + " rows, " + (long) (rows * 1e9 / nanos) + " rows/s, input "
+                + (a1 - a0) / rows + " bytes/row, bind " + (a2 - a1) / rows + " bytes/row");
+    }
+
+    private static long allocated() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+}
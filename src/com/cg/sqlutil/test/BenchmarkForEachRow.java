@@ -0,0 +1,91 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.test;
+
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.cg.sqlutil.Row;
+import com.cg.sqlutil.SQLUtilFactory;
+import com.cg.sqlutil.SQLUtilInterface;
+
+/*
+ * Compares the heap allocation of getRows and forEachRow while summing up one column.
+ * Arguments: jdbc user password [rows]
+ */
+public class BenchmarkForEachRow {
+
+    static final String SQL_SELECT = "select id, v from sqlutil_bench";
+
+    public static void main(String[] args) throws SQLException {
+        int rows = args.length > 3 ? Integer.parseInt(args[3]) : 200000;
+        SQLUtilInterface sql = null;
+        try {
+            sql = SQLUtilFactory.createSQLUtil(args[0], args[1], args[2]);
+            sql.getAudit().enable(false);
+            sql.setStdout(null);
+            sql.setFetchSize(1000);
+            createData(sql, rows);
+
+            // warmup, then measure
+            for (int i = 0; i < 3; i++) {
+                sumWithGetRows(sql);
+                sumWithForEachRow(sql);
+            }
+            measure("getRows   ", sql, true);
+            measure("forEachRow", sql, false);
+        } finally {
+            if (sql != null) {
+                sql.executeDDLSilent("drop table sqlutil_bench");
+                sql.closeConnection();
+            }
+        }
+    }
+
+    static void createData(SQLUtilInterface sql, int rows) throws SQLException {
+        sql.executeDDLSilent("drop table sqlutil_bench");
+        sql.executeDDL("create table sqlutil_bench(id numeric(18), v varchar(100))");
+        List<Object[]> batchValues = new ArrayList<>(rows);
+        for (long i = 0; i < rows; i++) {
+            Object[] row = { i, "value " + i };
+            batchValues.add(row);
+        }
+        int[] bindTypes = { Types.BIGINT, Types.VARCHAR };
+        sql.executeDMLBatch("insert into sqlutil_bench(id, v) values (?,?)", batchValues,
+                bindTypes);
+        sql.commit();
+    }
+
+    private static long sumWithGetRows(SQLUtilInterface sql) throws SQLException {
+        long sum = 0;
+        for (Row row : sql.getRows(SQL_SELECT))
+            sum += row.getLong(0);
+        return sum;
+    }
+
+    private static long sumWithForEachRow(SQLUtilInterface sql) throws SQLException {
+        long[] sum = { 0 };
+        sql.forEachRow(SQL_SELECT, row -> sum[0] += row.getLongValue(0));
+        return sum[0];
+    }
+
+    private static void measure(String name, SQLUtilInterface sql, boolean getRows)
+            throws SQLException {
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        long bytes0 = mx.getThreadAllocatedBytes(tid);
+        long t0 = System.nanoTime();
+        long sum = getRows ? sumWithGetRows(sql) : sumWithForEachRow(sql);
+        long ms = (System.nanoTime() - t0) / 1000000;
+        long bytes = mx.getThreadAllocatedBytes(tid) - bytes0;
+        Test.log(name + ": sum=" + sum + ", " + ms + "ms, allocated " + (bytes / 1024) + "kB");
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.test;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import com.cg.sqlutil.AuditRecord;
+import com.cg.sqlutil.GroupCommitExecutor;
+import com.cg.sqlutil.SQLUtilFactory;
+import com.cg.sqlutil.SQLUtilInterface;
+
+/*
+ * Many threads, each executes single updates. With autocommit every update is a commit, and
+ * StubJdbc serializes the commits like the flush of one transaction log. GroupCommitExecutor
+ * commits the updates of all threads that arrive within maxDelay together.
+ * Arguments: [threads] [updates per thread] [commit micros] [maxDelay micros]
+ */
+public class BenchmarkGroupCommit {
+
+    static final String SQL_UPDATE = "update account set balance=balance+? where id=?";
+    static final int[] BIND_TYPES = { Types.BIGINT, Types.BIGINT };
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int updates = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        long commitMicros = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+        long maxDelayMicros = args.length > 3 ? Long.parseLong(args[3]) : 500;
+        StubJdbc stub = new StubJdbc();
+        stub.executeLatencyNanos = 100000;
+        stub.commitLatencyNanos = commitMicros * 1000;
+
+        // autocommit, one connection per thread
+        List<SQLUtilInterface> sqls = new ArrayList<>();
+        for (int t = 0; t < threads; t++)
+            sqls.add(create(stub));
+        long t0 = System.nanoTime();
+        run(threads, t -> {
+            for (long i = 0; i < updates; i++)
+                sqls.get(t).executeDML(SQL_UPDATE, new Object[] { i, (long) t }, BIND_TYPES);
+        });
+        report("autocommit  ", threads * updates, t0, stub.commits.get());
+
+        stub.resetCounters();
+        SQLUtilInterface own = create(stub);
+        t0 = System.nanoTime();
+        try (GroupCommitExecutor gc = SQLUtilFactory.createGroupCommitExecutor(own,
+                maxDelayMicros, 1000)) {
+            run(threads, t -> {
+                for (long i = 0; i < updates; i++)
+                    gc.submit(SQL_UPDATE, new Object[] { i, (long) t }, BIND_TYPES).get();
+            });
+            report("group commit", threads * updates, t0, stub.commits.get());
+            Test.log("group commit: " + gc.getTransactionCount() + " transactions, avg latency "
+                    + gc.getAvgLatencyMicros() + "us, max " + gc.getMaxLatencyMicros() + "us");
+        }
+        List<AuditRecord> recs = own.getAudit().getAuditRecords()
+                .get(GroupCommitExecutor.AUDIT_SQL);
+        Test.log("audit: " + recs.size() + " records, first " + recs.get(0));
+    }
+
+    @FunctionalInterface
+    private interface Work {
+        void run(int thread) throws SQLException, InterruptedException, ExecutionException;
+    }
+
+    private static void run(int threads, Work work) throws Exception {
+        List<CompletableFuture<Void>> done = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            int no = t;
+            CompletableFuture<Void> f = new CompletableFuture<>();
+            done.add(f);
+            new Thread(() -> {
+                try {
+                    work.run(no);
+                    f.complete(null);
+                } catch (Exception e) {
+                    f.completeExceptionally(e);
+                }
+            }).start();
+        }
+        for (CompletableFuture<Void> f : done)
+            f.get();
+    }
+
+    private static SQLUtilInterface create(StubJdbc stub) throws SQLException {
+        SQLUtilInterface sql = SQLUtilFactory.createSQLUtil(stub.connection());
+        sql.setStdout(null);
+        sql.enablePreparedStatementCache(true);
+        return sql;
+    }
+
+    private static void report(String name, int statements, long t0, long commits) {
+        long ms = (System.nanoTime() - t0) / 1000000;
+        Test.log(name + ": " + statements + " updates in " + ms + "ms ("
+                + statements * 1000L / Math.max(1, ms) + "/s), " + commits + " commits");
+    }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.test;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.cg.sqlutil.SQLUtilFactory;
+import com.cg.sqlutil.SQLUtilInterface;
+
+/*
+ * executeDMLBatch as plain jdbc batch and as multi-row inserts of different widths. StubJdbc
+ * simulates a driver that sends every statement of a batch on its own: each costs
+ * [statement latency micros].
+ * Arguments: [rows] [statement latency micros]
+ */
+public class BenchmarkMultiRowInsert {
+
+    static final String SQL_INSERT = "insert into sqlutil_addr(cust_id,addr)values(?,?)";
+    static final int[] BIND_TYPES = { Types.INTEGER, Types.VARCHAR };
+
+    public static void main(String[] args) throws SQLException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        long latencyMicros = args.length > 1 ? Long.parseLong(args[1]) : 100;
+        List<Object[]> values = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++)
+            values.add(new Object[] { i, "address of customer " + i });
+
+        StubJdbc stub = new StubJdbc();
+        stub.batchRowLatencyNanos = latencyMicros * 1000;
+        SQLUtilInterface sql = SQLUtilFactory.createSQLUtil(stub.connection());
+        sql.getAudit().enable(false);
+        sql.setStdout(null);
+        sql.enablePreparedStatementCache(true);
+
+        for (int width : new int[] { 0, 8, 64, 512 }) {
+            sql.setMultiRowInsert(width);
+            sql.executeDMLBatch(SQL_INSERT, values.subList(0, Math.min(rows, 1000)), BIND_TYPES);
+            stub.resetCounters();
+            long t0 = System.nanoTime();
+            sql.executeDMLBatch(SQL_INSERT, values, BIND_TYPES);
+            long ms = (System.nanoTime() - t0) / 1000000;
+            Test.log((width < 2 ? "jdbc batch     " : "multi-row " + String.format("%4d", width))
+                    + ": " + rows + " rows, " + stub.batchRows.get() + " statements, " + ms
+                    + "ms");
+        }
+    }
+
+}
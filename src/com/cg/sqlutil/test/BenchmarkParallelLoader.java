@@ -0,0 +1,92 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.test;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import com.cg.sqlutil.BatchOptions;
+import com.cg.sqlutil.ParallelLoader;
+import com.cg.sqlutil.SQLUtilFactory;
+import com.cg.sqlutil.SQLUtilInterface;
+
+/*
+ * The customer inserts of Test.A3, loaded by ParallelLoader over 1..16 connections. StubJdbc
+ * simulates the server: every batch costs [batch round trip micros] plus [row micros] per row,
+ * connections don't compete for anything. So this shows the overhead and the upper bound of the
+ * scaling, a real database will scale less (locks, log writes, cpu).
+ * At the end a source that fails after half of the rows: no partition may commit.
+ * Arguments: [rows] [batch round trip micros] [row micros]
+ */
+public class BenchmarkParallelLoader {
+
+    static final int[] BIND_TYPES = { Types.INTEGER, Types.DATE, Types.VARCHAR };
+
+    public static void main(String[] args) throws SQLException, InterruptedException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        long roundTripMicros = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        long rowMicros = args.length > 2 ? Long.parseLong(args[2]) : 5;
+        List<Object[]> values = new ArrayList<>(rows);
+        java.sql.Date d = new java.sql.Date(System.currentTimeMillis());
+        for (int i = 0; i < rows; i++)
+            values.add(new Object[] { i, d, "email_" + i + "@domain_" + (i % 1000) + ".com" });
+
+        StubJdbc stub = new StubJdbc();
+        stub.executeLatencyNanos = roundTripMicros * 1000;
+        stub.batchRowLatencyNanos = rowMicros * 1000;
+        long ms1 = 0;
+        // the first run warms up
+        for (int connections : new int[] { 1, 1, 2, 4, 8, 16 }) {
+            ParallelLoader.Result r = loader(stub, connections).load(values);
+            r.throwIfFailed();
+            if (connections == 1)
+                ms1 = Math.max(1, r.getElapsedMs());
+            Test.log(String.format("%2d", connections) + " connections: " + r.getLoadedRows()
+                    + " rows, " + r.getElapsedMs() + "ms, speedup "
+                    + String.format("%.1f", (double) ms1 / Math.max(1, r.getElapsedMs())));
+        }
+
+        stub.resetCounters();
+        Iterator<Object[]> it = values.iterator();
+        Iterator<Object[]> failing = new Iterator<Object[]>() {
+            int n;
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Object[] next() {
+                if (++n > rows / 2)
+                    throw new IllegalStateException("source failed at row " + n);
+                return it.next();
+            }
+        };
+        try {
+            loader(stub, 4).load(failing);
+            Test.test(false, "parallel loader, failing source must throw");
+        } catch (IllegalStateException expected) {
+            Test.test(stub.commits.get() == 0, "parallel loader, failing source must not commit");
+            Test.log("failing source: " + expected.getMessage() + ", "
+                    + stub.batchRows.get() + " rows executed and rolled back");
+        }
+    }
+
+    private static ParallelLoader loader(StubJdbc stub, int connections) {
+        return new ParallelLoader(connections, () -> {
+            SQLUtilInterface sql = SQLUtilFactory.createSQLUtil(stub.connection());
+            sql.getAudit().enable(false);
+            sql.setStdout(null);
+            sql.enablePreparedStatementCache(true);
+            return sql;
+        }, Test.SQL_CUST_INS, BIND_TYPES).partitionByHash(0).options(BatchOptions.rows(1000));
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.test;
+
+import java.sql.SQLException;
+
+import com.cg.sqlutil.Row;
+import com.cg.sqlutil.RowBlock;
+import com.cg.sqlutil.SQLUtilFactory;
+import com.cg.sqlutil.SQLUtilInterface;
+
+/*
+ * Compares the retained heap of a result kept in memory as Row[] (getRows) and as RowBlock.
+ * Uses the same table as BenchmarkForEachRow.
+ * Arguments: jdbc user password [rows]
+ */
+public class BenchmarkRowBlock {
+
+    public static void main(String[] args) throws SQLException {
+        int rows = args.length > 3 ? Integer.parseInt(args[3]) : 1000000;
+        SQLUtilInterface sql = null;
+        try {
+            sql = SQLUtilFactory.createSQLUtil(args[0], args[1], args[2]);
+            sql.getAudit().enable(false);
+            sql.setStdout(null);
+            sql.setFetchSize(1000);
+            BenchmarkForEachRow.createData(sql, rows);
+
+            long heap0 = usedHeap();
+            Row[] rowArray = sql.getRows(BenchmarkForEachRow.SQL_SELECT);
+            long heapRows = usedHeap() - heap0;
+            Test.log("getRows    : " + rowArray.length + " rows, retained " + (heapRows / 1024) + "kB");
+            rowArray = null;
+
+            heap0 = usedHeap();
+            RowBlock block = sql.getRowBlock(BenchmarkForEachRow.SQL_SELECT);
+            long heapBlock = usedHeap() - heap0;
+            Test.log("getRowBlock: " + block.size() + " rows, retained " + (heapBlock / 1024)
+                    + "kB (values " + (block.getByteSize() / 1024) + "kB)");
+        } finally {
+            if (sql != null) {
+                sql.executeDDLSilent("drop table sqlutil_bench");
+                sql.closeConnection();
+            }
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+}
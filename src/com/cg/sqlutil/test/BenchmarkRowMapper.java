@@ -0,0 +1,107 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.test;
+
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.cg.sqlutil.Row;
+import com.cg.sqlutil.SQLUtilFactory;
+import com.cg.sqlutil.SQLUtilInterface;
+
+/*
+ * Compares copying Rows into beans by hand with getRows(Class, ...). Runs against StubJdbc,
+ * so only the mapping is measured, not the database.
+ * Arguments: [rows] [rounds]
+ */
+public class BenchmarkRowMapper {
+
+    // a bean, records need java 16
+    public static final class Customer {
+        private long id;
+        private String name;
+        private Double balance;
+        private int rank;
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public void setBalance(Double balance) {
+            this.balance = balance;
+        }
+
+        public void setRank(int rank) {
+            this.rank = rank;
+        }
+    }
+
+    static final String SQL_SELECT = "select id, name, balance, rank from customer";
+
+    public static void main(String[] args) throws SQLException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        StubJdbc stub = new StubJdbc();
+        stub.labels = new String[] { "ID", "NAME", "BALANCE", "RANK" };
+        stub.types = new int[] { Types.BIGINT, Types.VARCHAR, Types.DOUBLE, Types.INTEGER };
+        for (long i = 0; i < rows; i++)
+            stub.rows.add(new Object[] { i, "customer " + i, i % 7 == 0 ? null : i * 0.5,
+                    (int) (i % 100) });
+
+        SQLUtilInterface sql = SQLUtilFactory.createSQLUtil(stub.connection());
+        sql.getAudit().enable(false);
+        sql.setStdout(null);
+        sql.enablePreparedStatementCache(true);
+
+        // warmup, then measure
+        for (int i = 0; i < rounds; i++) {
+            byHand(sql);
+            mapped(sql);
+        }
+        measure("Row copy", sql, true);
+        measure("mapper  ", sql, false);
+    }
+
+    private static List<Customer> byHand(SQLUtilInterface sql) throws SQLException {
+        Row[] rows = sql.getRows(SQL_SELECT);
+        List<Customer> list = new ArrayList<>(rows.length);
+        for (Row row : rows) {
+            Customer c = new Customer();
+            c.setId(row.getLong("ID"));
+            c.setName(row.getString("NAME"));
+            c.setBalance(row.getDouble("BALANCE"));
+            c.setRank(row.getInt("RANK"));
+            list.add(c);
+        }
+        return list;
+    }
+
+    private static List<Customer> mapped(SQLUtilInterface sql) throws SQLException {
+        return sql.getRows(Customer.class, SQL_SELECT);
+    }
+
+    private static void measure(String name, SQLUtilInterface sql, boolean byHand)
+            throws SQLException {
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        long bytes0 = mx.getThreadAllocatedBytes(tid);
+        long t0 = System.nanoTime();
+        List<Customer> list = byHand ? byHand(sql) : mapped(sql);
+        long ms = (System.nanoTime() - t0) / 1000000;
+        long bytes = mx.getThreadAllocatedBytes(tid) - bytes0;
+        Test.log(name + ": " + list.size() + " beans, " + ms + "ms, allocated " + (bytes / 1024)
+                + "kB");
+    }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.test;
+
+import java.sql.SQLException;
+import java.sql.Types;
+
+import com.cg.sqlutil.SQLUtilFactory;
+import com.cg.sqlutil.SQLUtilInterface;
+
+/*
+ * Compares the statement cache on and off for the usual mix of key lookups, getRows, dml and
+ * stored procedure calls. Runs against StubJdbc (reports itself as PostgreSQL) with a latency per
+ * prepare, so no database is needed. Every prepare is a cache miss.
+ * Arguments: [iterations] [prepareLatencyMicros] [executeLatencyMicros]
+ */
+public class BenchmarkStatementCache {
+
+    public static void main(String[] args) throws SQLException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        StubJdbc stub = new StubJdbc();
+        stub.prepareLatencyNanos = (args.length > 1 ? Long.parseLong(args[1]) : 100) * 1000;
+        stub.executeLatencyNanos = (args.length > 2 ? Long.parseLong(args[2]) : 50) * 1000;
+        // one column, getLong checks the column count
+        stub.labels = new String[] { "ID" };
+        stub.types = new int[] { Types.BIGINT };
+        stub.rows.add(new Object[] { 1L });
+
+        for (boolean cached : new boolean[] { false, true, false, true }) {
+            SQLUtilInterface sql = SQLUtilFactory.createSQLUtil(stub.connection());
+            sql.getAudit().enable(false);
+            sql.setStdout(null);
+            sql.enablePreparedStatementCache(cached);
+            stub.resetCounters();
+            long t0 = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sql.getLongVarArgs("select id from sqlutil_bench where id=?", i);
+                sql.getRows("select id from sqlutil_bench where id=?", new Object[] { i });
+                sql.executeDMLVarArgs("update sqlutil_bench set v=? where id=?", "x", i);
+                sql.executeSPVarArgs("call sqlutil_proc(?)", i);
+            }
+            long ms = (System.nanoTime() - t0) / 1000000;
+            long calls = 4L * iterations;
+            Test.log("cache " + (cached ? "on " : "off") + ": " + calls + " calls, " + ms + "ms, "
+                    + "misses(prepares)=" + stub.prepares.get() + ", hits="
+                    + (calls - stub.prepares.get()));
+            sql.closeConnection();
+        }
+    }
+
+}
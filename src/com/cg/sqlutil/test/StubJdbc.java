@@ -0,0 +1,238 @@
+/*
+ * Author Christian Gausepohl
+ * License: CC0 (no copyright if possible, otherwise fallback to public domain)
+ * https://github.com/cgausepohl/SQLUtil
+ */
+package com.cg.sqlutil.test;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * A JDBC stand-in for benchmarks without a database server. It reports itself as PostgreSQL,
+ * every prepare, execute and batch row costs a configurable latency (like a round trip), queries
+ * return the same rows. Only the methods SQLUtil uses are implemented, all others return
+ * null/0/false. Counters are thread safe, one StubJdbc can serve many connections.
+ * A commit (explicit, or each execute with autocommit on) costs commitLatencyNanos more, the
+ * commits of all connections are serialized like the flush of one transaction log.
+ */
+public class StubJdbc {
+
+    public String productName = "PostgreSQL";
+    public long prepareLatencyNanos = 0;
+    public long executeLatencyNanos = 0;
+    public long batchRowLatencyNanos = 0;
+    public long commitLatencyNanos = 0;
+    public String[] labels = { "ID", "V" };
+    public int[] types = { Types.BIGINT, Types.VARCHAR };
+    public List<Object[]> rows = new ArrayList<>();
+
+    public final AtomicLong prepares = new AtomicLong();
+    public final AtomicLong executes = new AtomicLong();
+    public final AtomicLong batchRows = new AtomicLong();
+    public final AtomicLong commits = new AtomicLong();
+    private final Object log = new Object();
+
+    public void resetCounters() {
+        prepares.set(0);
+        executes.set(0);
+        batchRows.set(0);
+        commits.set(0);
+    }
+
+    public Connection connection() {
+        boolean[] autoCommit = { true };
+        return proxy(Connection.class, (m, a) -> {
+            switch (m.getName()) {
+            case "getMetaData":
+                return proxy(DatabaseMetaData.class, (m2, a2) -> {
+                    if (m2.getName().equals("getDatabaseProductName"))
+                        return productName;
+                    if (m2.getName().equals("supportsSavepoints"))
+                        return true;
+                    return null;
+                });
+            case "prepareStatement":
+            case "prepareCall":
+                prepares.incrementAndGet();
+                sleep(prepareLatencyNanos);
+                return statement(autoCommit);
+            case "getAutoCommit":
+                return autoCommit[0];
+            case "setAutoCommit":
+                autoCommit[0] = (Boolean) a[0];
+                return null;
+            case "commit":
+                sleep(executeLatencyNanos);
+                commit();
+                return null;
+            }
+            return null;
+        });
+    }
+
+    private void commit() {
+        commits.incrementAndGet();
+        if (commitLatencyNanos > 0)
+            synchronized (log) {
+                sleep(commitLatencyNanos);
+            }
+    }
+
+    private PreparedStatement statement(boolean[] autoCommit) {
+        int[] batchSize = { 0 };
+        boolean[] closed = { false };
+        return proxy(CallableStatement.class, (m, a) -> {
+            switch (m.getName()) {
+            case "addBatch":
+                batchSize[0]++;
+                return null;
+            case "clearBatch":
+                batchSize[0] = 0;
+                return null;
+            case "executeBatch":
+                executes.incrementAndGet();
+                batchRows.addAndGet(batchSize[0]);
+                sleep(executeLatencyNanos + batchSize[0] * batchRowLatencyNanos);
+                int[] result = new int[batchSize[0]];
+                Arrays.fill(result, 1);
+                batchSize[0] = 0;
+                if (autoCommit[0])
+                    commit();
+                return result;
+            case "executeUpdate":
+                executes.incrementAndGet();
+                sleep(executeLatencyNanos);
+                if (autoCommit[0])
+                    commit();
+                return 1;
+            case "execute":
+                executes.incrementAndGet();
+                sleep(executeLatencyNanos);
+                if (autoCommit[0])
+                    commit();
+                return false;
+            case "executeQuery":
+                executes.incrementAndGet();
+                sleep(executeLatencyNanos);
+                return resultSet();
+            case "getUpdateCount":
+                return -1;
+            case "close":
+                closed[0] = true;
+                return null;
+            case "isClosed":
+                return closed[0];
+            }
+            return null;
+        });
+    }
+
+    private ResultSet resultSet() {
+        int[] cur = { -1 };
+        boolean[] wasNull = { false };
+        String[] l = labels;
+        int[] t = types;
+        List<Object[]> data = rows;
+        ResultSetMetaData md = proxy(ResultSetMetaData.class, (m, a) -> {
+            switch (m.getName()) {
+            case "getColumnCount":
+                return l.length;
+            case "getColumnType":
+                return t[(Integer) a[0] - 1];
+            case "getColumnLabel":
+            case "getColumnName":
+                return l[(Integer) a[0] - 1];
+            }
+            return null;
+        });
+        return proxy(ResultSet.class, (m, a) -> {
+            String name = m.getName();
+            switch (name) {
+            case "next":
+                return ++cur[0] < data.size();
+            case "getMetaData":
+                return md;
+            case "wasNull":
+                return wasNull[0];
+            }
+            if (name.startsWith("get") && a != null && a.length == 1 && a[0] instanceof Integer) {
+                Object v = data.get(cur[0])[(Integer) a[0] - 1];
+                wasNull[0] = v == null;
+                return convert(v, m.getReturnType());
+            }
+            return null;
+        });
+    }
+
+    private static Object convert(Object v, Class<?> type) {
+        if (v == null)
+            return null;
+        if (type == long.class)
+            return ((Number) v).longValue();
+        if (type == int.class)
+            return ((Number) v).intValue();
+        if (type == double.class)
+            return ((Number) v).doubleValue();
+        if (type == float.class)
+            return ((Number) v).floatValue();
+        if (type == boolean.class)
+            return v;
+        if (type == String.class)
+            return v.toString();
+        if (type == BigDecimal.class)
+            return v instanceof BigDecimal ? v : new BigDecimal(v.toString());
+        return v;
+    }
+
+    private static void sleep(long nanos) {
+        if (nanos > 0)
+            LockSupport.parkNanos(nanos);
+    }
+
+    private interface Handler {
+        Object invoke(Method m, Object[] args) throws Throwable;
+    }
+
+    // unimplemented methods with primitive results return 0/false
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler h) {
+        return (T) Proxy.newProxyInstance(StubJdbc.class.getClassLoader(), new Class<?>[] { type },
+                (p, m, a) -> {
+                    switch (m.getName()) {
+                    case "hashCode":
+                        return System.identityHashCode(p);
+                    case "equals":
+                        return p == a[0];
+                    case "toString":
+                        return "Stub" + type.getSimpleName();
+                    }
+                    Object r = h.invoke(m, a);
+                    if (r == null && m.getReturnType().isPrimitive()) {
+                        Class<?> rt = m.getReturnType();
+                        if (rt == boolean.class)
+                            return false;
+                        if (rt == long.class)
+                            return 0L;
+                        if (rt == void.class)
+                            return null;
+                        return rt == double.class ? 0d : rt == float.class ? 0f : (Object) 0;
+                    }
+                    return r;
+                });
+    }
+
+}
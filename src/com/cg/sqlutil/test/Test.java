@@ -14,11 +14,26 @@ import java.text.DateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
-
+import java.util.stream.Stream;
+
+import com.cg.sqlutil.BatchOptions;
+import com.cg.sqlutil.BatchOptions.ErrorPolicy;
+import com.cg.sqlutil.BatchResult;
+import com.cg.sqlutil.BatchWriter;
+import com.cg.sqlutil.BindMapping;
+import com.cg.sqlutil.ColumnBatch;
+import com.cg.sqlutil.ColumnRef;
 import com.cg.sqlutil.Row;
+import com.cg.sqlutil.RowBlock;
+import com.cg.sqlutil.RowIterator;
+import com.cg.sqlutil.RowList;
 import com.cg.sqlutil.SQLUtilFactory;
 import com.cg.sqlutil.SQLUtilInterface;
+import com.cg.sqlutil.SQLUtilInterface.DBProduct;
+import com.cg.sqlutil.UnitOfWork;
+import com.cg.sqlutil.UnitOfWork.Ordering;
 import com.cg.sqlutil.AuditInterface.StoreBindVariables;
 import com.cg.sqlutil.AuditInterface.UseBatchInserts;
 import com.cg.sqlutil.AuditInterface.UseCurrentThread;
@@ -105,6 +120,11 @@ public class Test {
             testStream(sql);
             Test.log("done");
 
+            // test: columns
+            Test.log("test getColumns methods");
+            testColumns(sql);
+            Test.log("done");
+
             // test: jdbc/batched dml/performance test
             Test.log("test jdbc/batched dml/performance");
             /* Program to compare different implementations for different kind of database tasks.
@@ -149,6 +169,102 @@ public class Test {
         long cntAll = sql.getLong("select sum(v_integer) from sqlutil_data");
         test((cntAll - sum) == 0, "batch mode, getting sum(v_integer)");
         test((rowcount - ROWSCREATE) == 0, "batch mode, reading rows");
+        sql.getChunksClose();
+
+        System.out.println("test stream/iterate methods");
+        try (Stream<Row> stream = sql.stream("select v_integer from sqlutil_data")) {
+            long streamSum = stream.map(row -> row.getLong(0)).filter(v -> v != null)
+                    .mapToLong(Long::longValue).sum();
+            test(cntAll == streamSum, "stream, getting sum(v_integer)");
+        }
+        // two open cursors at the same time
+        long pairs = 0;
+        try (RowIterator outer = sql.iterate("select v_integer from sqlutil_data");
+                RowIterator inner = sql.iterate("select v_integer from sqlutil_data")) {
+            while (outer.hasNext() && inner.hasNext()) {
+                outer.next();
+                inner.next();
+                pairs++;
+            }
+        }
+        test(pairs == ROWSCREATE, "iterate, two open cursors");
+
+        // column names are case insensitive, a ColumnRef is resolved once per result
+        ColumnRef ref = ColumnRef.of("V_Integer");
+        long refSum = 0;
+        for (Row row : sql.getRows("select v_integer from sqlutil_data"))
+            if (row.getLong(ref) != null)
+                refSum += row.getLong(ref);
+        test(cntAll == refSum, "ColumnRef, getting sum(v_integer)");
+    }
+
+    // columns v_integer, v_varchar100 (a bean, records need java 16)
+    public static final class DataRow {
+        private Long vInteger;
+        private String vVarchar100;
+
+        public Long getVInteger() {
+            return vInteger;
+        }
+
+        public void setVInteger(Long vInteger) {
+            this.vInteger = vInteger;
+        }
+
+        public String getVVarchar100() {
+            return vVarchar100;
+        }
+
+        public void setVVarchar100(String vVarchar100) {
+            this.vVarchar100 = vVarchar100;
+        }
+    }
+
+    private static void testColumns(SQLUtilInterface sql) throws SQLException {
+        ColumnBatch batch = sql.getColumns("select v_integer, v_varchar100 from sqlutil_data");
+        test(batch.getRowCount() == ROWSCREATE, "columns, reading rows");
+        long[] values = batch.getLongs(0);
+        long sum = 0, nulls = 0;
+        for (int i = 0; i < batch.getRowCount(); i++) {
+            if (batch.isNull(0, i))
+                nulls++;
+            else
+                sum += values[i];
+        }
+        long cntAll = sql.getLong("select sum(v_integer) from sqlutil_data");
+        test(cntAll == sum, "columns, getting sum(v_integer)");
+        long nullsAll = sql.getLong("select count(*) from sqlutil_data where v_integer is null");
+        test(nullsAll == nulls, "columns, null bitmap of v_integer");
+        test(batch.getStrings(1).length >= batch.getRowCount(), "columns, v_varchar100 as String[]");
+
+        RowBlock block = sql.getRowBlock("select v_integer, v_varchar100 from sqlutil_data");
+        test(block.size() == ROWSCREATE, "rowblock, reading rows");
+        long blockSum = 0;
+        for (Row row : block)
+            if (row.getLong(0) != null)
+                blockSum += row.getLong(0);
+        test(cntAll == blockSum, "rowblock, getting sum(v_integer)");
+
+        List<DataRow> beans = sql.getRows(DataRow.class,
+                "select v_integer, v_varchar100 from sqlutil_data");
+        long beanSum = 0;
+        for (DataRow r : beans)
+            if (r.getVInteger() != null)
+                beanSum += r.getVInteger();
+        test(beans.size() == ROWSCREATE && cntAll == beanSum, "beans, getting sum(v_integer)");
+
+        // tiny budget, most rows are spilled to disk
+        sql.setSpillHeapBudget(16 * 1024);
+        try (RowList list = sql.getRowList("select v_integer, v_varchar100 from sqlutil_data")) {
+            test(list.size() == ROWSCREATE && list.isSpilled(), "rowlist, reading rows");
+            long listSum = 0;
+            for (int i = list.size() - 1; i >= 0; i--)
+                if (list.get(i).getLong(0) != null)
+                    listSum += list.get(i).getLong(0);
+            test(cntAll == listSum, "rowlist, getting sum(v_integer)");
+        } finally {
+            sql.setSpillHeapBudget(64L * 1024 * 1024);
+        }
     }
 
     /*
@@ -384,6 +500,247 @@ public class Test {
         Test.log("BATCH inserted customers=" + custCounter + ", addresses=" + addrCounter);
     }
 
+    // like A3, but the entities are bound directly, without an Object[] per row
+    static void A4(SQLUtilInterface sql, List<RandomCustomer> customers, TestDB tstDB)
+            throws SQLException, InterruptedException {
+        Test.log("table init");
+        tstDB.initSchema(sql, 'P');
+        sql.getConnection().setAutoCommit(false);
+        int custCounter = 0, addrCounter = 0;
+        Test.log("MAPPED BATCH inserting rows...");
+        BindMapping<RandomCustomer> custMapping = BindMapping.<RandomCustomer>builder()
+                .setIntValue(c -> c.id).setDate(c -> new java.sql.Date(c.d.getTime()))
+                .setString(c -> c.email).build();
+        BindMapping<RandomAddress> addrMapping = BindMapping.<RandomAddress>builder()
+                .setIntValue(a -> a.custId).setString(a -> a.addr).build();
+        List<RandomAddress> addresses = new ArrayList<>();
+        for (RandomCustomer cust : customers)
+            addresses.addAll(cust.addresses);
+
+        for (int ar : sql.executeMappedBatch(Test.SQL_CUST_INS, customers, custMapping))
+            custCounter += ar;
+        for (int ar : sql.executeMappedBatch(Test.SQL_ADDR_INS, addresses, addrMapping))
+            addrCounter += ar;
+
+        sql.commit();
+        Test.log("MAPPED BATCH inserted customers=" + custCounter + ", addresses=" + addrCounter);
+    }
+
+    // like A3, in sub-batches of 500 rows, committed every second sub-batch
+    static void A5(SQLUtilInterface sql, List<RandomCustomer> customers, TestDB tstDB)
+            throws SQLException, InterruptedException {
+        Test.log("table init");
+        tstDB.initSchema(sql, 'P');
+        sql.getConnection().setAutoCommit(false);
+        Test.log("CHUNKED BATCH inserting rows...");
+        int[] bindTypesCust = { Types.INTEGER, Types.DATE, Types.VARCHAR };
+        int[] bindTypesAddr = { Types.INTEGER, Types.VARCHAR };
+        List<Object[]> batchValuesCust = new ArrayList<>();
+        List<Object[]> batchValuesAddr = new ArrayList<>();
+        for (RandomCustomer cust : customers) {
+            batchValuesCust.add(
+                    new Object[] { cust.id, new java.sql.Date(cust.d.getTime()), cust.email });
+            for (RandomAddress addr : cust.addresses)
+                batchValuesAddr.add(new Object[] { addr.custId, addr.addr });
+        }
+        BatchOptions options = BatchOptions.rows(500).commitEvery(2);
+        BatchResult cust = sql.executeDMLBatch(Test.SQL_CUST_INS, batchValuesCust, bindTypesCust,
+                options);
+        BatchResult addr = sql.executeDMLBatch(Test.SQL_ADDR_INS, batchValuesAddr, bindTypesAddr,
+                options);
+        test(cust.getRowCount() == customers.size() && cust.getCommitCount() > 0,
+                "chunked batch, " + cust);
+        Test.log("CHUNKED BATCH inserted customers=" + cust.getAffectedRows() + ", addresses="
+                + addr.getAffectedRows());
+    }
+
+    // like A1 (row by row), but executed as batches by BatchWriters
+    static void A6(SQLUtilInterface sql, List<RandomCustomer> customers, TestDB tstDB)
+            throws SQLException, InterruptedException {
+        Test.log("table init");
+        tstDB.initSchema(sql, 'P');
+        sql.getConnection().setAutoCommit(false);
+        Test.log("BATCHWRITER inserting rows...");
+        int[] bindTypesCust = { Types.INTEGER, Types.DATE, Types.VARCHAR };
+        int[] bindTypesAddr = { Types.INTEGER, Types.VARCHAR };
+        BatchWriter custWriter = sql.createBatchWriter(Test.SQL_CUST_INS, bindTypesCust,
+                BatchOptions.rows(500));
+        BatchWriter addrWriter = sql.createBatchWriter(Test.SQL_ADDR_INS, bindTypesAddr,
+                BatchOptions.rows(500));
+        try (BatchWriter cw = custWriter; BatchWriter aw = addrWriter) {
+            for (RandomCustomer cust : customers) {
+                cw.add(cust.id, new java.sql.Date(cust.d.getTime()), cust.email);
+                for (RandomAddress addr : cust.addresses)
+                    aw.add(addr.custId, addr.addr);
+            }
+        }
+        sql.commit();
+        test(custWriter.getStats().getRowCount() == customers.size(), "batchwriter, rows");
+        Test.log("BATCHWRITER inserted customers=" + custWriter.getStats().getAffectedRows()
+                + ", addresses=" + addrWriter.getStats().getAffectedRows() + ", "
+                + (long) addrWriter.getStats().getRowsPerSecond() + " addresses/s");
+    }
+
+    // like A3, with COPY on PostgreSQL
+    static void A7(SQLUtilInterface sql, List<RandomCustomer> customers, TestDB tstDB)
+            throws SQLException, InterruptedException {
+        Test.log("table init");
+        tstDB.initSchema(sql, 'P');
+        sql.getConnection().setAutoCommit(false);
+        Test.log("BULK inserting rows...");
+        int[] bindTypesCust = { Types.INTEGER, Types.DATE, Types.VARCHAR };
+        int[] bindTypesAddr = { Types.INTEGER, Types.VARCHAR };
+        long custCounter = sql.bulkInsert("sqlutil_cust", new String[] { "cust_id", "d", "email" },
+                bindTypesCust, customers.stream()
+                        .map(c -> new Object[] { c.id, new java.sql.Date(c.d.getTime()), c.email })
+                        .iterator());
+        long addrCounter = sql.bulkInsert("sqlutil_addr", new String[] { "cust_id", "addr" },
+                bindTypesAddr, customers.stream().flatMap(c -> c.addresses.stream())
+                        .map(a -> new Object[] { a.custId, a.addr }).iterator());
+        sql.commit();
+        test(custCounter == customers.size(), "bulk insert, rows");
+        Test.log("BULK inserted customers=" + custCounter + ", addresses=" + addrCounter);
+    }
+
+    // like A5, every 100th customer is inserted twice: the duplicates fail and are isolated,
+    // all other rows are inserted
+    static void A8(SQLUtilInterface sql, List<RandomCustomer> customers, TestDB tstDB)
+            throws SQLException, InterruptedException {
+        Test.log("table init");
+        tstDB.initSchema(sql, 'P');
+        sql.getConnection().setAutoCommit(false);
+        Test.log("ISOLATING BATCH inserting rows...");
+        int[] bindTypesCust = { Types.INTEGER, Types.DATE, Types.VARCHAR };
+        List<Object[]> batchValuesCust = new ArrayList<>();
+        int duplicates = 0;
+        for (RandomCustomer cust : customers) {
+            Object[] c = { cust.id, new java.sql.Date(cust.d.getTime()), cust.email };
+            batchValuesCust.add(c);
+            if (cust.id % 100 == 0) {
+                batchValuesCust.add(c);
+                duplicates++;
+            }
+        }
+        BatchResult cust = sql.executeDMLBatch(Test.SQL_CUST_INS, batchValuesCust, bindTypesCust,
+                BatchOptions.rows(500).onError(ErrorPolicy.ISOLATE));
+        sql.commit();
+        test(cust.getFailures().size() == duplicates
+                && cust.getAffectedRows() == customers.size(), "isolating batch, " + cust);
+        Test.log("ISOLATING BATCH inserted customers=" + cust.getAffectedRows() + ", failed="
+                + cust.getFailures().size());
+    }
+
+    // the first half of the customers is inserted, then all are upserted with a new email: the
+    // first half is updated, the second half inserted
+    static void A9(SQLUtilInterface sql, List<RandomCustomer> customers, TestDB tstDB)
+            throws SQLException, InterruptedException {
+        Test.log("table init");
+        tstDB.initSchema(sql, 'P');
+        sql.getConnection().setAutoCommit(false);
+        Test.log("UPSERT BATCH rows...");
+        int[] bindTypesCust = { Types.INTEGER, Types.DATE, Types.VARCHAR };
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> upserts = new ArrayList<>();
+        for (RandomCustomer cust : customers) {
+            java.sql.Date d = new java.sql.Date(cust.d.getTime());
+            if (inserts.size() < customers.size() / 2)
+                inserts.add(new Object[] { cust.id, d, cust.email });
+            upserts.add(new Object[] { cust.id, d, "new_" + cust.email });
+        }
+        sql.executeDMLBatch(Test.SQL_CUST_INS, inserts, bindTypesCust);
+        BatchResult cust = sql.upsertBatch("sqlutil_cust", new String[] { "cust_id" },
+                new String[] { "d", "email" }, upserts, bindTypesCust,
+                BatchOptions.rows(500));
+        sql.commit();
+        long count = sql.getLong("select count(*) from sqlutil_cust");
+        long updated = sql.getLong("select count(*) from sqlutil_cust where email like 'new%'");
+        test(count == customers.size() && updated == customers.size(), "upsert batch, " + cust);
+        Test.log("UPSERT BATCH customers=" + count + ", " + cust);
+    }
+
+    // like A3, the addresses return their generated addr_id. Oracle's sqlutil_addr has no
+    // identity column, SQL Server returns generated keys for single executions only.
+    static void A10(SQLUtilInterface sql, List<RandomCustomer> customers, TestDB tstDB)
+            throws SQLException, InterruptedException {
+        if (sql.getDBProduct() == DBProduct.ORACLE)
+            return;
+        Test.log("table init");
+        tstDB.initSchema(sql, 'P');
+        sql.getConnection().setAutoCommit(false);
+        Test.log("BATCH inserting rows, returning keys...");
+        int[] bindTypesCust = { Types.INTEGER, Types.DATE, Types.VARCHAR };
+        int[] bindTypesAddr = { Types.INTEGER, Types.VARCHAR };
+        List<Object[]> batchValuesCust = new ArrayList<>();
+        List<Object[]> batchValuesAddr = new ArrayList<>();
+        for (RandomCustomer cust : customers) {
+            batchValuesCust.add(
+                    new Object[] { cust.id, new java.sql.Date(cust.d.getTime()), cust.email });
+            for (RandomAddress addr : cust.addresses)
+                batchValuesAddr.add(new Object[] { addr.custId, addr.addr });
+        }
+        sql.executeDMLBatch(Test.SQL_CUST_INS, batchValuesCust, bindTypesCust);
+        long[] keys;
+        if (sql.getDBProduct() == DBProduct.MSSQLSERVER) {
+            keys = new long[batchValuesAddr.size()];
+            for (int i = 0; i < keys.length; i++)
+                keys[i] = sql.executeDMLReturningKeys(Test.SQL_ADDR_INS, batchValuesAddr.get(i),
+                        bindTypesAddr)[0];
+        } else
+            keys = sql.executeDMLBatchReturningKeys(Test.SQL_ADDR_INS, batchValuesAddr,
+                    bindTypesAddr, "addr_id");
+        sql.commit();
+        test(keys.length == batchValuesAddr.size(), "generated keys, count");
+        for (int i = 1; i < keys.length; i++)
+            test(keys[i] > keys[i - 1], "generated keys, ascending");
+        Test.log("BATCH inserted customers=" + batchValuesCust.size() + ", addresses="
+                + keys.length + " with keys");
+    }
+
+    // the calls of A1, queued in a unit of work and executed as batches at commit
+    static void A11(SQLUtilInterface sql, List<RandomCustomer> customers, TestDB tstDB)
+            throws SQLException, InterruptedException {
+        Test.log("table init");
+        tstDB.initSchema(sql, 'P');
+        Test.log("UNIT OF WORK inserting rows...");
+        Map<String, int[]> counts;
+        try (UnitOfWork uow = sql.beginUnitOfWork(Ordering.BY_FIRST_USE)) {
+            for (RandomCustomer cust : customers) {
+                sql.executeDMLVarArgs(Test.SQL_CUST_INS, cust.id, cust.d, cust.email);
+                for (RandomAddress addr : cust.addresses)
+                    sql.executeDMLVarArgs(Test.SQL_ADDR_INS, addr.custId, addr.addr);
+            }
+            counts = uow.commit();
+        }
+        int[] cust = counts.get(Test.SQL_CUST_INS);
+        int[] addr = counts.get(Test.SQL_ADDR_INS);
+        test(cust.length == customers.size(), "unit of work, customers");
+        Test.log("UNIT OF WORK inserted customers=" + cust.length + ", addresses="
+                + (addr == null ? 0 : addr.length));
+
+        // queries flush the queue first, so they see the queued rows
+        RandomCustomer first = customers.get(0);
+        String selectAddr = "select addr from sqlutil_addr where cust_id=?";
+        long before;
+        try (Stream<Row> stream = sql.stream(selectAddr, new Object[] { first.id })) {
+            before = stream.count();
+        }
+        try (UnitOfWork uow = sql.beginUnitOfWork(Ordering.BY_FIRST_USE)) {
+            sql.executeDMLVarArgs(Test.SQL_ADDR_INS, first.id, "queued 1");
+            try (Stream<Row> stream = sql.stream(selectAddr, new Object[] { first.id })) {
+                test(uow.getQueuedCount() == 0 && stream.count() == before + 1,
+                        "unit of work, stream flushes");
+            }
+            sql.executeDMLVarArgs(Test.SQL_ADDR_INS, first.id, "queued 2");
+            long n = 0;
+            try (RowIterator it = sql.iterate(selectAddr, new Object[] { first.id })) {
+                for (; it.hasNext(); it.next())
+                    n++;
+            }
+            test(uow.getQueuedCount() == 0 && n == before + 2, "unit of work, iterate flushes");
+            uow.commit();
+        }
+    }
+
     /*
     General Notes:
     Programming at home, no professional network hardware, so ping times are generally bad.
@@ -478,6 +835,14 @@ public class Test {
                 Test.A1(sql, customers, tstDB);
                 Test.A2(sql, customers, tstDB);
                 Test.A3(sql, customers, tstDB);
+                Test.A4(sql, customers, tstDB);
+                Test.A5(sql, customers, tstDB);
+                Test.A6(sql, customers, tstDB);
+                Test.A7(sql, customers, tstDB);
+                Test.A8(sql, customers, tstDB);
+                Test.A9(sql, customers, tstDB);
+                Test.A10(sql, customers, tstDB);
+                Test.A11(sql, customers, tstDB);
             }
 
             // sql.getAudit().printSummary(System.out, 0, null);